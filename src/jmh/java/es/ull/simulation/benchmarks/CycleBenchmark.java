@@ -0,0 +1,79 @@
+package es.ull.simulation.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import es.ull.simulation.functions.ConstantFunction;
+import es.ull.simulation.utils.cycle.Cycle;
+import es.ull.simulation.utils.cycle.CycleIndex;
+import es.ull.simulation.utils.cycle.CycleIterator;
+import es.ull.simulation.utils.cycle.PeriodicCycle;
+
+/**
+ * Measures the traversal of nested periodic cycles, the closed-form seek of the iterators and
+ * the queries of a {@link CycleIndex}.
+ * @author Iván Castilla Rodríguez
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CycleBenchmark {
+  /** Amount of nested cycles */
+  @Param({"1", "2", "3"})
+  public int nesting;
+  /** Amount of timestamps traversed */
+  @Param({"1000", "100000"})
+  public int size;
+  private Cycle cycle;
+  private double end;
+  private CycleIndex index;
+
+  @Setup
+  public void setup() {
+    // Each level splits the period of its parent in 10 subperiods
+    Cycle c = null;
+    double period = 1.0;
+    for (int i = 0; i < nesting; i++) {
+      c = (c == null) ? new PeriodicCycle(0.0, new ConstantFunction(period), 10)
+          : new PeriodicCycle(0.0, new ConstantFunction(period), 10, c);
+      period *= 10.0;
+    }
+    cycle = new PeriodicCycle(0.0, new ConstantFunction(period), 0, c);
+    // Roughly "size" timestamps
+    end = size * period / Math.pow(10.0, nesting);
+    index = new CycleIndex(cycle, 0.0, end);
+  }
+
+  @Benchmark
+  public void iterate(Blackhole bh) {
+    final CycleIterator iter = cycle.iterator(0.0, end);
+    double ts;
+    while (!Double.isNaN(ts = iter.next()))
+      bh.consume(ts);
+  }
+
+  @Benchmark
+  public double seek() {
+    return cycle.iterator(0.0, end).seek(end * 0.99);
+  }
+
+  @Benchmark
+  public double materialize() {
+    return cycle.materialize(0.0, end).length;
+  }
+
+  @Benchmark
+  public void nextActivation(Blackhole bh) {
+    for (double ts = 0.0; ts < end; ts += end / 1000.0)
+      bh.consume(index.nextActivation(ts));
+  }
+}
@@ -0,0 +1,171 @@
+package es.ull.simulation.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import es.ull.simulation.utils.IndexedPrioritizable;
+import es.ull.simulation.utils.Prioritizable;
+import es.ull.simulation.utils.PrioritizedBucketTable;
+import es.ull.simulation.utils.PrioritizedTable;
+import es.ull.simulation.utils.ResettableIterator;
+
+/**
+ * Measures the traversal of prioritized tables and the churn of objects (removing and adding
+ * again) with the different implementations. The churn of objects which do not know their
+ * position in their level, and must be searched, is measured too.
+ * @author Iván Castilla Rodríguez
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PrioritizedTableBenchmark {
+  /** Amount of objects of the table */
+  @Param({"1000", "100000"})
+  public int size;
+  /** Amount of priority levels */
+  @Param({"1", "16"})
+  public int nLevels;
+  private PrioritizedTable<Item> table;
+  private PrioritizedBucketTable<Item> bucketTable;
+  private PrioritizedTable<PlainItem> plainTable;
+  private ResettableIterator<Item> randomIter;
+  private List<Item> items;
+  private List<PlainItem> plainItems;
+  /** Random order in which the objects are churned */
+  private int[] order;
+  private int next = 0;
+
+  /**
+   * An object of the table.
+   */
+  private static final class Item implements IndexedPrioritizable {
+    private final int priority;
+    private int index = -1;
+
+    Item(int priority) {
+      this.priority = priority;
+    }
+
+    @Override
+    public int getPriority() {
+      return priority;
+    }
+
+    @Override
+    public int getLevelIndex() {
+      return index;
+    }
+
+    @Override
+    public void setLevelIndex(int index) {
+      this.index = index;
+    }
+  }
+
+  /**
+   * An object of the table which does not know its position.
+   */
+  private static final class PlainItem implements Prioritizable {
+    private final int priority;
+
+    PlainItem(int priority) {
+      this.priority = priority;
+    }
+
+    @Override
+    public int getPriority() {
+      return priority;
+    }
+  }
+
+  @Setup
+  public void setup() {
+    table = new PrioritizedTable<Item>();
+    bucketTable = new PrioritizedBucketTable<Item>(nLevels - 1);
+    plainTable = new PrioritizedTable<PlainItem>();
+    items = new ArrayList<Item>(size);
+    plainItems = new ArrayList<PlainItem>(size);
+    final SplittableRandom rng = new SplittableRandom(1);
+    for (int i = 0; i < size; i++) {
+      final Item item = new Item(rng.nextInt(nLevels));
+      items.add(item);
+      table.add(item);
+      bucketTable.add(item);
+      final PlainItem plain = new PlainItem(item.getPriority());
+      plainItems.add(plain);
+      plainTable.add(plain);
+    }
+    order = new int[size];
+    for (int i = 0; i < size; i++) {
+      final int j = rng.nextInt(i + 1);
+      order[i] = order[j];
+      order[j] = i;
+    }
+    randomIter = table.randomIterator(new SplittableRandom(2));
+  }
+
+  private static void consume(Iterator<Item> iter, int n, Blackhole bh) {
+    // The balanced iterator does not provide a reliable hasNext
+    for (int i = 0; i < n; i++)
+      bh.consume(iter.next());
+  }
+
+  @Benchmark
+  public void fifoIterator(Blackhole bh) {
+    consume(table.iterator(), size, bh);
+  }
+
+  @Benchmark
+  public void balancedIterator(Blackhole bh) {
+    consume(table.balancedIterator(), size, bh);
+  }
+
+  @Benchmark
+  public void randomIterator(Blackhole bh) {
+    consume(table.randomIterator(), size, bh);
+  }
+
+  @Benchmark
+  public void reusedRandomIterator(Blackhole bh) {
+    randomIter.reset();
+    consume(randomIter, size, bh);
+  }
+
+  @Benchmark
+  public void churn() {
+    final Item item = items.get(order[next]);
+    next = (next + 1) % size;
+    table.remove(item);
+    table.add(item);
+  }
+
+  @Benchmark
+  public void bucketChurn(Blackhole bh) {
+    final Item item = items.get(order[next]);
+    next = (next + 1) % size;
+    bucketTable.remove(item);
+    bucketTable.add(item);
+    bh.consume(bucketTable.firstPriority());
+  }
+
+  @Benchmark
+  public void searchedChurn() {
+    final PlainItem item = plainItems.get(order[next]);
+    next = (next + 1) % size;
+    plainTable.remove(item);
+    plainTable.add(item);
+  }
+}
@@ -0,0 +1,55 @@
+package es.ull.simulation.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import es.ull.simulation.functions.AbstractTimeFunction;
+import es.ull.simulation.functions.TimeFunctionFactory;
+import es.ull.simulation.functions.TimeFunctionParams;
+import simkit.random.RandomVariate;
+import simkit.random.RandomVariateFactory;
+
+/**
+ * Measures the generation of the <code>simkit.random</code> variates used by the time functions,
+ * both directly and wrapped in a time function created by {@link TimeFunctionFactory}.
+ * @author Iván Castilla Rodríguez
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RandomVariateBenchmark {
+  /** Variate and its parameters, separated by commas */
+  @Param({"UniformVariate,0.0,10.0", "ExponentialVariate,5.0", "NormalVariate,5.0,1.0", "GammaVariate,2.0,3.0"})
+  public String variate;
+  private RandomVariate rnd;
+  private AbstractTimeFunction function;
+  private final TimeFunctionParams params = () -> 0.0;
+
+  @Setup
+  public void setup() {
+    final String[] parts = variate.split(",");
+    final Object[] values = new Object[parts.length - 1];
+    for (int i = 1; i < parts.length; i++)
+      values[i - 1] = Double.valueOf(parts[i]);
+    rnd = RandomVariateFactory.getInstance(parts[0], values);
+    function = TimeFunctionFactory.getInstance(parts[0], values);
+  }
+
+  @Benchmark
+  public double generate() {
+    return rnd.generate();
+  }
+
+  @Benchmark
+  public double timeFunction() {
+    return function.getValue(params);
+  }
+}
@@ -0,0 +1,105 @@
+package es.ull.simulation.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import es.ull.simulation.utils.concurrent.SingleThreadPool;
+import es.ull.simulation.utils.concurrent.StandardThreadPool;
+import es.ull.simulation.utils.concurrent.ThreadPool;
+import es.ull.simulation.utils.concurrent.VirtualThreadPool;
+import es.ull.simulation.utils.concurrent.WorkStealingThreadPool;
+
+/**
+ * Measures the throughput of the pools of threads with short tasks submitted in phases, as
+ * simulation events are, both from the caller and from the tasks themselves.
+ * @author Iván Castilla Rodríguez
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ThreadPoolBenchmark {
+  private static final int TASKS = 10000;
+  private static final int WORK = 100;
+  /** Amount of parent tasks submitted by the nested benchmark */
+  private static final int PARENTS = 1000;
+  /** Amount of tasks submitted by each parent task */
+  private static final int CHILDREN = 8;
+  /** Type of pool */
+  @Param({"standard", "workStealing", "virtual", "single", "singleLocked"})
+  public String pool;
+  /** Amount of threads of the pool. Ignored by the single threaded pool */
+  @Param({"1", "2", "4", "8"})
+  public int nThreads;
+  private ThreadPool<Runnable> threadPool;
+  private final LongAdder sink = new LongAdder();
+  private final Runnable task = () -> {
+    long value = 0;
+    for (int i = 0; i < WORK; i++)
+      value += i * i;
+    sink.add(value);
+  };
+  private final Runnable parent = () -> {
+    task.run();
+    for (int i = 0; i < CHILDREN; i++)
+      threadPool.execute(task);
+  };
+
+  @Setup(Level.Trial)
+  public void setup() {
+    switch (pool) {
+    case "standard":
+      threadPool = new StandardThreadPool<Runnable>(nThreads);
+      break;
+    case "workStealing":
+      threadPool = new WorkStealingThreadPool<Runnable>(nThreads);
+      break;
+    case "virtual":
+      threadPool = new VirtualThreadPool<Runnable>(nThreads);
+      break;
+    case "single":
+      threadPool = new SingleThreadPool<Runnable>(true);
+      break;
+    case "singleLocked":
+      threadPool = new SingleThreadPool<Runnable>();
+      break;
+    default:
+      throw new IllegalArgumentException("Unknown pool " + pool);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    threadPool.shutdown();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TASKS)
+  public void execute() throws InterruptedException {
+    for (int i = 0; i < TASKS; i++)
+      threadPool.execute(task);
+    threadPool.awaitQuiescence();
+  }
+
+  /**
+   * Each task submits a set of children, as simulation events usually do.
+   */
+  @Benchmark
+  @OperationsPerInvocation(PARENTS * (CHILDREN + 1))
+  public void executeNested() throws InterruptedException {
+    for (int i = 0; i < PARENTS; i++)
+      threadPool.execute(parent);
+    threadPool.awaitQuiescence();
+  }
+}
@@ -0,0 +1,83 @@
+package es.ull.simulation.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import es.ull.simulation.functions.AbstractTimeFunction;
+import es.ull.simulation.functions.ConstantFunction;
+import es.ull.simulation.functions.LinearFunction;
+import es.ull.simulation.functions.PolynomialFunction;
+import es.ull.simulation.functions.RoundFunction;
+import es.ull.simulation.functions.TimeFunctionCompiler;
+import es.ull.simulation.functions.TimeFunctionParams;
+
+/**
+ * Measures the evaluation of trees of time functions, both as built and once compiled with
+ * {@link TimeFunctionCompiler}, one value at a time and in batches.
+ * @author Iván Castilla Rodríguez
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TimeFunctionBenchmark {
+  private static final int BATCH = 1024;
+  /** Amount of nested linear functions of the tree */
+  @Param({"1", "4", "16"})
+  public int depth;
+  /** True to evaluate the compiled tree */
+  @Param({"false", "true"})
+  public boolean compiled;
+  private AbstractTimeFunction function;
+  private final double[] times = new double[BATCH];
+  private final double[] values = new double[BATCH];
+  private final Params params = new Params();
+
+  /**
+   * Time function parameters whose timestamp can be modified.
+   */
+  private static final class Params implements TimeFunctionParams {
+    double time;
+
+    @Override
+    public double getTime() {
+      return time;
+    }
+  }
+
+  @Setup
+  public void setup() {
+    AbstractTimeFunction f = new PolynomialFunction(new double[] {1.0, 0.5, 0.25});
+    for (int i = 0; i < depth; i++)
+      f = new LinearFunction(new ConstantFunction(1.0 + i / 100.0), f);
+    f = new RoundFunction(RoundFunction.Type.FLOOR, f, 1.0);
+    function = compiled ? TimeFunctionCompiler.compile(f) : f;
+    for (int i = 0; i < BATCH; i++)
+      times[i] = i * 0.37;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void getValue(Blackhole bh) {
+    for (int i = 0; i < BATCH; i++) {
+      params.time = times[i];
+      bh.consume(function.getValue(params));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public double[] getValues() {
+    function.getValues(times, values);
+    return values;
+  }
+}
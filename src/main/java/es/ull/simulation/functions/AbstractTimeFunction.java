@@ -12,10 +12,53 @@ public abstract class AbstractTimeFunction {
      */
     public abstract double getValue(TimeFunctionParams params);
 
+    /**
+     * Evaluates this function for a batch of timestamps. The i-th value is equivalent to calling
+     * {@link #getValue(TimeFunctionParams)} with <code>times[i]</code>, and values are computed in
+     * increasing order of the index, so random functions consume their streams in the same order.
+     * By default, a single reusable parameter object is used for the whole batch; subclasses
+     * override this method with specialized loops when the function allows it.
+     * @param times The timestamps where this function is evaluated.
+     * @param out Array where the results are stored. Must be at least as long as <code>times</code>
+     * and must not be the same array as <code>times</code>.
+     */
+    public void getValues(double[] times, double[] out) {
+        final MutableTimeFunctionParams params = new MutableTimeFunctionParams();
+        for (int i = 0; i < times.length; i++) {
+            params.time = times[i];
+            out[i] = getValue(params);
+        }
+    }
+
+    /**
+     * Evaluates this function for a batch of timestamps and returns the results in a new array.
+     * @param times The timestamps where this function is evaluated.
+     * @return An array with the value of this function for each timestamp.
+     * @see #getValues(double[], double[])
+     */
+    public double[] getValues(double[] times) {
+        final double[] out = new double[times.length];
+        getValues(times, out);
+        return out;
+    }
+
     /**
      * Sets the parameters of this function.
      * @param params Parameters required by this function.
      */
     public abstract void setParameters(Object... params);
 
+    /**
+     * Time function parameters whose timestamp can be modified. Intended to be reused while
+     * evaluating a batch of timestamps, so no object is created per value.
+     */
+    protected static final class MutableTimeFunctionParams implements TimeFunctionParams {
+        /** The current timestamp */
+        protected double time;
+
+        @Override
+        public double getTime() {
+            return time;
+        }
+    }
 }
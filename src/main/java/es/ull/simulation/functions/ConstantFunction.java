@@ -1,5 +1,7 @@
 package es.ull.simulation.functions;
 
+import java.util.Arrays;
+
 /**
  * A constant value wrapped by a time function.
  * @author Ivan Castilla Rodriguez
@@ -18,10 +20,23 @@ public class ConstantFunction extends AbstractTimeFunction {
         this.constantValue = val;
     }
 
+    /**
+     * Returns the value of the constant function.
+     * @return The value of the constant function.
+     */
+    public double getConstantValue() {
+        return constantValue;
+    }
+
     public double getValue(TimeFunctionParams params) {
         return constantValue;
     }
 
+    @Override
+    public void getValues(double[] times, double[] out) {
+        Arrays.fill(out, 0, times.length, constantValue);
+    }
+
     @Override
     public void setParameters(Object... params) {
         if (params.length < 1)
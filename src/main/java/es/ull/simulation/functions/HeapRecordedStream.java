@@ -0,0 +1,58 @@
+package es.ull.simulation.functions;
+
+import java.util.Arrays;
+
+/**
+ * A recorded stream which stores the values in memory as chunks of primitive doubles. Chunks are
+ * never moved once created, so readers only need to check the published size before accessing
+ * a value.
+ * @author Iván Castilla Rodríguez
+ */
+public class HeapRecordedStream implements RecordedStream {
+  /** Bits used to index a value within a chunk */
+  private static final int CHUNK_BITS = 10;
+  /** Amount of values stored in each chunk */
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  /** Mask to get the index of a value within a chunk */
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+  /** Chunks of values. The array is replaced (not modified) when more chunks are required */
+  private volatile double[][] chunks;
+  /** Amount of values published */
+  private volatile int size;
+
+  /**
+   * Creates an empty stream.
+   */
+  public HeapRecordedStream() {
+    chunks = new double[16][];
+    size = 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public double get(int index) {
+    // The size must be read before the chunks to see every chunk published with it
+    if (index < 0 || index >= size)
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    return chunks[index >>> CHUNK_BITS][index & CHUNK_MASK];
+  }
+
+  @Override
+  public void append(double value) {
+    final int n = size;
+    final int chunk = n >>> CHUNK_BITS;
+    double[][] c = chunks;
+    if (chunk == c.length) {
+      c = Arrays.copyOf(c, c.length * 2);
+      chunks = c;
+    }
+    if (c[chunk] == null)
+      c[chunk] = new double[CHUNK_SIZE];
+    c[chunk][n & CHUNK_MASK] = value;
+    size = n + 1;
+  }
+}
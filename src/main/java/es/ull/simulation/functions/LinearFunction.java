@@ -75,6 +75,36 @@ public class LinearFunction extends AbstractTimeFunction {
         return scale.getValue(params) * params.getTime() + shift.getValue(params);
     }
 
+    /**
+     * Uses specialized loops when the scale, the shift or both are constant. Otherwise, scale and
+     * shift are interleaved value by value as in {@link #getValue(TimeFunctionParams)}.
+     */
+    @Override
+    public void getValues(double[] times, double[] out) {
+        if (scale instanceof ConstantFunction) {
+            final double a = ((ConstantFunction) scale).getConstantValue();
+            if (shift instanceof ConstantFunction) {
+                final double b = ((ConstantFunction) shift).getConstantValue();
+                for (int i = 0; i < times.length; i++)
+                    out[i] = a * times[i] + b;
+            }
+            else {
+                shift.getValues(times, out);
+                for (int i = 0; i < times.length; i++)
+                    out[i] += a * times[i];
+            }
+        }
+        else if (shift instanceof ConstantFunction) {
+            final double b = ((ConstantFunction) shift).getConstantValue();
+            scale.getValues(times, out);
+            for (int i = 0; i < times.length; i++)
+                out[i] = out[i] * times[i] + b;
+        }
+        else {
+            super.getValues(times, out);
+        }
+    }
+
     /**
      * Requires two parameters: scale and shift.
      * @param params Parameters required by this method.
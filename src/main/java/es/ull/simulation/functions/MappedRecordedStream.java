@@ -0,0 +1,183 @@
+package es.ull.simulation.functions;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A recorded stream which stores the values in a memory-mapped file, so the heap used does not
+ * depend on the length of the stream, and the values recorded in one run can be replayed later or
+ * by another process.<p>
+ * The file starts with a header containing the amount of values recorded (as a long), followed by
+ * the values as doubles. The values are mapped in segments of fixed size, which are created as the
+ * stream grows. A stream opened in read-only mode replays the values recorded when it was opened
+ * and cannot be extended.
+ * @author Iván Castilla Rodríguez
+ */
+public class MappedRecordedStream implements RecordedStream, Closeable {
+  /** Size of the header, in bytes */
+  private static final int HEADER_BYTES = Long.BYTES;
+  /** Bits used to index a value within a segment */
+  private static final int SEGMENT_BITS = 20;
+  /** Amount of values stored in each segment */
+  private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+  /** Mask to get the index of a value within a segment */
+  private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+  /** The channel to the file */
+  private final FileChannel channel;
+  /** True if the stream cannot be extended */
+  private final boolean readOnly;
+  /** The mapped header */
+  private final MappedByteBuffer header;
+  /** Mapped segments. The array is replaced (not modified) when more segments are required */
+  private volatile MappedByteBuffer[] segments;
+  /** Amount of values published */
+  private volatile int size;
+  /** True if the file has been closed */
+  private volatile boolean closed = false;
+
+  /**
+   * Opens a stream backed by the specified file, which is created if it does not exist. If the
+   * file already contains values, new values are appended after them.
+   * @param file The file where the values are recorded
+   * @throws IOException If the file cannot be opened or mapped
+   */
+  public MappedRecordedStream(Path file) throws IOException {
+    this(file, false);
+  }
+
+  /**
+   * Opens a stream backed by the specified file.
+   * @param file The file where the values are recorded
+   * @param readOnly If true, the file must exist and its values can only be replayed; otherwise,
+   * the file is created if it does not exist and new values can be appended.
+   * @throws IOException If the file cannot be opened or mapped
+   */
+  public MappedRecordedStream(Path file, boolean readOnly) throws IOException {
+    this.readOnly = readOnly;
+    if (readOnly) {
+      channel = FileChannel.open(file, StandardOpenOption.READ);
+      if (channel.size() < HEADER_BYTES) {
+        channel.close();
+        throw new IOException("Not a recorded stream: " + file);
+      }
+      header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+    }
+    else {
+      channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+          StandardOpenOption.CREATE);
+      header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+    }
+    final long recorded = header.getLong(0);
+    if (recorded < 0 || recorded > Integer.MAX_VALUE ||
+        channel.size() < HEADER_BYTES + recorded * Double.BYTES) {
+      channel.close();
+      throw new IOException("Corrupted recorded stream: " + file);
+    }
+    final int nSegments = (int) ((recorded + SEGMENT_SIZE - 1) >>> SEGMENT_BITS);
+    final MappedByteBuffer[] s = new MappedByteBuffer[Math.max(16, nSegments)];
+    for (int i = 0; i < nSegments; i++)
+      s[i] = mapSegment(i, (int) Math.min(SEGMENT_SIZE, recorded - ((long) i << SEGMENT_BITS)));
+    segments = s;
+    size = (int) recorded;
+  }
+
+  /**
+   * Maps a segment of the file.
+   * @param segment Index of the segment
+   * @param nValues Amount of values to map; only used in read-only mode, since segments are fully
+   * mapped (and the file grown) otherwise.
+   * @return The mapped segment
+   * @throws IOException If the segment cannot be mapped
+   */
+  private MappedByteBuffer mapSegment(int segment, int nValues) throws IOException {
+    final long position = HEADER_BYTES + ((long) segment << SEGMENT_BITS) * Double.BYTES;
+    if (readOnly)
+      return channel.map(FileChannel.MapMode.READ_ONLY, position, (long) nValues * Double.BYTES);
+    return channel.map(FileChannel.MapMode.READ_WRITE, position, (long) SEGMENT_SIZE * Double.BYTES);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public double get(int index) {
+    // The size must be read before the segments to see every segment published with it
+    if (index < 0 || index >= size)
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    return segments[index >>> SEGMENT_BITS].getDouble((index & SEGMENT_MASK) * Double.BYTES);
+  }
+
+  /**
+   * @throws UnsupportedOperationException If the stream was opened in read-only mode
+   * @throws UncheckedIOException If a new segment cannot be mapped
+   */
+  @Override
+  public void append(double value) {
+    if (readOnly)
+      throw new UnsupportedOperationException("Read-only recorded stream");
+    if (closed)
+      throw new IllegalStateException("Closed recorded stream");
+    final int n = size;
+    if (n == Integer.MAX_VALUE)
+      throw new IllegalStateException("Recorded stream is full");
+    final int segment = n >>> SEGMENT_BITS;
+    MappedByteBuffer[] s = segments;
+    if (segment == s.length) {
+      s = Arrays.copyOf(s, s.length * 2);
+      segments = s;
+    }
+    if (s[segment] == null) {
+      try {
+        s[segment] = mapSegment(segment, SEGMENT_SIZE);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    s[segment].putDouble((n & SEGMENT_MASK) * Double.BYTES, value);
+    header.putLong(0, n + 1);
+    size = n + 1;
+  }
+
+  /**
+   * Returns true if this stream cannot be extended.
+   * @return True if this stream cannot be extended
+   */
+  public boolean isReadOnly() {
+    return readOnly;
+  }
+
+  /**
+   * Writes to disk the values appended to this stream.
+   */
+  public void force() {
+    if (!readOnly) {
+      for (MappedByteBuffer segment : segments) {
+        if (segment != null)
+          segment.force();
+      }
+      header.force();
+    }
+  }
+
+  /**
+   * Writes to disk the values appended to this stream and closes the file. The values cannot be
+   * accessed after closing the stream.
+   */
+  @Override
+  public void close() throws IOException {
+    if (!closed) {
+      force();
+      closed = true;
+      size = 0;
+      channel.close();
+    }
+  }
+}
@@ -37,6 +37,15 @@ public class NextHighFunction extends AbstractTimeFunction {
         return auxVal - ts;
     }
 
+    @Override
+    public void getValues(double[] times, double[] out) {
+        func.getValues(times, out);
+        for (int i = 0; i < times.length; i++) {
+            final double ts = times[i];
+            out[i] = Math.ceil((ts + out[i] - shift) / scale) * scale + shift - ts;
+        }
+    }
+
     /**
      * @return the func
      */
@@ -65,6 +65,14 @@ public class PeriodicProportionFunction extends AbstractTimeFunction {
     return nElem[indexv] * prop[indexp];
   }
 
+  @Override
+  public void getValues(double[] times, double[] out) {
+    for (int i = 0; i < times.length; i++) {
+      final int unit = (int) (times[i] / timeUnit);
+      out[i] = nElem[(unit / prop.length) % nElem.length] * prop[unit % prop.length];
+    }
+  }
+
   /* (non-Javadoc)
    * @see es.ull.iis.function.TimeFunction#setParameters(java.lang.Object[])
    */
@@ -1,7 +1,5 @@
 package es.ull.simulation.functions;
 
-import simkit.random.RandomVariateFactory;
-
 /**
  * Represents a polynomic function: a1�x^n-1 + a2�x^n-2 + ... + an
  * @author Roberto Mu�oz
@@ -31,8 +29,7 @@ public class PolynomialFunction extends AbstractTimeFunction {
     int i = 0;
     this.coefficients = new AbstractTimeFunction[length];
     for (double j : coefficients)
-      this.coefficients[i++] = new RandomFunction(
-          RandomVariateFactory.getInstance("ConstantVariate", j));
+      this.coefficients[i++] = new ConstantFunction(j);
 
   }
   /**
@@ -50,6 +47,30 @@ public class PolynomialFunction extends AbstractTimeFunction {
     return value;
   }
 
+  /**
+   * When every coefficient is a {@link ConstantFunction}, the polynomial is evaluated by using
+   * Horner's rule, hence the results may differ from {@link #getValue(TimeFunctionParams)} in
+   * the last digits. Otherwise, the default evaluation is used.
+   */
+  @Override
+  public void getValues(double[] times, double[] out) {
+    final double[] coef = new double[length];
+    for (int i = 0; i < length; i++) {
+      if (!(coefficients[i] instanceof ConstantFunction)) {
+        super.getValues(times, out);
+        return;
+      }
+      coef[i] = ((ConstantFunction) coefficients[i]).getConstantValue();
+    }
+    for (int i = 0; i < times.length; i++) {
+      final double ts = times[i];
+      double value = 0.0;
+      for (int j = 0; j < length; j++)
+        value = value * ts + coef[j];
+      out[i] = value;
+    }
+  }
+
   /**
    * Returns this function coefficients.
    * @return the coefficients
@@ -63,12 +84,13 @@ public class PolynomialFunction extends AbstractTimeFunction {
    * @param coefficients the coefficients to set
    */
   public void setCoefficients(AbstractTimeFunction[] coefficients) {
+    this.length = coefficients.length;
     this.coefficients = coefficients;
   }
 
   @Override
   public void setParameters(Object... params) {
-    this.coefficients = (AbstractTimeFunction[]) params;
+    setCoefficients((AbstractTimeFunction[]) params);
   }
 
 }
@@ -0,0 +1,30 @@
+package es.ull.simulation.functions;
+
+/**
+ * An append-only sequence of values, as generated by a {@link ReplicableTimeFunction}.
+ * Implementations must allow a single producer to append values while several consumers read the
+ * values already appended, without any additional synchronization by the consumers.
+ * @author Iván Castilla Rodríguez
+ */
+public interface RecordedStream {
+  /**
+   * Returns the amount of values appended to the stream. Values with an index lower than the
+   * returned one can be safely read.
+   * @return The amount of values appended to the stream.
+   */
+  int size();
+
+  /**
+   * Returns the value at the specified position of the stream.
+   * @param index Position of the value
+   * @return The value at the specified position of the stream.
+   * @throws IndexOutOfBoundsException If <code>index</code> is not lower than {@link #size()}.
+   */
+  double get(int index);
+
+  /**
+   * Appends a value to the end of the stream. Only one thread at a time can invoke this method.
+   * @param value The new value
+   */
+  void append(double value);
+}
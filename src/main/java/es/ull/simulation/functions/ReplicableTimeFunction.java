@@ -1,10 +1,18 @@
 package es.ull.simulation.functions;
 
-import java.util.ArrayList;
-
+/**
+ * A time function which records the values generated by an inner time function, so the same
+ * sequence of values can be replayed later, e.g., to use common random numbers among several
+ * scenarios of a replication.<p>
+ * The function itself keeps a cursor which is restarted with {@link #reStart()}. Additional
+ * cursors, created with {@link #newCursor()}, have their own position and can be used from
+ * different threads: values already recorded are read without locking, and only the thread that
+ * moves beyond the end of the recorded stream generates new values, one thread at a time.
+ * @author Iván Castilla Rodríguez
+ */
 public class ReplicableTimeFunction extends AbstractTimeFunction {
   private AbstractTimeFunction innerTimeFunction;
-  final private ArrayList<Double> genValues;
+  final private RecordedStream genValues;
   private int counter;
 
 
@@ -13,8 +21,19 @@ public class ReplicableTimeFunction extends AbstractTimeFunction {
     this.innerTimeFunction = innerTimeFunction;
   }
 
+  /**
+   * Creates a replicable function which records the values in the specified stream.
+   * @param innerTimeFunction The function that generates the values
+   * @param genValues The stream where the values are recorded
+   */
+  public ReplicableTimeFunction(AbstractTimeFunction innerTimeFunction, RecordedStream genValues) {
+    this.innerTimeFunction = innerTimeFunction;
+    this.genValues = genValues;
+    counter = 0;
+  }
+
   public ReplicableTimeFunction() {
-    genValues = new ArrayList<>();
+    genValues = new HeapRecordedStream();
     counter = 0;
   }
 
@@ -27,9 +46,41 @@ public class ReplicableTimeFunction extends AbstractTimeFunction {
    */
   @Override
   public double getValue(TimeFunctionParams params) {
-    if (counter == genValues.size())
-      genValues.add(innerTimeFunction.getValue(params));
-    return genValues.get(counter++);
+    return getValue(counter++, params);
+  }
+
+  /**
+   * Returns the value at the specified position of the recorded stream. If the value has not
+   * been generated yet, the inner function is used to extend the stream up to that position.
+   * @param index Position of the value in the stream
+   * @param params The parameters used by the inner function if new values are generated
+   * @return The value at the specified position of the recorded stream
+   */
+  protected double getValue(int index, TimeFunctionParams params) {
+    if (index < genValues.size())
+      return genValues.get(index);
+    synchronized (genValues) {
+      while (index >= genValues.size())
+        genValues.append(innerTimeFunction.getValue(params));
+    }
+    return genValues.get(index);
+  }
+
+  /**
+   * Creates a new cursor over the values recorded by this function. The cursor starts at the
+   * beginning of the stream.
+   * @return A new cursor over the values recorded by this function
+   */
+  public Cursor newCursor() {
+    return new Cursor();
+  }
+
+  /**
+   * Returns the stream where the values are recorded.
+   * @return the stream where the values are recorded
+   */
+  public RecordedStream getRecordedStream() {
+    return genValues;
   }
 
   /* (non-Javadoc)
@@ -62,4 +113,45 @@ public class ReplicableTimeFunction extends AbstractTimeFunction {
   public void setInnerTimeFunction(AbstractTimeFunction innerTimeFunction) {
     this.innerTimeFunction = innerTimeFunction;
   }
+
+  /**
+   * An independent position within the values recorded by a replicable function. A cursor must
+   * be used by only one thread at a time, but different cursors can be used concurrently.
+   */
+  public class Cursor extends AbstractTimeFunction {
+    /** Position of the next value to return */
+    private int position = 0;
+
+    private Cursor() {
+    }
+
+    /**
+     * Moves the cursor to the beginning of the stream.
+     */
+    public void reStart() {
+      position = 0;
+    }
+
+    /**
+     * Returns the position of the next value to return.
+     * @return the position of the next value to return
+     */
+    public int getPosition() {
+      return position;
+    }
+
+    @Override
+    public double getValue(TimeFunctionParams params) {
+      return ReplicableTimeFunction.this.getValue(position++, params);
+    }
+
+    /**
+     * A cursor cannot be modified.
+     * @throws UnsupportedOperationException Always
+     */
+    @Override
+    public void setParameters(Object... params) {
+      throw new UnsupportedOperationException("A cursor cannot be modified");
+    }
+  }
 }
@@ -55,6 +55,28 @@ public class RoundFunction extends AbstractTimeFunction {
     return val;
   }
 
+  @Override
+  public void getValues(double[] times, double[] out) {
+    func.getValues(times, out);
+    if (scale != 0.0) {
+      switch(type) {
+        case CEIL:
+          for (int i = 0; i < times.length; i++)
+            out[i] = ExtendedMath.ceil(out[i], scale) + shift;
+          break;
+        case FLOOR:
+          for (int i = 0; i < times.length; i++)
+            out[i] = ExtendedMath.floor(out[i], scale) + shift;
+          break;
+        case ROUND:
+        default:
+          for (int i = 0; i < times.length; i++)
+            out[i] = ExtendedMath.round(out[i], scale) + shift;
+          break;
+      }
+    }
+  }
+
   /* (non-Javadoc)
    * @see es.ull.iis.function.TimeFunction#setParameters(java.lang.Object[])
    */
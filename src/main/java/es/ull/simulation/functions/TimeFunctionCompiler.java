@@ -0,0 +1,427 @@
+package es.ull.simulation.functions;
+
+import java.util.Arrays;
+
+import es.ull.simulation.utils.ExtendedMath;
+
+/**
+ * Compiles a tree of time functions into a flat evaluator. The tree is traversed once and the
+ * constant subexpressions are folded: any combination of {@link ConstantFunction},
+ * {@link LinearFunction} and {@link PolynomialFunction} whose leaves are constant is reduced to a
+ * single polynomial evaluated by Horner's rule, and rounding a constant is precomputed. The rest of
+ * supported functions ({@link RoundFunction}, {@link NextHighFunction},
+ * {@link PeriodicProportionFunction} and {@link UniformlyDistributedSplitFunction}) are replaced by
+ * final nodes that receive the timestamp as a primitive value. Any other function (e.g.
+ * {@link RandomFunction} or {@link ReplicableTimeFunction}) is kept as an opaque leaf, and it is
+ * invoked in the same order as in the original tree, so random streams are consumed identically.
+ * <p>
+ * The compiled function is a snapshot of the tree: later changes to the original functions are not
+ * reflected. Since floating point operations may be reordered, results can differ from those of the
+ * original tree in the last digits.
+ * @author Iván Castilla Rodríguez
+ */
+public final class TimeFunctionCompiler {
+
+  /**
+   * This class should never be instantiated.
+   */
+  private TimeFunctionCompiler() {
+  }
+
+  /**
+   * Compiles a time function into a flat evaluator.
+   * @param function The root of the tree of time functions to compile.
+   * @return A new time function equivalent to the original one.
+   */
+  public static AbstractTimeFunction compile(AbstractTimeFunction function) {
+    if (function == null)
+      throw new IllegalArgumentException("null function");
+    if (function instanceof CompiledTimeFunction)
+      return function;
+    return new CompiledTimeFunction(build(function));
+  }
+
+  /**
+   * Builds the node corresponding to a function, folding constant subexpressions.
+   * @param function A time function
+   * @return The node that evaluates such function.
+   */
+  private static Node build(AbstractTimeFunction function) {
+    if (function instanceof CompiledTimeFunction)
+      return ((CompiledTimeFunction) function).root;
+    if (function instanceof ConstantFunction)
+      return new PolynomialNode(new double[] {((ConstantFunction) function).getConstantValue()});
+    if (function instanceof LinearFunction) {
+      final LinearFunction f = (LinearFunction) function;
+      final Node scale = build(f.getScale());
+      final Node shift = build(f.getShift());
+      if (scale instanceof PolynomialNode && shift instanceof PolynomialNode)
+        return new PolynomialNode(add(shiftDegree(((PolynomialNode) scale).coef, 1),
+            ((PolynomialNode) shift).coef));
+      return new LinearNode(scale, shift);
+    }
+    if (function instanceof PolynomialFunction) {
+      final AbstractTimeFunction[] coefficients = ((PolynomialFunction) function).getCoefficients();
+      final Node[] nodes = new Node[coefficients.length];
+      boolean folded = true;
+      for (int i = 0; i < nodes.length; i++) {
+        nodes[i] = build(coefficients[i]);
+        folded = folded && (nodes[i] instanceof PolynomialNode);
+      }
+      if (folded) {
+        double[] coef = new double[] {0.0};
+        for (int i = 0; i < nodes.length; i++)
+          coef = add(coef, shiftDegree(((PolynomialNode) nodes[i]).coef, nodes.length - i - 1));
+        return new PolynomialNode(coef);
+      }
+      return new HornerNode(nodes);
+    }
+    if (function instanceof RoundFunction) {
+      final RoundFunction f = (RoundFunction) function;
+      final Node func = build(f.getFunc());
+      final RoundNode node = new RoundNode(f.getType(), func, f.getScale(), f.getShift());
+      if (func.isConstant())
+        return new PolynomialNode(new double[] {node.eval(0.0, null)});
+      return node;
+    }
+    if (function instanceof NextHighFunction) {
+      final NextHighFunction f = (NextHighFunction) function;
+      return new NextHighNode(build(f.getFunc()), f.getScale(), f.getShift());
+    }
+    if (function instanceof PeriodicProportionFunction) {
+      final PeriodicProportionFunction f = (PeriodicProportionFunction) function;
+      return new PeriodicProportionNode(f.getNElem().clone(), f.getProp().clone(), f.getTimeUnit());
+    }
+    if (function instanceof UniformlyDistributedSplitFunction) {
+      final UniformlyDistributedSplitFunction f = (UniformlyDistributedSplitFunction) function;
+      final AbstractTimeFunction[] part = f.getPart();
+      final Node[] nodes = new Node[part.length];
+      for (int i = 0; i < nodes.length; i++)
+        nodes[i] = build(part[i]);
+      return new SplitNode(nodes, f.getTimeUnit());
+    }
+    return new OpaqueNode(function);
+  }
+
+  /**
+   * Multiplies a polynomial by x^degree.
+   * @param coef Coefficients of the polynomial, from the highest degree to the lowest one
+   * @param degree The degree of the multiplying monomial
+   * @return The coefficients of the resulting polynomial
+   */
+  private static double[] shiftDegree(double[] coef, int degree) {
+    final double[] result = new double[coef.length + degree];
+    System.arraycopy(coef, 0, result, 0, coef.length);
+    return result;
+  }
+
+  /**
+   * Adds two polynomials.
+   * @param a Coefficients of the first polynomial, from the highest degree to the lowest one
+   * @param b Coefficients of the second polynomial, from the highest degree to the lowest one
+   * @return The coefficients of the resulting polynomial
+   */
+  private static double[] add(double[] a, double[] b) {
+    final double[] result = new double[Math.max(a.length, b.length)];
+    for (int i = 0; i < a.length; i++)
+      result[result.length - a.length + i] += a[i];
+    for (int i = 0; i < b.length; i++)
+      result[result.length - b.length + i] += b[i];
+    return result;
+  }
+
+  /**
+   * The result of compiling a tree of time functions.
+   */
+  private static final class CompiledTimeFunction extends AbstractTimeFunction {
+    /** Root of the compiled tree */
+    private final Node root;
+
+    private CompiledTimeFunction(Node root) {
+      this.root = root;
+    }
+
+    @Override
+    public double getValue(TimeFunctionParams params) {
+      return root.eval(params.getTime(), params);
+    }
+
+    @Override
+    public void getValues(double[] times, double[] out) {
+      if (root instanceof PolynomialNode) {
+        ((PolynomialNode) root).evalAll(times, out);
+      }
+      else {
+        final MutableTimeFunctionParams params = new MutableTimeFunctionParams();
+        for (int i = 0; i < times.length; i++) {
+          params.time = times[i];
+          out[i] = root.eval(times[i], params);
+        }
+      }
+    }
+
+    /**
+     * A compiled function cannot be modified.
+     * @throws UnsupportedOperationException Always
+     */
+    @Override
+    public void setParameters(Object... params) {
+      throw new UnsupportedOperationException("A compiled time function cannot be modified");
+    }
+
+    @Override
+    public String toString() {
+      return "Compiled[" + root + "]";
+    }
+  }
+
+  /**
+   * A node of the compiled tree. The timestamp is received as a primitive value; the original
+   * parameters are only used by the opaque leaves.
+   */
+  private static abstract class Node {
+    /**
+     * Evaluates this node.
+     * @param ts Current timestamp
+     * @param params Original parameters, required by opaque leaves
+     * @return The value of this node at the specified timestamp
+     */
+    abstract double eval(double ts, TimeFunctionParams params);
+
+    /**
+     * Returns true if this node always returns the same value and has no side effects.
+     * @return True if this node always returns the same value
+     */
+    boolean isConstant() {
+      return false;
+    }
+  }
+
+  /**
+   * A polynomial with constant coefficients, which includes constants as polynomials of degree 0.
+   */
+  private static final class PolynomialNode extends Node {
+    /** Coefficients, from the highest degree to the lowest one */
+    private final double[] coef;
+
+    private PolynomialNode(double[] coef) {
+      this.coef = coef;
+    }
+
+    @Override
+    double eval(double ts, TimeFunctionParams params) {
+      double value = coef[0];
+      for (int i = 1; i < coef.length; i++)
+        value = value * ts + coef[i];
+      return value;
+    }
+
+    void evalAll(double[] times, double[] out) {
+      if (coef.length == 1) {
+        for (int i = 0; i < times.length; i++)
+          out[i] = coef[0];
+      }
+      else {
+        for (int i = 0; i < times.length; i++) {
+          final double ts = times[i];
+          double value = coef[0];
+          for (int j = 1; j < coef.length; j++)
+            value = value * ts + coef[j];
+          out[i] = value;
+        }
+      }
+    }
+
+    @Override
+    boolean isConstant() {
+      return coef.length == 1;
+    }
+
+    @Override
+    public String toString() {
+      return "Poly" + Arrays.toString(coef);
+    }
+  }
+
+  /**
+   * A linear function where the scale or the shift cannot be folded.
+   */
+  private static final class LinearNode extends Node {
+    private final Node scale;
+    private final Node shift;
+
+    private LinearNode(Node scale, Node shift) {
+      this.scale = scale;
+      this.shift = shift;
+    }
+
+    @Override
+    double eval(double ts, TimeFunctionParams params) {
+      return scale.eval(ts, params) * ts + shift.eval(ts, params);
+    }
+
+    @Override
+    public String toString() {
+      return "Linear[" + scale + ", " + shift + "]";
+    }
+  }
+
+  /**
+   * A polynomial where some of the coefficients cannot be folded. Coefficients are evaluated in
+   * the same order as in {@link PolynomialFunction}.
+   */
+  private static final class HornerNode extends Node {
+    /** Coefficients, from the highest degree to the lowest one */
+    private final Node[] coef;
+
+    private HornerNode(Node[] coef) {
+      this.coef = coef;
+    }
+
+    @Override
+    double eval(double ts, TimeFunctionParams params) {
+      double value = 0.0;
+      for (int i = 0; i < coef.length; i++)
+        value = value * ts + coef[i].eval(ts, params);
+      return value;
+    }
+
+    @Override
+    public String toString() {
+      return "Horner" + Arrays.toString(coef);
+    }
+  }
+
+  /**
+   * The equivalent to a {@link RoundFunction}.
+   */
+  private static final class RoundNode extends Node {
+    private final RoundFunction.Type type;
+    private final Node func;
+    private final double scale;
+    private final double shift;
+
+    private RoundNode(RoundFunction.Type type, Node func, double scale, double shift) {
+      this.type = type;
+      this.func = func;
+      this.scale = scale;
+      this.shift = shift;
+    }
+
+    @Override
+    double eval(double ts, TimeFunctionParams params) {
+      final double val = func.eval(ts, params);
+      if (scale == 0.0)
+        return val;
+      switch(type) {
+        case CEIL:
+          return ExtendedMath.ceil(val, scale) + shift;
+        case FLOOR:
+          return ExtendedMath.floor(val, scale) + shift;
+        case ROUND:
+        default:
+          return ExtendedMath.round(val, scale) + shift;
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "Round[" + type + ", " + func + ", " + scale + ", " + shift + "]";
+    }
+  }
+
+  /**
+   * The equivalent to a {@link NextHighFunction}.
+   */
+  private static final class NextHighNode extends Node {
+    private final Node func;
+    private final double scale;
+    private final double shift;
+
+    private NextHighNode(Node func, double scale, double shift) {
+      this.func = func;
+      this.scale = scale;
+      this.shift = shift;
+    }
+
+    @Override
+    double eval(double ts, TimeFunctionParams params) {
+      return Math.ceil((ts + func.eval(ts, params) - shift) / scale) * scale + shift - ts;
+    }
+
+    @Override
+    public String toString() {
+      return "NextHigh[" + func + ", " + scale + ", " + shift + "]";
+    }
+  }
+
+  /**
+   * The equivalent to a {@link PeriodicProportionFunction}.
+   */
+  private static final class PeriodicProportionNode extends Node {
+    private final int[] nElem;
+    private final double[] prop;
+    private final double timeUnit;
+
+    private PeriodicProportionNode(int[] nElem, double[] prop, double timeUnit) {
+      this.nElem = nElem;
+      this.prop = prop;
+      this.timeUnit = timeUnit;
+    }
+
+    @Override
+    double eval(double ts, TimeFunctionParams params) {
+      final int unit = (int) (ts / timeUnit);
+      return nElem[(unit / prop.length) % nElem.length] * prop[unit % prop.length];
+    }
+
+    @Override
+    public String toString() {
+      return "PeriodicProportion[" + timeUnit + "]";
+    }
+  }
+
+  /**
+   * The equivalent to a {@link UniformlyDistributedSplitFunction}.
+   */
+  private static final class SplitNode extends Node {
+    private final Node[] part;
+    private final double timeUnit;
+
+    private SplitNode(Node[] part, double timeUnit) {
+      this.part = part;
+      this.timeUnit = timeUnit;
+    }
+
+    @Override
+    double eval(double ts, TimeFunctionParams params) {
+      return part[((int) (ts / timeUnit)) % part.length].eval(ts, params);
+    }
+
+    @Override
+    public String toString() {
+      return "Split" + Arrays.toString(part);
+    }
+  }
+
+  /**
+   * A function that cannot be compiled, and which is invoked as it is.
+   */
+  private static final class OpaqueNode extends Node {
+    private final AbstractTimeFunction function;
+
+    private OpaqueNode(AbstractTimeFunction function) {
+      this.function = function;
+    }
+
+    @Override
+    double eval(double ts, TimeFunctionParams params) {
+      return function.getValue(params);
+    }
+
+    @Override
+    public String toString() {
+      return function.getClass().getSimpleName();
+    }
+  }
+}
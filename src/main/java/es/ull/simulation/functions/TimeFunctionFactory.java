@@ -1,16 +1,28 @@
 package es.ull.simulation.functions;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.ServiceLoader;
 import java.util.Set;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 import simkit.random.RandomVariateFactory;
 
 /**
  * The same functionality of RandomVariateFactory by Arnold Buss, but it searches for TimeFunction
- * classes first, and then for the RandomVariate ones.
+ * classes first, and then for the RandomVariate ones.<p>
+ * Names are first looked up in a registry of constructors. The functions of this package are
+ * registered by default, and further functions can be registered by using
+ * {@link #register(Class)}, {@link #register(String, Supplier)} or {@link #registerServices()}.
+ * Classes found in the search packages are added to the registry, and names which do not
+ * correspond to any class are remembered, so repeated lookups are resolved with a single hash
+ * lookup.
  * @author Iván Castilla Rodríguez
  */
 public class TimeFunctionFactory {
@@ -21,6 +33,18 @@ public class TimeFunctionFactory {
    **/
   protected static Map<String, Class<?>> cache;
 
+  /**
+   * Holds the constructors of the TimeFunction classes indexed by their name.
+   **/
+  protected static final Map<String, Supplier<? extends AbstractTimeFunction>> registry =
+      new ConcurrentHashMap<String, Supplier<? extends AbstractTimeFunction>>();
+
+  /**
+   * Holds the names which do not correspond to any TimeFunction class, and hence, are
+   * directly passed to the RandomVariateFactory.
+   **/
+  protected static final Set<String> notFound = ConcurrentHashMap.newKeySet();
+
   /**
    * A list of packages to search for RandomVariates if the
    * class name given is not fully qualified.
@@ -48,12 +72,22 @@ public class TimeFunctionFactory {
    * If true, print out information while searching for RandomVariate
    * Classes.
    **/
-  public static Map<String, Class<?>> getCache() { return new WeakHashMap<String, Class<?>>(cache); }
+  public static Map<String, Class<?>> getCache() { return new HashMap<String, Class<?>>(cache); }
 
   static {
     searchPackages = new LinkedHashSet<String>();
-    searchPackages.add("es.ull.iis.function");
-    cache = new WeakHashMap<String, Class<?>>();
+    searchPackages.add("es.ull.simulation.functions");
+    cache = new ConcurrentHashMap<String, Class<?>>();
+    register("ConstantFunction", () -> new ConstantFunction(0.0));
+    register(ConstantFunction.class.getName(), () -> new ConstantFunction(0.0));
+    register(LinearFunction.class);
+    register(NextHighFunction.class);
+    register(PeriodicProportionFunction.class);
+    register(PolynomialFunction.class);
+    register(RandomFunction.class);
+    register(ReplicableTimeFunction.class);
+    register(RoundFunction.class);
+    register(UniformlyDistributedSplitFunction.class);
   }
 
   /**
@@ -75,30 +109,121 @@ public class TimeFunctionFactory {
     if (className == null) {
       throw new IllegalArgumentException("null class name");
     }
-    // First check cache
-    Class<?> timeFunctionClass = cache.get(className);
-    if (timeFunctionClass == null) {
-      timeFunctionClass = findFullyQualifiedNameFor(className);
-      if (timeFunctionClass == null) {
-        // The name may be the distribution - try appending "Function"
-        timeFunctionClass = findFullyQualifiedNameFor(className + "Function");
-      }
-      // All attempts have failed, trying with RandomVariate
-      if (timeFunctionClass == null)
-        return new RandomFunction(RandomVariateFactory.getInstance(className, parameters));
+    // First check registry
+    Supplier<? extends AbstractTimeFunction> constructor = registry.get(className);
+    // Names already known not to be TimeFunctions go straight to RandomVariate. Otherwise, the class
+    // is resolved before creating any instance, so the parameters never affect the resolution
+    if (constructor == null && !notFound.contains(className)) {
+      constructor = findConstructor(className);
+      if (constructor == null)
+        notFound.add(className);
       else
-        cache.put(className, timeFunctionClass);
+        registry.put(className, constructor);
     }
+    if (constructor == null)
+      return new RandomFunction(RandomVariateFactory.getInstance(className, parameters));
+
+    final AbstractTimeFunction instance = constructor.get();
+    instance.setParameters(parameters);
+    return instance;
+  }
 
-    AbstractTimeFunction instance = null;
+  /**
+   * Returns the constructor of the TimeFunction with the specified name. If there is no such
+   * TimeFunction, the name may be the distribution, so "Function" is appended to the name.
+   * @param className The name of the TimeFunction
+   * @return The constructor of the TimeFunction, or null if the name does not correspond to any
+   * TimeFunction
+   */
+  private static Supplier<? extends AbstractTimeFunction> findConstructor(String className) {
+    Class<?> timeFunctionClass = findFullyQualifiedNameFor(className);
+    if (timeFunctionClass == null || !AbstractTimeFunction.class.isAssignableFrom(timeFunctionClass)) {
+      final Supplier<? extends AbstractTimeFunction> constructor = registry.get(className + "Function");
+      if (constructor != null)
+        return constructor;
+      timeFunctionClass = findFullyQualifiedNameFor(className + "Function");
+      if (timeFunctionClass == null || !AbstractTimeFunction.class.isAssignableFrom(timeFunctionClass))
+        return null;
+    }
+    cache.put(className, timeFunctionClass);
+    return getConstructor(timeFunctionClass);
+  }
+
+  /**
+   * Registers a TimeFunction class under its simple and its fully-qualified names. The class
+   * must define a public constructor without parameters.
+   * @param functionClass The TimeFunction class
+   * @throws IllegalArgumentException If the class does not define a public constructor without
+   * parameters.
+   */
+  public static void register(Class<? extends AbstractTimeFunction> functionClass) {
+    final Supplier<AbstractTimeFunction> constructor = getConstructor(functionClass);
+    register(functionClass.getSimpleName(), constructor);
+    register(functionClass.getName(), constructor);
+    cache.put(functionClass.getSimpleName(), functionClass);
+    cache.put(functionClass.getName(), functionClass);
+  }
+
+  /**
+   * Registers the constructor to be used to create the TimeFunction with the specified name.
+   * Replaces any constructor previously registered with the same name.
+   * @param name The name of the TimeFunction
+   * @param constructor A function that creates non-set instances of the TimeFunction.
+   * <code>setParameters</code> is invoked on every new instance.
+   */
+  public static void register(String name, Supplier<? extends AbstractTimeFunction> constructor) {
+    if (name == null || constructor == null) {
+      throw new IllegalArgumentException("null name or constructor");
+    }
+    registry.put(name, constructor);
+    notFound.remove(name);
+  }
+
+  /**
+   * Removes the constructor registered with the specified name, if any. Further lookups of the name
+   * search for a class again.
+   * @param name The name of the TimeFunction
+   */
+  public static void unregister(String name) {
+    registry.remove(name);
+    cache.remove(name);
+  }
+
+  /**
+   * Registers the TimeFunction classes declared as service providers of {@link AbstractTimeFunction}
+   * (e.g., in <code>META-INF/services/es.ull.simulation.functions.AbstractTimeFunction</code>)
+   * and visible from the context class loader. The classes are not instantiated.
+   */
+  public static void registerServices() {
+    ServiceLoader.load(AbstractTimeFunction.class).stream().forEach(provider -> register(provider.type()));
+  }
+
+  /**
+   * Returns a function that creates instances of the specified class by means of its
+   * constructor without parameters.
+   * @param theClass A TimeFunction class
+   * @return A function that creates instances of the specified class.
+   */
+  private static Supplier<AbstractTimeFunction> getConstructor(Class<?> theClass) {
+    final MethodHandle handle;
     try {
-      instance = (AbstractTimeFunction) timeFunctionClass.getDeclaredConstructor().newInstance();
+      handle = MethodHandles.publicLookup().findConstructor(theClass, MethodType.methodType(void.class))
+          .asType(MethodType.methodType(AbstractTimeFunction.class));
     }
-    catch (InstantiationException | IllegalArgumentException | IllegalAccessException | NoSuchMethodException | SecurityException | InvocationTargetException e) { 
-      throw new RuntimeException(e); 
+    catch (NoSuchMethodException | IllegalAccessException | WrongMethodTypeException | SecurityException e) {
+      throw new IllegalArgumentException(theClass + " cannot be instantiated without parameters", e);
     }
-    instance.setParameters(parameters);
-    return instance;
+    return () -> {
+      try {
+        return (AbstractTimeFunction) handle.invokeExact();
+      }
+      catch (RuntimeException | Error e) {
+        throw e;
+      }
+      catch (Throwable e) {
+        throw new RuntimeException(e);
+      }
+    };
   }
 
   /**
@@ -107,6 +232,7 @@ public class TimeFunctionFactory {
    **/
   public static void addSearchPackage(String newPackage) {
     searchPackages.add(newPackage);
+    notFound.clear();
   }
 
   /**
@@ -116,6 +242,7 @@ public class TimeFunctionFactory {
    **/
   public static void setSearchPackages(Set<String> packages) {
     searchPackages = new LinkedHashSet<String>(packages);
+    notFound.clear();
   }
 
   /**
@@ -130,7 +257,7 @@ public class TimeFunctionFactory {
   /**
    * Finds the TimeFunction Class corresponding to the given name. First
    * attempts to find the TimeFunction assuming the the name is fully qualified.
-   * Then searches the "search packages." The search path defaults to "es.ull.iis.function"
+   * Then searches the "search packages." The search path defaults to "es.ull.simulation.functions"
    * but additional search packages can be added.
    * @see #addSearchPackage(String)
    * @see #setSearchPackages(Set)
@@ -36,6 +36,15 @@ public class UniformlyDistributedSplitFunction extends AbstractTimeFunction {
     return part[index].getValue(params);
   }
 
+  @Override
+  public void getValues(double[] times, double[] out) {
+    final MutableTimeFunctionParams params = new MutableTimeFunctionParams();
+    for (int i = 0; i < times.length; i++) {
+      params.time = times[i];
+      out[i] = part[((int) (times[i] / timeUnit)) % part.length].getValue(params);
+    }
+  }
+
   /* (non-Javadoc)
    * @see es.ull.iis.function.TimeFunction#setParameters(java.lang.Object[])
    */
@@ -0,0 +1,330 @@
+package es.ull.simulation.utils;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.random.RandomGenerator;
+
+/**
+ * A thread-safe version of {@link PrioritizedTable}. Objects can be added, removed and chosen by
+ * several threads at the same time.<p>
+ * The levels are stored in a concurrent sorted map, and each level is guarded by its own lock,
+ * so threads only contend when they use the same level. Empty levels are kept, so a level is
+ * never removed while other thread is using it. The size is counted atomically.<p>
+ * The iterators are weakly consistent: each level is copied when the iterator reaches it, so
+ * they never throw {@link java.util.ConcurrentModificationException}, and they reflect the changes
+ * made to a level before the iterator reached it, but not the later ones.
+ * @author Iván Castilla Rodríguez
+ */
+public class ConcurrentPrioritizedTable<E extends Prioritizable> implements Iterable<E> {
+  /** Levels of the table, ordered by priority */
+  private final ConcurrentSkipListMap<Integer, Level<E>> levels;
+  /** Number of objects which this table contains */
+  private final AtomicInteger nObj;
+
+  /**
+   * Creates an empty table.
+   */
+  public ConcurrentPrioritizedTable() {
+    levels = new ConcurrentSkipListMap<Integer, Level<E>>();
+    nObj = new AtomicInteger(0);
+  }
+
+  /**
+   * Returns the level of a priority, creating it if it does not exist yet.
+   * @param priority The priority of the level
+   * @return The level of the priority
+   */
+  private Level<E> levelFor(int priority) {
+    final Level<E> level = levels.get(priority);
+    return (level != null) ? level : levels.computeIfAbsent(priority, p -> new Level<E>());
+  }
+
+  /**
+   * Inserts a new object in the table. The priority of the object determines its order.
+   * @param obj New object with a priority value.
+   */
+  public void add(E obj) {
+    final Level<E> level = levelFor(obj.getPriority());
+    level.lock.lock();
+    try {
+      level.objects.add(obj);
+      // Counted while holding the lock, so clear never subtracts an object not counted yet
+      nObj.incrementAndGet();
+    } finally {
+      level.lock.unlock();
+    }
+  }
+
+  /**
+   * Removes an object from the table.
+   * @param obj The object to remove
+   * @return True if the object was contained in the table
+   */
+  public boolean remove(E obj) {
+    final Level<E> level = levels.get(obj.getPriority());
+    if (level == null)
+      return false;
+    level.lock.lock();
+    try {
+      final boolean removed = level.objects.remove(obj);
+      if (removed)
+        nObj.decrementAndGet();
+      return removed;
+    } finally {
+      level.lock.unlock();
+    }
+  }
+
+  /**
+   * Removes every object of the table. Objects added by other threads while clearing the table
+   * may be kept.
+   */
+  public void clear() {
+    for (Level<E> level : levels.values()) {
+      level.lock.lock();
+      try {
+        nObj.addAndGet(-level.objects.size());
+        level.objects.clear();
+        level.objects.candidate = 0;
+      } finally {
+        level.lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Returns the next candidate object of the highest priority level which is not empty, and
+   * moves the candidate of such level to the following object, so consecutive invocations choose
+   * the objects of the level in turns.
+   * @return The next candidate object of the highest priority; null if the table is empty
+   */
+  public E nextCandidate() {
+    for (Level<E> level : levels.values()) {
+      level.lock.lock();
+      try {
+        if (!level.objects.isEmpty())
+          return level.objects.get();
+      } finally {
+        level.lock.unlock();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the next candidate object of a level, and moves the candidate of the level to the
+   * following object.
+   * @param priority The priority of the level
+   * @return The next candidate object of the level; null if the level is empty
+   */
+  public E nextCandidate(int priority) {
+    final Level<E> level = levels.get(priority);
+    if (level == null)
+      return null;
+    level.lock.lock();
+    try {
+      return level.objects.isEmpty() ? null : level.objects.get();
+    } finally {
+      level.lock.unlock();
+    }
+  }
+
+  /**
+   * Total amount of objects that this table contains. The value may be outdated if other
+   * threads are modifying the table.
+   * @return Total amount of objects contained by this table.
+   */
+  public int size() {
+    return nObj.get();
+  }
+
+  /**
+   * Returns true if the table contains no objects.
+   * @return True if the table contains no objects
+   */
+  public boolean isEmpty() {
+    return nObj.get() == 0;
+  }
+
+  public String toString() {
+    final StringBuilder str = new StringBuilder("{");
+    for (Map.Entry<Integer, Level<E>> entry : levels.entrySet()) {
+      final Object[] objects = entry.getValue().snapshot(false);
+      if (objects.length > 0) {
+        if (str.length() > 1)
+          str.append(", ");
+        str.append(entry.getKey()).append('=').append(Arrays.toString(objects));
+      }
+    }
+    return str.append('}').toString();
+  }
+
+  /**
+   * Returns a weakly consistent iterator over the table, which returns the objects of each level
+   * in the order they are stored.
+   * @return an iterator over the table
+   */
+  public Iterator<E> iterator() {
+    return new SnapshotIterator(Order.FIFO, null);
+  }
+
+  /**
+   * Returns a weakly consistent iterator over this table which starts at a different component
+   * each time a level is reached.
+   * @return A balanced iterator over this table.
+   */
+  public Iterator<E> balancedIterator() {
+    return new SnapshotIterator(Order.BALANCED, null);
+  }
+
+  /**
+   * Returns a weakly consistent iterator over this table which goes through each level randomly.
+   * Each level is shuffled with the {@link ThreadLocalRandom} of the thread which reaches it, so
+   * the iterator can be handed to another thread.
+   * @return A random iterator over this table.
+   */
+  public Iterator<E> randomIterator() {
+    return new SnapshotIterator(Order.RANDOM, null);
+  }
+
+  /**
+   * Returns a weakly consistent iterator over this table which goes through each level randomly.
+   * Using a seeded generator makes the traversal reproducible when the table is not modified.
+   * @param rng Random number generator used to shuffle each level
+   * @return A random iterator over this table.
+   */
+  public Iterator<E> randomIterator(RandomGenerator rng) {
+    return new SnapshotIterator(Order.RANDOM, rng);
+  }
+
+  /**
+   * Order in which the iterators return the objects of a level.
+   */
+  private enum Order {
+    /** Same order as the level */
+    FIFO,
+    /** Starting at the candidate of the level */
+    BALANCED,
+    /** Random order */
+    RANDOM
+  }
+
+  /**
+   * A level of the table, guarded by its own lock.
+   * @author Iván Castilla Rodríguez
+   */
+  private static final class Level<E> {
+    /** Guards the objects of the level */
+    final ReentrantLock lock = new ReentrantLock();
+    /** Objects of the level */
+    final PrioritizedLevel<E> objects = new PrioritizedLevel<E>();
+
+    /**
+     * Copies the objects of the level.
+     * @param balanced If true, the copy starts at the candidate, and the candidate is moved to
+     * the following object, as done by the balanced iterator of a {@link PrioritizedTable}.
+     * @return A copy of the objects of the level
+     */
+    Object[] snapshot(boolean balanced) {
+      lock.lock();
+      try {
+        final Object[] copy = objects.toArray();
+        final int n = copy.length;
+        if (!balanced || n == 0)
+          return copy;
+        final int first = objects.getCandidate();
+        final Object[] rotated = new Object[n];
+        System.arraycopy(copy, first, rotated, 0, n - first);
+        System.arraycopy(copy, 0, rotated, n - first, first);
+        // Next time the level will be started at the next object
+        objects.candidate = (first + 1) % n;
+        return rotated;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * A weakly consistent iterator over the table. Each level is copied when reached, and empty
+   * levels are skipped.
+   * @author Iván Castilla Rodríguez
+   */
+  private class SnapshotIterator implements Iterator<E> {
+    /** Order of the objects of each level */
+    private final Order order;
+    /**
+     * Random number generator; only used by random iterators. If null, the generator of the
+     * current thread is used
+     */
+    private final RandomGenerator rng;
+    /** Main iterator level by level of the external estructure. */
+    private final Iterator<Level<E>> outIter;
+    /** Copy of the current level */
+    private Object[] current = null;
+    /** Position of the next object in the copy of the current level */
+    private int next = 0;
+
+    /**
+     * Creates an iterator for the table.
+     * @param order Order of the objects of each level
+     * @param rng Random number generator; only used by random iterators. If null, the generator
+     * of the current thread is used
+     */
+    SnapshotIterator(Order order, RandomGenerator rng) {
+      this.order = order;
+      this.rng = rng;
+      this.outIter = levels.values().iterator();
+      advance();
+    }
+
+    /**
+     * Copies the next non-empty level, if required.
+     */
+    private void advance() {
+      while ((current == null || next == current.length) && outIter.hasNext()) {
+        current = outIter.next().snapshot(order == Order.BALANCED);
+        if (order == Order.RANDOM)
+          shuffle(current);
+        next = 0;
+      }
+    }
+
+    /**
+     * Shuffles the copy of a level.
+     * @param objects Copy of a level
+     */
+    private void shuffle(Object[] objects) {
+      final RandomGenerator rng = (this.rng == null) ? ThreadLocalRandom.current() : this.rng;
+      for (int i = objects.length - 1; i > 0; i--) {
+        final int j = rng.nextInt(i + 1);
+        final Object aux = objects[i];
+        objects[i] = objects[j];
+        objects[j] = aux;
+      }
+    }
+
+    public boolean hasNext() {
+      return current != null && next < current.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E next() {
+      if (!hasNext())
+        throw new NoSuchElementException();
+      final E obj = (E) current[next++];
+      advance();
+      return obj;
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException("Not implemented");
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package es.ull.simulation.utils;
+
+/**
+ * A stateless pseudo-random bijection of the integers in [0, n). Each index is mapped by
+ * a Feistel network over the smallest domain of an even amount of bits which contains n; indices
+ * mapped outside [0, n) are mapped again until they fall inside (cycle walking). Since the
+ * domain is at most four times n, a few rounds are usually enough.<p>
+ * No memory proportional to n is used, so it is suitable for visiting or sampling without
+ * replacement among millions of elements. This is not a cryptographic permutation.
+ * @author Iván Castilla Rodríguez
+ */
+public final class FeistelPermutation {
+  /** Amount of rounds of the Feistel network */
+  private static final int ROUNDS = 4;
+  /** Amount of elements of the permutation */
+  private final long n;
+  /** Amount of bits of each half of the domain */
+  private final int halfBits;
+  /** Mask of a half of the domain */
+  private final long halfMask;
+  /** Keys of the rounds */
+  private final long[] keys;
+
+  /**
+   * Creates a bijection of the integers in [0, n).
+   * @param n Amount of elements of the permutation
+   * @param seed Seed which determines the bijection
+   */
+  public FeistelPermutation(long n, long seed) {
+    if (n <= 0)
+      throw new IllegalArgumentException("n must be > 0");
+    this.n = n;
+    final int bits = Math.max(2, 64 - Long.numberOfLeadingZeros(n - 1));
+    halfBits = (bits + 1) / 2;
+    halfMask = (1L << halfBits) - 1;
+    keys = new long[ROUNDS];
+    long state = seed;
+    for (int i = 0; i < ROUNDS; i++) {
+      state += 0x9E3779B97F4A7C15L;
+      keys[i] = mix(state);
+    }
+  }
+
+  /**
+   * Returns the amount of elements of the permutation.
+   * @return The amount of elements of the permutation
+   */
+  public long size() {
+    return n;
+  }
+
+  /**
+   * Returns the element in position <code>index</code> of the permutation.
+   * @param index A position in [0, n)
+   * @return The element in position <code>index</code> of the permutation
+   */
+  public long apply(long index) {
+    if (index < 0 || index >= n)
+      throw new IllegalArgumentException("index must be in [0, " + n + ")");
+    long value = index;
+    do {
+      value = encrypt(value);
+    } while (Long.compareUnsigned(value, n) >= 0);
+    return value;
+  }
+
+  /**
+   * Returns the element in position <code>index</code> of the permutation, for permutations of
+   * less than 2^31 elements.
+   * @param index A position in [0, n)
+   * @return The element in position <code>index</code> of the permutation
+   */
+  public int apply(int index) {
+    return (int) apply((long) index);
+  }
+
+  /**
+   * Applies the Feistel network to a value of the domain.
+   * @param value A value of the domain
+   * @return The mapped value
+   */
+  private long encrypt(long value) {
+    long left = value >>> halfBits;
+    long right = value & halfMask;
+    for (int i = 0; i < ROUNDS; i++) {
+      final long aux = right;
+      right = (left ^ mix(right ^ keys[i])) & halfMask;
+      left = aux;
+    }
+    return (left << halfBits) | right;
+  }
+
+  /**
+   * Mixes the bits of a value (finalizer of SplitMix64).
+   * @param z The value
+   * @return The mixed value
+   */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
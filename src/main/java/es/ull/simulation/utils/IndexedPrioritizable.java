@@ -0,0 +1,21 @@
+package es.ull.simulation.utils;
+
+/**
+ * A prioritizable object which stores its position in the level of a prioritized table, so it can
+ * be removed from the level in constant time. The position is managed by the level; an object
+ * can only be fast-removed from the last level where it was added. Otherwise, it is searched.
+ * @author Iván Castilla Rodríguez
+ */
+public interface IndexedPrioritizable extends Prioritizable {
+  /**
+   * Returns the position of the object in its level.
+   * @return The position of the object in its level; -1 if unknown
+   */
+  int getLevelIndex();
+
+  /**
+   * Sets the position of the object in its level. Only to be used by the level.
+   * @param index The new position of the object in its level
+   */
+  void setLevelIndex(int index);
+}
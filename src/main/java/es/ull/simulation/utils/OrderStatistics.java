@@ -0,0 +1,830 @@
+package es.ull.simulation.utils;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Exact order statistics (the values that would be at some positions if an array were sorted) and
+ * percentiles, computed by selection (Floyd-Rivest) instead of sorting, in expected linear time.<p>
+ * Several positions are selected at once: the array is partitioned around the median requested position,
+ * and each side is then processed with the positions falling into it, so the partitions done for a
+ * position are reused for the rest. The selection is done in place, and leaves the array partially
+ * sorted: after selecting a position, no value before it is greater, and no value after it is lower.
+ * If the selection degenerates, it falls back to sorting the remaining range (as introselect does).
+ * A stable sort of values together with a companion array (such as their weights) is also provided.<p>
+ * For large arrays, {@link #parallelSortedValuesAt(double[], int...)} locates each position in parallel:
+ * a sorted sample gives two bounds that enclose the position with very high probability; a single parallel
+ * (fork/join) pass counts the values below each lower bound and equal to each bound, and collects those
+ * strictly between each pair of bounds, which are a small fraction of the array even when many values are
+ * repeated. Each position is finally either one of its bounds or selected among the collected values.<p>
+ * The percentiles follow the "nearest rank" definition used by {@link Statistics#getPercentile95CI(double[])}:
+ * the percentile <code>p</code> of <code>n</code> values is the value at position <code>ceil(n * p) - 1</code>.
+ * @author Iván Castilla Rodríguez
+ */
+public class OrderStatistics {
+  /** Size of a range above which Floyd-Rivest sampling is used to choose the pivot */
+  private static final int SAMPLING_THRESHOLD = 600;
+  /** Maximum amount of values sampled to find the bounds of a position in the parallel selection */
+  private static final int PARALLEL_SAMPLE_SIZE = 1 << 16;
+  /** Size of a range below which the merge sort uses insertion sort */
+  private static final int INSERTION_SORT_THRESHOLD = 7;
+
+  /**
+   * Rearranges the values within [from, to) so that <code>values[position]</code> is the value that
+   * would be at that position if the range were sorted. The values must not be NaN.
+   * @param values Array of values
+   * @param from First position of the range (inclusive)
+   * @param to Last position of the range (exclusive)
+   * @param position Position to select, within [from, to)
+   */
+  public static void select(double[] values, int from, int to, int position) {
+    checkRange(values.length, from, to, position);
+    floydRivest(values, from, to - 1, position, maxIterations(to - from));
+  }
+
+  /**
+   * Rearranges the values within [from, to) so that every requested position holds the value that
+   * would be at that position if the range were sorted. The values must not be NaN.
+   * @param values Array of values
+   * @param from First position of the range (inclusive)
+   * @param to Last position of the range (exclusive)
+   * @param positions Positions to select, within [from, to), in any order
+   */
+  public static void select(double[] values, int from, int to, int[] positions) {
+    final int[] sorted = sortedPositions(values.length, from, to, positions);
+    multiSelect(values, from, to - 1, sorted, 0, sorted.length - 1);
+  }
+
+  /**
+   * Returns the values that would be at the specified positions if the array were sorted with
+   * {@link Arrays#sort(double[])} (including NaN values, which go last). The array is not modified,
+   * unless it is also used as <code>scratch</code>.
+   * @param values Array of values
+   * @param scratch A buffer to work with, which is overwritten; a new one is created if null or shorter
+   * than <code>values</code>. If it is <code>values</code> itself, the selection is done in place.
+   * @param positions Positions to select, within [0, values.length)
+   * @return The values at the specified positions, in the same order as requested
+   */
+  public static double[] sortedValuesAt(double[] values, double[] scratch, int... positions) {
+    final int n = values.length;
+    final double[] work = (scratch == null || scratch.length < n) ? new double[n] : scratch;
+    if (work != values)
+      System.arraycopy(values, 0, work, 0, n);
+    // NaN values are moved to the end, as Arrays.sort does, since they cannot be compared
+    int valid = n;
+    for (int i = n - 1; i >= 0; i--) {
+      if (Double.isNaN(work[i]))
+        swap(work, i, --valid);
+    }
+    final int[] inRange = new int[positions.length];
+    int count = 0;
+    for (int position : positions) {
+      if (position < 0 || position >= n)
+        throw new IndexOutOfBoundsException("Position " + position + " out of [0, " + n + ")");
+      if (position < valid)
+        inRange[count++] = position;
+    }
+    select(work, 0, valid, Arrays.copyOf(inRange, count));
+    final double[] result = new double[positions.length];
+    for (int i = 0; i < positions.length; i++)
+      result[i] = (positions[i] < valid) ? work[positions[i]] : Double.NaN;
+    return result;
+  }
+
+  /**
+   * Returns several percentiles of the values. The array is not modified, unless it is also used as
+   * <code>scratch</code>.
+   * @param values Array of values
+   * @param scratch A buffer to work with (see {@link #sortedValuesAt(double[], double[], int...)})
+   * @param percents Percentiles to be found, in (0, 1]
+   * @return The percentiles, in the same order as requested; NaN if there are no values
+   */
+  public static double[] percentiles(double[] values, double[] scratch, double... percents) {
+    if (values.length == 0) {
+      final double[] result = new double[percents.length];
+      Arrays.fill(result, Double.NaN);
+      return result;
+    }
+    return sortedValuesAt(values, scratch, percentPositions(values.length, percents));
+  }
+
+  /**
+   * Returns the values that would be at the specified positions if the array were sorted with
+   * {@link Arrays#sort(double[])} (including NaN values, which go last), using the common fork/join pool.
+   * The array is not modified, and no copy of it is made.
+   * @param values Array of values
+   * @param positions Positions to select, within [0, values.length)
+   * @return The values at the specified positions, in the same order as requested
+   */
+  public static double[] parallelSortedValuesAt(double[] values, int... positions) {
+    final int n = values.length;
+    for (int position : positions)
+      checkRange(n, 0, n, position);
+    final double[] result = new double[positions.length];
+    if (n == 0)
+      return result;
+    final SplittableRandom rng = new SplittableRandom(n);
+    final double[] sample = new double[Math.min(n, PARALLEL_SAMPLE_SIZE)];
+    int sampleSize = 0;
+    for (int i = 0; i < sample.length; i++) {
+      final double value = values[rng.nextInt(n)];
+      if (!Double.isNaN(value))
+        sample[sampleSize++] = value;
+    }
+    Arrays.sort(sample, 0, sampleSize);
+    // The amount of NaN values is estimated from the sample; the exact one is counted later
+    final int estimatedValid = (int) Math.max(1L, (long) n * sampleSize / sample.length);
+    final double[] lows = new double[positions.length];
+    final double[] highs = new double[positions.length];
+    for (int i = 0; i < positions.length; i++) {
+      final int[] bounds = sampleBounds(sampleSize, estimatedValid, positions[i]);
+      lows[i] = (bounds[0] < 0) ? Double.NEGATIVE_INFINITY : sample[bounds[0]];
+      highs[i] = (bounds[1] >= sampleSize) ? Double.POSITIVE_INFINITY : sample[bounds[1]];
+    }
+    final DoubleBracketTask task = new DoubleBracketTask(values, lows, highs, 0, n, leafSize(n));
+    ForkJoinPool.commonPool().invoke(task);
+    final long valid = n - task.nan;
+    for (int i = 0; i < positions.length; i++) {
+      // Rank of the position among the values not lower than the lower bound, among those greater
+      // than it, and among those not lower than the upper bound
+      final long rank = positions[i] - task.below[i];
+      final long between = rank - task.equalLow[i];
+      final long above = between - task.sizes[i];
+      if (positions[i] >= valid)
+        result[i] = Double.NaN;
+      else if (rank < 0 || above >= task.equalHigh[i]) {
+        // The bounds did not enclose the position: very unlikely, but still exact
+        result[i] = sortedValuesAt(values, null, positions[i])[0];
+      }
+      else if (between < 0)
+        result[i] = lows[i];
+      else if (above < 0) {
+        select(task.candidates[i], 0, task.sizes[i], (int) between);
+        result[i] = task.candidates[i][(int) between];
+      }
+      else
+        result[i] = highs[i];
+    }
+    return result;
+  }
+
+  /**
+   * Returns the values that would be at the specified positions if the array were sorted, using the
+   * common fork/join pool. The array is not modified, and no copy of it is made.
+   * @param values Array of values
+   * @param positions Positions to select, within [0, values.length)
+   * @return The values at the specified positions, in the same order as requested
+   */
+  public static int[] parallelSortedValuesAt(int[] values, int... positions) {
+    final int n = values.length;
+    for (int position : positions)
+      checkRange(n, 0, n, position);
+    final int[] result = new int[positions.length];
+    if (n == 0)
+      return result;
+    final SplittableRandom rng = new SplittableRandom(n);
+    final int[] sample = new int[Math.min(n, PARALLEL_SAMPLE_SIZE)];
+    for (int i = 0; i < sample.length; i++)
+      sample[i] = values[rng.nextInt(n)];
+    Arrays.sort(sample);
+    // Bounds are widened to long, so that missing bounds never exclude a value
+    final long[] lows = new long[positions.length];
+    final long[] highs = new long[positions.length];
+    for (int i = 0; i < positions.length; i++) {
+      final int[] bounds = sampleBounds(sample.length, n, positions[i]);
+      lows[i] = (bounds[0] < 0) ? Long.MIN_VALUE : sample[bounds[0]];
+      highs[i] = (bounds[1] >= sample.length) ? Long.MAX_VALUE : sample[bounds[1]];
+    }
+    final IntBracketTask task = new IntBracketTask(values, lows, highs, 0, n, leafSize(n));
+    ForkJoinPool.commonPool().invoke(task);
+    for (int i = 0; i < positions.length; i++) {
+      final long rank = positions[i] - task.below[i];
+      final long between = rank - task.equalLow[i];
+      final long above = between - task.sizes[i];
+      if (rank < 0 || above >= task.equalHigh[i]) {
+        // The bounds did not enclose the position: very unlikely, but still exact
+        result[i] = sortedValuesAt(values, null, positions[i])[0];
+      }
+      else if (between < 0)
+        result[i] = (int) lows[i];
+      else if (above < 0) {
+        select(task.candidates[i], 0, task.sizes[i], (int) between);
+        result[i] = task.candidates[i][(int) between];
+      }
+      else
+        result[i] = (int) highs[i];
+    }
+    return result;
+  }
+
+  /**
+   * Returns the size of the ranges processed sequentially by the parallel selection.
+   */
+  private static int leafSize(int n) {
+    return Math.max(1 << 15, n / (8 * ForkJoinPool.getCommonPoolParallelism()));
+  }
+
+  /**
+   * Counts, for a range of an array and several pairs of bounds, the values below each lower bound and
+   * equal to each bound, and collects those strictly between each pair of bounds. NaN values are counted
+   * apart.
+   */
+  private static final class DoubleBracketTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final double[] values;
+    private final double[] lows;
+    private final double[] highs;
+    private final int from;
+    private final int to;
+    private final int leafSize;
+    /** Amount of NaN values */
+    private long nan = 0;
+    /** Amount of values below each lower bound */
+    private final long[] below;
+    /** Amount of values equal to each lower bound */
+    private final long[] equalLow;
+    /** Amount of values equal to each upper bound, unless it is also the lower bound */
+    private final long[] equalHigh;
+    /** Values strictly between each pair of bounds */
+    private final double[][] candidates;
+    /** Amount of values strictly between each pair of bounds */
+    private final int[] sizes;
+
+    private DoubleBracketTask(double[] values, double[] lows, double[] highs, int from, int to, int leafSize) {
+      this.values = values;
+      this.lows = lows;
+      this.highs = highs;
+      this.from = from;
+      this.to = to;
+      this.leafSize = leafSize;
+      below = new long[lows.length];
+      equalLow = new long[lows.length];
+      equalHigh = new long[lows.length];
+      candidates = new double[lows.length][];
+      sizes = new int[lows.length];
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= leafSize) {
+        for (int j = 0; j < lows.length; j++)
+          candidates[j] = new double[16];
+        for (int i = from; i < to; i++) {
+          final double value = values[i];
+          if (Double.isNaN(value))
+            nan++;
+          else {
+            for (int j = 0; j < lows.length; j++) {
+              if (value < lows[j])
+                below[j]++;
+              else if (value == lows[j])
+                equalLow[j]++;
+              else if (value < highs[j]) {
+                if (sizes[j] == candidates[j].length)
+                  candidates[j] = Arrays.copyOf(candidates[j], sizes[j] * 2);
+                candidates[j][sizes[j]++] = value;
+              }
+              else if (value == highs[j])
+                equalHigh[j]++;
+            }
+          }
+        }
+      }
+      else {
+        final int mid = (from + to) >>> 1;
+        final DoubleBracketTask left = new DoubleBracketTask(values, lows, highs, from, mid, leafSize);
+        final DoubleBracketTask right = new DoubleBracketTask(values, lows, highs, mid, to, leafSize);
+        invokeAll(left, right);
+        nan = left.nan + right.nan;
+        for (int j = 0; j < lows.length; j++) {
+          below[j] = left.below[j] + right.below[j];
+          equalLow[j] = left.equalLow[j] + right.equalLow[j];
+          equalHigh[j] = left.equalHigh[j] + right.equalHigh[j];
+          sizes[j] = left.sizes[j] + right.sizes[j];
+          candidates[j] = Arrays.copyOf(left.candidates[j], sizes[j]);
+          System.arraycopy(right.candidates[j], 0, candidates[j], left.sizes[j], right.sizes[j]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Counts, for a range of an array and several pairs of bounds, the values below each lower bound and
+   * equal to each bound, and collects those strictly between each pair of bounds.
+   */
+  private static final class IntBracketTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final int[] values;
+    private final long[] lows;
+    private final long[] highs;
+    private final int from;
+    private final int to;
+    private final int leafSize;
+    /** Amount of values below each lower bound */
+    private final long[] below;
+    /** Amount of values equal to each lower bound */
+    private final long[] equalLow;
+    /** Amount of values equal to each upper bound, unless it is also the lower bound */
+    private final long[] equalHigh;
+    /** Values strictly between each pair of bounds */
+    private final int[][] candidates;
+    /** Amount of values strictly between each pair of bounds */
+    private final int[] sizes;
+
+    private IntBracketTask(int[] values, long[] lows, long[] highs, int from, int to, int leafSize) {
+      this.values = values;
+      this.lows = lows;
+      this.highs = highs;
+      this.from = from;
+      this.to = to;
+      this.leafSize = leafSize;
+      below = new long[lows.length];
+      equalLow = new long[lows.length];
+      equalHigh = new long[lows.length];
+      candidates = new int[lows.length][];
+      sizes = new int[lows.length];
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= leafSize) {
+        for (int j = 0; j < lows.length; j++)
+          candidates[j] = new int[16];
+        for (int i = from; i < to; i++) {
+          final int value = values[i];
+          for (int j = 0; j < lows.length; j++) {
+            if (value < lows[j])
+              below[j]++;
+            else if (value == lows[j])
+              equalLow[j]++;
+            else if (value < highs[j]) {
+              if (sizes[j] == candidates[j].length)
+                candidates[j] = Arrays.copyOf(candidates[j], sizes[j] * 2);
+              candidates[j][sizes[j]++] = value;
+            }
+            else if (value == highs[j])
+              equalHigh[j]++;
+          }
+        }
+      }
+      else {
+        final int mid = (from + to) >>> 1;
+        final IntBracketTask left = new IntBracketTask(values, lows, highs, from, mid, leafSize);
+        final IntBracketTask right = new IntBracketTask(values, lows, highs, mid, to, leafSize);
+        invokeAll(left, right);
+        for (int j = 0; j < lows.length; j++) {
+          below[j] = left.below[j] + right.below[j];
+          equalLow[j] = left.equalLow[j] + right.equalLow[j];
+          equalHigh[j] = left.equalHigh[j] + right.equalHigh[j];
+          sizes[j] = left.sizes[j] + right.sizes[j];
+          candidates[j] = Arrays.copyOf(left.candidates[j], sizes[j]);
+          System.arraycopy(right.candidates[j], 0, candidates[j], left.sizes[j], right.sizes[j]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the positions in a sorted sample of the lower and upper bounds of a position in the whole
+   * set of values. The bounds are six standard deviations of the sampled rank away from the expected one.
+   * @param sampleSize Size of the sample
+   * @param n Amount of values
+   * @param position Position within the values
+   * @return The positions of the lower and upper bounds in the sample; they may be out of the sample,
+   * meaning that there is no bound
+   */
+  private static int[] sampleBounds(int sampleSize, int n, int position) {
+    final double expected = (double) position * sampleSize / n;
+    final double margin = 3.0 * Math.sqrt(sampleSize) + 1.0;
+    return new int[] {(int) Math.floor(expected - margin), (int) Math.ceil(expected + margin)};
+  }
+
+  /**
+   * Rearranges the values within [from, to) so that <code>values[position]</code> is the value that
+   * would be at that position if the range were sorted.
+   * @param values Array of values
+   * @param from First position of the range (inclusive)
+   * @param to Last position of the range (exclusive)
+   * @param position Position to select, within [from, to)
+   */
+  public static void select(int[] values, int from, int to, int position) {
+    checkRange(values.length, from, to, position);
+    floydRivest(values, from, to - 1, position, maxIterations(to - from));
+  }
+
+  /**
+   * Rearranges the values within [from, to) so that every requested position holds the value that
+   * would be at that position if the range were sorted.
+   * @param values Array of values
+   * @param from First position of the range (inclusive)
+   * @param to Last position of the range (exclusive)
+   * @param positions Positions to select, within [from, to), in any order
+   */
+  public static void select(int[] values, int from, int to, int[] positions) {
+    final int[] sorted = sortedPositions(values.length, from, to, positions);
+    multiSelect(values, from, to - 1, sorted, 0, sorted.length - 1);
+  }
+
+  /**
+   * Returns the values that would be at the specified positions if the array were sorted. The array
+   * is not modified, unless it is also used as <code>scratch</code>.
+   * @param values Array of values
+   * @param scratch A buffer to work with, which is overwritten; a new one is created if null or shorter
+   * than <code>values</code>. If it is <code>values</code> itself, the selection is done in place.
+   * @param positions Positions to select, within [0, values.length)
+   * @return The values at the specified positions, in the same order as requested
+   */
+  public static int[] sortedValuesAt(int[] values, int[] scratch, int... positions) {
+    final int n = values.length;
+    final int[] work = (scratch == null || scratch.length < n) ? new int[n] : scratch;
+    if (work != values)
+      System.arraycopy(values, 0, work, 0, n);
+    select(work, 0, n, positions);
+    final int[] result = new int[positions.length];
+    for (int i = 0; i < positions.length; i++)
+      result[i] = work[positions[i]];
+    return result;
+  }
+
+  /**
+   * Returns several percentiles of the values. The array is not modified, unless it is also used as
+   * <code>scratch</code>.
+   * @param values Array of values, which must not be empty
+   * @param scratch A buffer to work with (see {@link #sortedValuesAt(int[], int[], int...)})
+   * @param percents Percentiles to be found, in (0, 1]
+   * @return The percentiles, in the same order as requested
+   */
+  public static int[] percentiles(int[] values, int[] scratch, double... percents) {
+    return sortedValuesAt(values, scratch, percentPositions(values.length, percents));
+  }
+
+  /**
+   * Rearranges the values within [from, to) so that <code>values[position]</code> is the value that
+   * would be at that position if the range were sorted.
+   * @param values Array of values
+   * @param from First position of the range (inclusive)
+   * @param to Last position of the range (exclusive)
+   * @param position Position to select, within [from, to)
+   */
+  public static void select(long[] values, int from, int to, int position) {
+    checkRange(values.length, from, to, position);
+    floydRivest(values, from, to - 1, position, maxIterations(to - from));
+  }
+
+  /**
+   * Rearranges the values within [from, to) so that every requested position holds the value that
+   * would be at that position if the range were sorted.
+   * @param values Array of values
+   * @param from First position of the range (inclusive)
+   * @param to Last position of the range (exclusive)
+   * @param positions Positions to select, within [from, to), in any order
+   */
+  public static void select(long[] values, int from, int to, int[] positions) {
+    final int[] sorted = sortedPositions(values.length, from, to, positions);
+    multiSelect(values, from, to - 1, sorted, 0, sorted.length - 1);
+  }
+
+  /**
+   * Returns the values that would be at the specified positions if the array were sorted. The array
+   * is not modified, unless it is also used as <code>scratch</code>.
+   * @param values Array of values
+   * @param scratch A buffer to work with, which is overwritten; a new one is created if null or shorter
+   * than <code>values</code>. If it is <code>values</code> itself, the selection is done in place.
+   * @param positions Positions to select, within [0, values.length)
+   * @return The values at the specified positions, in the same order as requested
+   */
+  public static long[] sortedValuesAt(long[] values, long[] scratch, int... positions) {
+    final int n = values.length;
+    final long[] work = (scratch == null || scratch.length < n) ? new long[n] : scratch;
+    if (work != values)
+      System.arraycopy(values, 0, work, 0, n);
+    select(work, 0, n, positions);
+    final long[] result = new long[positions.length];
+    for (int i = 0; i < positions.length; i++)
+      result[i] = work[positions[i]];
+    return result;
+  }
+
+  /**
+   * Returns several percentiles of the values. The array is not modified, unless it is also used as
+   * <code>scratch</code>.
+   * @param values Array of values, which must not be empty
+   * @param scratch A buffer to work with (see {@link #sortedValuesAt(long[], long[], int...)})
+   * @param percents Percentiles to be found, in (0, 1]
+   * @return The percentiles, in the same order as requested
+   */
+  public static long[] percentiles(long[] values, long[] scratch, double... percents) {
+    return sortedValuesAt(values, scratch, percentPositions(values.length, percents));
+  }
+
+  /**
+   * Sorts the values within [from, to) in ascending order, and applies the same reordering to a companion
+   * array (for example, the weights of the values), without creating an object per value. The sort is
+   * stable, so equal values keep their relative order. The values must not be NaN.
+   * @param values Array of values
+   * @param companion Array whose positions go together with those of <code>values</code>
+   * @param from First position of the range (inclusive)
+   * @param to Last position of the range (exclusive)
+   */
+  public static void sort(double[] values, double[] companion, int from, int to) {
+    if (from < 0 || to > values.length || to > companion.length || from > to)
+      throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of [0, " + Math.min(values.length, companion.length) + ")");
+    if (to - from < 2)
+      return;
+    final double[] auxValues = Arrays.copyOfRange(values, from, to);
+    final double[] auxCompanion = Arrays.copyOfRange(companion, from, to);
+    mergeSort(auxValues, auxCompanion, values, companion, from, to, -from);
+  }
+
+  /**
+   * Sorts src[low + off, high + off) into dest[low, high), both arrays having the same contents in that
+   * range, together with their companion arrays (as the legacy merge sort of {@link Arrays}).
+   */
+  private static void mergeSort(double[] src, double[] srcCompanion, double[] dest, double[] destCompanion,
+      int low, int high, int off) {
+    final int length = high - low;
+    if (length < INSERTION_SORT_THRESHOLD) {
+      for (int i = low + 1; i < high; i++) {
+        for (int j = i; j > low && dest[j - 1] > dest[j]; j--) {
+          swap(dest, j, j - 1);
+          swap(destCompanion, j, j - 1);
+        }
+      }
+      return;
+    }
+    final int destLow = low;
+    final int destHigh = high;
+    low += off;
+    high += off;
+    final int mid = (low + high) >>> 1;
+    mergeSort(dest, destCompanion, src, srcCompanion, low, mid, -off);
+    mergeSort(dest, destCompanion, src, srcCompanion, mid, high, -off);
+    if (src[mid - 1] <= src[mid]) {
+      System.arraycopy(src, low, dest, destLow, length);
+      System.arraycopy(srcCompanion, low, destCompanion, destLow, length);
+      return;
+    }
+    for (int i = destLow, p = low, q = mid; i < destHigh; i++) {
+      if (q >= high || p < mid && src[p] <= src[q]) {
+        destCompanion[i] = srcCompanion[p];
+        dest[i] = src[p++];
+      }
+      else {
+        destCompanion[i] = srcCompanion[q];
+        dest[i] = src[q++];
+      }
+    }
+  }
+
+  /**
+   * Returns the positions of the percentiles of <code>n</code> values (nearest rank).
+   * @param n Amount of values
+   * @param percents Percentiles, in (0, 1]
+   * @return The positions of the percentiles
+   */
+  private static int[] percentPositions(int n, double[] percents) {
+    final int[] positions = new int[percents.length];
+    for (int i = 0; i < percents.length; i++) {
+      if (!(percents[i] > 0.0 && percents[i] <= 1.0))
+        throw new IllegalArgumentException("Percentile " + percents[i] + " out of (0, 1]");
+      positions[i] = Math.max(0, (int) Math.ceil(n * percents[i]) - 1);
+    }
+    return positions;
+  }
+
+  private static void checkRange(int length, int from, int to, int position) {
+    if (from < 0 || to > length || from > to)
+      throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of [0, " + length + ")");
+    if (position < from || position >= to)
+      throw new IndexOutOfBoundsException("Position " + position + " out of [" + from + ", " + to + ")");
+  }
+
+  /**
+   * Checks the positions and returns them sorted, without modifying the original array.
+   */
+  private static int[] sortedPositions(int length, int from, int to, int[] positions) {
+    final int[] sorted = positions.clone();
+    for (int position : sorted)
+      checkRange(length, from, to, position);
+    Arrays.sort(sorted);
+    return sorted;
+  }
+
+  /**
+   * Returns the amount of partitioning steps after which the selection of a range is considered
+   * degenerated, and the range is sorted instead.
+   */
+  private static int maxIterations(int size) {
+    return 2 * (32 - Integer.numberOfLeadingZeros(size)) + 8;
+  }
+
+  /**
+   * Selects the positions[lo..hi] (sorted) within values[left..right] (inclusive), by
+   * selecting the median position and then processing each side with the positions in it.
+   */
+  private static void multiSelect(double[] values, int left, int right, int[] positions, int lo, int hi) {
+    while (lo <= hi) {
+      final int mid = (lo + hi) >>> 1;
+      final int position = positions[mid];
+      floydRivest(values, left, right, position, maxIterations(right - left + 1));
+      // Repeated positions are already selected
+      int leftHi = mid - 1;
+      while (leftHi >= lo && positions[leftHi] == position)
+        leftHi--;
+      int rightLo = mid + 1;
+      while (rightLo <= hi && positions[rightLo] == position)
+        rightLo++;
+      multiSelect(values, left, position - 1, positions, lo, leftHi);
+      left = position + 1;
+      lo = rightLo;
+    }
+  }
+
+  private static void multiSelect(int[] values, int left, int right, int[] positions, int lo, int hi) {
+    while (lo <= hi) {
+      final int mid = (lo + hi) >>> 1;
+      final int position = positions[mid];
+      floydRivest(values, left, right, position, maxIterations(right - left + 1));
+      int leftHi = mid - 1;
+      while (leftHi >= lo && positions[leftHi] == position)
+        leftHi--;
+      int rightLo = mid + 1;
+      while (rightLo <= hi && positions[rightLo] == position)
+        rightLo++;
+      multiSelect(values, left, position - 1, positions, lo, leftHi);
+      left = position + 1;
+      lo = rightLo;
+    }
+  }
+
+  private static void multiSelect(long[] values, int left, int right, int[] positions, int lo, int hi) {
+    while (lo <= hi) {
+      final int mid = (lo + hi) >>> 1;
+      final int position = positions[mid];
+      floydRivest(values, left, right, position, maxIterations(right - left + 1));
+      int leftHi = mid - 1;
+      while (leftHi >= lo && positions[leftHi] == position)
+        leftHi--;
+      int rightLo = mid + 1;
+      while (rightLo <= hi && positions[rightLo] == position)
+        rightLo++;
+      multiSelect(values, left, position - 1, positions, lo, leftHi);
+      left = position + 1;
+      lo = rightLo;
+    }
+  }
+
+  /**
+   * Floyd-Rivest selection of values[k] within values[left..right] (inclusive). For large ranges,
+   * a sample around k is selected first to get a pivot close to the k-th value.
+   * @param budget Remaining partitioning steps before sorting the range instead
+   */
+  private static void floydRivest(double[] values, int left, int right, int k, int budget) {
+    while (right > left) {
+      if (--budget < 0) {
+        Arrays.sort(values, left, right + 1);
+        return;
+      }
+      if (right - left > SAMPLING_THRESHOLD) {
+        final int[] sample = sampleRange(left, right, k);
+        floydRivest(values, sample[0], sample[1], k, budget);
+      }
+      final double t = values[k];
+      int i = left;
+      int j = right;
+      swap(values, left, k);
+      if (values[right] > t)
+        swap(values, right, left);
+      while (i < j) {
+        swap(values, i, j);
+        i++;
+        j--;
+        while (values[i] < t)
+          i++;
+        while (values[j] > t)
+          j--;
+      }
+      if (values[left] == t)
+        swap(values, left, j);
+      else {
+        j++;
+        swap(values, j, right);
+      }
+      if (j <= k)
+        left = j + 1;
+      if (k <= j)
+        right = j - 1;
+    }
+  }
+
+  private static void floydRivest(int[] values, int left, int right, int k, int budget) {
+    while (right > left) {
+      if (--budget < 0) {
+        Arrays.sort(values, left, right + 1);
+        return;
+      }
+      if (right - left > SAMPLING_THRESHOLD) {
+        final int[] sample = sampleRange(left, right, k);
+        floydRivest(values, sample[0], sample[1], k, budget);
+      }
+      final int t = values[k];
+      int i = left;
+      int j = right;
+      swap(values, left, k);
+      if (values[right] > t)
+        swap(values, right, left);
+      while (i < j) {
+        swap(values, i, j);
+        i++;
+        j--;
+        while (values[i] < t)
+          i++;
+        while (values[j] > t)
+          j--;
+      }
+      if (values[left] == t)
+        swap(values, left, j);
+      else {
+        j++;
+        swap(values, j, right);
+      }
+      if (j <= k)
+        left = j + 1;
+      if (k <= j)
+        right = j - 1;
+    }
+  }
+
+  private static void floydRivest(long[] values, int left, int right, int k, int budget) {
+    while (right > left) {
+      if (--budget < 0) {
+        Arrays.sort(values, left, right + 1);
+        return;
+      }
+      if (right - left > SAMPLING_THRESHOLD) {
+        final int[] sample = sampleRange(left, right, k);
+        floydRivest(values, sample[0], sample[1], k, budget);
+      }
+      final long t = values[k];
+      int i = left;
+      int j = right;
+      swap(values, left, k);
+      if (values[right] > t)
+        swap(values, right, left);
+      while (i < j) {
+        swap(values, i, j);
+        i++;
+        j--;
+        while (values[i] < t)
+          i++;
+        while (values[j] > t)
+          j--;
+      }
+      if (values[left] == t)
+        swap(values, left, j);
+      else {
+        j++;
+        swap(values, j, right);
+      }
+      if (j <= k)
+        left = j + 1;
+      if (k <= j)
+        right = j - 1;
+    }
+  }
+
+  /**
+   * Returns the subrange of values[left..right] that most likely contains the k-th value, whose
+   * selection provides a good pivot (Floyd and Rivest, 1975).
+   */
+  private static int[] sampleRange(int left, int right, int k) {
+    final double n = right - left + 1;
+    final double i = k - left + 1;
+    final double z = Math.log(n);
+    final double s = 0.5 * Math.exp(2.0 * z / 3.0);
+    final double sd = 0.5 * Math.sqrt(z * s * (n - s) / n) * Math.signum(i - n / 2.0);
+    final int newLeft = Math.max(left, (int) (k - i * s / n + sd));
+    final int newRight = Math.min(right, (int) (k + (n - i) * s / n + sd));
+    return new int[] {newLeft, newRight};
+  }
+
+  private static void swap(double[] values, int i, int j) {
+    final double aux = values[i];
+    values[i] = values[j];
+    values[j] = aux;
+  }
+
+  private static void swap(int[] values, int i, int j) {
+    final int aux = values[i];
+    values[i] = values[j];
+    values[j] = aux;
+  }
+
+  private static void swap(long[] values, int i, int j) {
+    final long aux = values[i];
+    values[i] = values[j];
+    values[j] = aux;
+  }
+}
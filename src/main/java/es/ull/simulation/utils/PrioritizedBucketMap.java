@@ -0,0 +1,281 @@
+package es.ull.simulation.utils;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An structure which contains a priority-ordered map, intended for small and bounded priorities.
+ * Objects with the same priority are located in the same level of the structure, as in a
+ * {@link PrioritizedMap}, but the levels are stored in an array indexed by priority, where 0
+ * is the highest priority.<p>
+ * A bitmap marks the levels which are not empty, so adding and removing objects, and finding the
+ * first non-empty level, take constant time and do not box the priorities. Empty levels are
+ * kept, so they are reused when new objects with the same priority are added.
+ * @author Iván Castilla Rodríguez
+ */
+public abstract class PrioritizedBucketMap<T extends Collection<E>,
+                                           E extends Prioritizable> implements Iterable<E> {
+  /** Maximum amount of priority levels */
+  public static final int MAX_LEVELS = 64 * 64;
+  /** Array of priority levels. A level is created the first time an object with such priority is added. */
+  protected final T[] levels;
+  /** Bitmap of non-empty levels. Bit <code>i % 64</code> of word <code>i / 64</code> is set if
+   * level <code>i</code> is not empty */
+  private final long[] nonEmpty;
+  /** Bit <code>i</code> is set if word <code>i</code> of the bitmap of non-empty levels is not zero */
+  private long nonEmptyWords;
+  /** Number of objects which this table contains. This value is updated when an object
+   * is added or removed. */
+  private int nObj;
+
+  /**
+   * Creates a map for priorities from 0 to <code>maxPriority</code>.
+   * @param maxPriority Lowest priority (highest value) allowed
+   */
+  @SuppressWarnings("unchecked")
+  public PrioritizedBucketMap(int maxPriority) {
+    if (maxPriority < 0 || maxPriority >= MAX_LEVELS)
+      throw new IllegalArgumentException("maxPriority must be in [0, " + (MAX_LEVELS - 1) + "]");
+    levels = (T[]) new Collection<?>[maxPriority + 1];
+    nonEmpty = new long[(maxPriority >>> 6) + 1];
+    nObj = 0;
+  }
+
+  /**
+   * Returns the level of a priority, creating it if it does not exist yet.
+   * @param priority The priority of the level
+   * @return The level of the priority
+   */
+  private T levelFor(int priority) {
+    if (priority < 0 || priority >= levels.length)
+      throw new IllegalArgumentException("Priority " + priority + " out of [0, " + (levels.length - 1) + "]");
+    T level = levels[priority];
+    if (level == null) {
+      level = createLevel(priority);
+      levels[priority] = level;
+    }
+    return level;
+  }
+
+  /**
+   * Inserts a new object in the table. The priority of the object determines its order.
+   * @param obj New object with a priority value.
+   * @throws IllegalArgumentException If the priority of the object is out of the bounds of this map
+   */
+  public void add(E obj) {
+    final int priority = obj.getPriority();
+    final T level = levelFor(priority);
+    level.add(obj);
+    nonEmpty[priority >>> 6] |= 1L << priority;
+    nonEmptyWords |= 1L << (priority >>> 6);
+    nObj++;
+  }
+
+  /**
+   * Removes every object of the table. The levels are kept.
+   */
+  public void clear() {
+    for (T level : levels) {
+      if (level != null)
+        level.clear();
+    }
+    for (int i = 0; i < nonEmpty.length; i++)
+      nonEmpty[i] = 0L;
+    nonEmptyWords = 0L;
+    nObj = 0;
+  }
+
+  /**
+   * Removes an object from the table. If the level of the object becomes empty, the level is
+   * kept to be reused.
+   * @param obj The object to remove
+   * @return True if the object was contained in the table
+   */
+  public boolean remove(E obj) {
+    final int priority = obj.getPriority();
+    if (priority < 0 || priority >= levels.length)
+      return false;
+    final T level = levels[priority];
+    if (level == null || !level.remove(obj))
+      return false;
+    if (level.isEmpty()) {
+      final int word = priority >>> 6;
+      nonEmpty[word] &= ~(1L << priority);
+      if (nonEmpty[word] == 0L)
+        nonEmptyWords &= ~(1L << word);
+    }
+    nObj--;
+    return true;
+  }
+
+  /**
+   * Creates a new level of the map.
+   * @param priority The priority of the objects of the level
+   * @return A new empty level
+   */
+  public abstract T createLevel(int priority);
+
+  /**
+   * Returns the level of a priority.
+   * @param priority The priority of the level
+   * @return The level of the priority; null if no object with such priority has ever been added
+   */
+  public T getLevel(int priority) {
+    return (priority < 0 || priority >= levels.length) ? null : levels[priority];
+  }
+
+  /**
+   * Returns the highest priority (lowest value) of the objects of the table.
+   * @return The highest priority of the objects of the table; -1 if the table is empty
+   */
+  public int firstPriority() {
+    if (nonEmptyWords == 0L)
+      return -1;
+    final int word = Long.numberOfTrailingZeros(nonEmptyWords);
+    return (word << 6) + Long.numberOfTrailingZeros(nonEmpty[word]);
+  }
+
+  /**
+   * Returns the level with the highest priority which is not empty.
+   * @return The level with the highest priority which is not empty; null if the table is empty
+   */
+  public T firstLevel() {
+    final int priority = firstPriority();
+    return (priority == -1) ? null : levels[priority];
+  }
+
+  /**
+   * Returns the highest priority (lowest value) of the objects of the table which is equal or
+   * lower than <code>priority</code>.
+   * @param priority The first priority to check
+   * @return The first priority, starting at <code>priority</code>, with objects in the table;
+   * -1 if there are none.
+   */
+  public int nextPriority(int priority) {
+    if (priority < 0)
+      priority = 0;
+    if (priority >= levels.length)
+      return -1;
+    int word = priority >>> 6;
+    final long bits = nonEmpty[word] & (-1L << priority);
+    if (bits != 0L)
+      return (word << 6) + Long.numberOfTrailingZeros(bits);
+    // Shifting by 64 does not clear the bits, so the last word is checked apart
+    if (word == 63)
+      return -1;
+    final long words = nonEmptyWords & (-1L << (word + 1));
+    if (words == 0L)
+      return -1;
+    word = Long.numberOfTrailingZeros(words);
+    return (word << 6) + Long.numberOfTrailingZeros(nonEmpty[word]);
+  }
+
+  /**
+   * Total amount of objects that this table contains.
+   * @return Total amount of objects contained by this table.
+   */
+  public int size() {
+    return nObj;
+  }
+
+  public String toString() {
+    final StringBuilder str = new StringBuilder("{");
+    for (int priority = nextPriority(0); priority != -1; priority = nextPriority(priority + 1)) {
+      if (str.length() > 1)
+        str.append(", ");
+      str.append(priority).append('=').append(levels[priority]);
+    }
+    return str.append('}').toString();
+  }
+
+  /**
+   * Returns an iterator over the non-empty levels of the table, from the highest priority to the lowest.
+   * @return An iterator over the non-empty levels of the table
+   */
+  protected Iterator<T> levelIterator() {
+    return new LevelIterator();
+  }
+
+  /**
+   * Returns an iterator over the table
+   * @return an iterator over the table
+   */
+  public Iterator<E> iterator() {
+    return new FIFOIterator();
+  }
+
+  /**
+   * An iterator over the non-empty levels of the map, which uses the bitmap to skip the
+   * empty levels.
+   * @author Iván Castilla Rodríguez
+   */
+  private class LevelIterator implements Iterator<T> {
+    /** Priority of the next level */
+    private int next;
+
+    /**
+     * Creates an iterator over the levels of the map.
+     */
+    public LevelIterator() {
+      next = firstPriority();
+    }
+
+    public boolean hasNext() {
+      return next != -1;
+    }
+
+    public T next() {
+      if (next == -1)
+        throw new NoSuchElementException();
+      final T level = levels[next];
+      next = nextPriority(next + 1);
+      return level;
+    }
+  }
+
+  /**
+   * An iterator that allows the programmer to traverse the prioritized map. A
+   * <code>FIFOIterator</code> starts at the highest priority and returns a new object of this
+   * level each time <code>next</code> is called. When the iterator reaches the end of the level,
+   * it starts the next non-empty level.
+   * @author Iván Castilla Rodríguez
+   */
+  protected class FIFOIterator implements Iterator<E> {
+    /** Main iterator level by level of the external estructure. */
+    final private Iterator<T> outIter;
+    /** Minor iterator object by object of each level. */
+    private Iterator<E> inIter = null;
+
+    /**
+     * Creates an iterator for the table.
+     */
+    public FIFOIterator() {
+      outIter = levelIterator();
+      if (outIter.hasNext()) {
+        inIter = outIter.next().iterator();
+      }
+    }
+
+    public E next() {
+      if (inIter == null)
+        throw new NoSuchElementException();
+      E obj = inIter.next();
+      if (!inIter.hasNext()) {
+        if (outIter.hasNext())
+          inIter = outIter.next().iterator();
+        else
+          inIter = null;
+      }
+      return obj;
+    }
+
+    public boolean hasNext() {
+      return inIter != null && inIter.hasNext();
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException("Not implemented");
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package es.ull.simulation.utils;
+
+import java.util.Iterator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * A {@link PrioritizedTable} for small and bounded priorities, whose levels are stored in an
+ * array indexed by priority (see {@link PrioritizedBucketMap}). It provides the same iterators
+ * as a {@link PrioritizedTable}.
+ * @author Iván Castilla Rodríguez
+ */
+public class PrioritizedBucketTable<E extends Prioritizable>
+    extends PrioritizedBucketMap<PrioritizedLevel<E>, E> {
+
+  /**
+   * Creates a table for priorities from 0 to <code>maxPriority</code>.
+   * @param maxPriority Lowest priority (highest value) allowed
+   */
+  public PrioritizedBucketTable(int maxPriority) {
+    super(maxPriority);
+  }
+
+  @Override
+  public PrioritizedLevel<E> createLevel(int priority) {
+    return new PrioritizedLevel<E>();
+  }
+
+  /**
+   * Returns an iterator over this table which starts at a different component each time a level
+   * is reached.
+   * @return A balanced iterator over this table.
+   */
+  public Iterator<E> balancedIterator() {
+    return new PrioritizedTable.BalancedIterator<E>(levelIterator());
+  }
+
+  /**
+   * Returns an iterator over this table which goes through each level randomly. The permutations
+   * are built with the {@link ThreadLocalRandom} of the thread which calls <code>next</code>.
+   * @return A random iterator over this table.
+   */
+  public Iterator<E> randomIterator() {
+    return new PrioritizedTable.RandomIterator<E>(this::levelIterator, null);
+  }
+
+  /**
+   * Returns an iterator over this table which goes through each level randomly, and which can
+   * be reset and reused (see {@link PrioritizedTable#randomIterator(RandomGenerator)}).
+   * @param rng Random number generator used to build the permutations
+   * @return A reusable random iterator over this table.
+   */
+  public ResettableIterator<E> randomIterator(RandomGenerator rng) {
+    return new PrioritizedTable.RandomIterator<E>(this::levelIterator, rng);
+  }
+}
@@ -0,0 +1,123 @@
+package es.ull.simulation.utils;
+
+import java.util.ArrayList;
+
+/**
+ * A level of the prioritized map. All the objects belonging to a level have
+ * the same priority. A level stores a value with the index of the next candidate
+ * object.<p>
+ * {@link IndexedPrioritizable} objects are removed in constant time by moving another object
+ * to their position, so the order of the level is not kept. The objects already chosen in the
+ * current round are kept before the candidate, so every object is still chosen once per round.
+ * @author Iván Castilla Rodríguez
+ */
+class PrioritizedLevel<E> extends ArrayList<E> {
+  private static final long serialVersionUID = 1L;
+  /** Next object that can be chosen. */
+  protected int candidate;
+
+  /**
+   * Creates a new level
+   */
+  PrioritizedLevel() {
+    super();
+    candidate = 0;
+  }
+
+  /**
+   * Returns the next candidate object in the this level. This method also increases
+   * the value of the <code>candidate</code> object.
+   * @return The next object chosen in the this level.
+   */
+  public E get() {
+    return get(candidate);
+  }
+
+  /**
+   * Returns the object with the specified index in the this level. This method also increases
+   * the value of the <code>candidate</code> object.
+   * @param index Index of the objecdt to return
+   * @return The object in position <code>index</code> in the this level.
+   */
+  public E get(int index) {
+    E obj = super.get(index);
+    candidate = (index + 1) % size();
+    return obj;
+  }
+
+  @Override
+  public boolean add(E obj) {
+    super.add(obj);
+    setIndex(obj, size() - 1);
+    return true;
+  }
+
+  public E remove(int index) {
+    E obj = super.remove(index);
+    setIndex(obj, -1);
+    // The following objects have been shifted
+    for (int i = index; i < size(); i++)
+      setIndex(super.get(i), i);
+    candidate = (size() == 0)? 0: index % size();
+    return obj;
+  }
+
+  @Override
+  public boolean remove(Object obj) {
+    if (!(obj instanceof IndexedPrioritizable))
+      return super.remove(obj);
+    int index = ((IndexedPrioritizable) obj).getLevelIndex();
+    // The index is only trusted if it points to the object
+    if (index < 0 || index >= size() || super.get(index) != obj) {
+      index = indexOf(obj);
+      if (index == -1)
+        return false;
+    }
+    final int last = size() - 1;
+    if (index < candidate) {
+      // The last chosen object fills the gap, and the last object takes its place, so it is still
+      // pending to be chosen
+      move(candidate - 1, index);
+      move(last, candidate - 1);
+      candidate--;
+    }
+    else {
+      move(last, index);
+    }
+    super.remove(last);
+    ((IndexedPrioritizable) obj).setLevelIndex(-1);
+    if (candidate >= size())
+      candidate = 0;
+    return true;
+  }
+
+  /**
+   * Moves an object to a different position of this level, overwriting the object in that position.
+   * @param from Current position of the object
+   * @param to New position of the object
+   */
+  private void move(int from, int to) {
+    if (from != to) {
+      final E obj = super.get(from);
+      set(to, obj);
+      setIndex(obj, to);
+    }
+  }
+
+  /**
+   * Stores the position of an object if it is an {@link IndexedPrioritizable}.
+   * @param obj The object
+   * @param index The position of the object in this level
+   */
+  private static void setIndex(Object obj, int index) {
+    if (obj instanceof IndexedPrioritizable)
+      ((IndexedPrioritizable) obj).setLevelIndex(index);
+  }
+
+  /**
+   * @return Returns the index of next object that can be chosen.
+   */
+  public int getCandidate() {
+    return candidate;
+  }
+}
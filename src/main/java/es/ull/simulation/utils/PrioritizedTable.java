@@ -1,61 +1,10 @@
 package es.ull.simulation.utils;
 
-import java.util.ArrayList;
 import java.util.Iterator;
-
-/**
- * A level of the prioritized map. All the objects belonging to a level have
- * the same priority. A level stores a value with the index of the next candidate
- * object.
- * @author Iván Castilla Rodríguez
- */
-class PrioritizedLevel<E> extends ArrayList<E> {
-  private static final long serialVersionUID = 1L;
-  /** Next object that can be chosen. */
-  protected int candidate;
-
-  /**
-   * Creates a new level
-   */
-  PrioritizedLevel() {
-    super();
-    candidate = 0;
-  }
-
-  /**
-   * Returns the next candidate object in the this level. This method also increases
-   * the value of the <code>candidate</code> object.
-   * @return The next object chosen in the this level.
-   */
-  public E get() {
-    return get(candidate);
-  }
-
-  /**
-   * Returns the object with the specified index in the this level. This method also increases
-   * the value of the <code>candidate</code> object.
-   * @param index Index of the objecdt to return
-   * @return The object in position <code>index</code> in the this level.
-   */
-  public E get(int index) {
-    E obj = super.get(index);
-    candidate = (index + 1) % size();
-    return obj;
-  }
-
-  public E remove(int index) {
-    E obj = super.remove(index);
-    candidate = (size() == 0)? 0: index % size();
-    return obj;
-  }
-
-  /**
-   * @return Returns the index of next object that can be chosen.
-   */
-  public int getCandidate() {
-    return candidate;
-  }
-}
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
 
 /**
  * An structure which contains a priority-ordered list. Objects with the same priority are
@@ -85,15 +34,28 @@ public class PrioritizedTable<E extends Prioritizable>
    * @return A balanced iterator over this table.
    */
   public Iterator<E> balancedIterator() {
-    return new BalancedIterator();
+    return new BalancedIterator<E>(levels.values().iterator());
   }
 
   /**
-   * Returns an iterator over this table which goes through each level randomly.
+   * Returns an iterator over this table which goes through each level randomly. The permutations
+   * are built with the {@link ThreadLocalRandom} of the thread which calls <code>next</code>.
    * @return A random iterator over this table.
    */
   public Iterator<E> randomIterator() {
-    return new RandomIterator();
+    return new RandomIterator<E>(() -> levels.values().iterator(), null);
+  }
+
+  /**
+   * Returns an iterator over this table which goes through each level randomly. The iterator
+   * can be reset and reused to traverse the table again without allocating memory for the
+   * permutations. Using a seeded generator makes the traversal reproducible. Both the iterator
+   * and the generator are intended to be used by a single thread.
+   * @param rng Random number generator used to build the permutations
+   * @return A reusable random iterator over this table.
+   */
+  public ResettableIterator<E> randomIterator(RandomGenerator rng) {
+    return new RandomIterator<E>(() -> levels.values().iterator(), rng);
   }
 
   /**
@@ -103,7 +65,7 @@ public class PrioritizedTable<E extends Prioritizable>
    * second time, it is the 1st component, and so on.
    * @author Iván Castilla Rodríguez
    */
-  private class BalancedIterator implements Iterator<E> {
+  static class BalancedIterator<E> implements Iterator<E> {
     /** Main iterator level by level of the external estructure. */
     private Iterator<PrioritizedLevel<E>> outIter;
     /** The current level being visited */
@@ -114,9 +76,10 @@ public class PrioritizedTable<E extends Prioritizable>
 
     /**
      * Creates an iterator for the prioritized table.
+     * @param outIter Iterator over the non-empty levels of the table
      */
-    public BalancedIterator() {
-      outIter = levels.values().iterator();
+    BalancedIterator(Iterator<PrioritizedLevel<E>> outIter) {
+      this.outIter = outIter;
       if (outIter.hasNext()) {
         currentLevel = outIter.next();
         nObjects = currentLevel.size();
@@ -161,28 +124,66 @@ public class PrioritizedTable<E extends Prioritizable>
    * An iterator for pools that allows the programmer to randomly traverse the prioritized map.
    * A <code>RandomIterator</code> starts at level 0 (the highest priority) and returns a new
    * object of this level each time <code>next</code> is called in a random way. The order the
-   * objects of a level are returned is determined by a random permutation.
-   * When the iterator reaches the end of the level, it starts the next level.
+   * objects of a level are returned is determined by a random permutation, which is built step
+   * by step (Fisher-Yates) each time <code>next</code> is called.
+   * When the iterator reaches the end of the level, it starts the next level.<p>
+   * The buffer which stores the permutation is reused among levels and among traversals, so the
+   * iterator does not allocate memory when it is reset to traverse the table again, unless a
+   * level has grown beyond any previous level.
    * @author Iván Castilla Rodríguez
    */
-  private class RandomIterator implements Iterator<E> {
+  static class RandomIterator<E> implements ResettableIterator<E> {
+    /** Source of the iterators level by level of the external structure */
+    private final Supplier<Iterator<PrioritizedLevel<E>>> levelSource;
+    /** Random number generator. If null, the generator of the current thread is used */
+    private final RandomGenerator rng;
     /** Main iterator level by level of the external estructure. */
     private Iterator<PrioritizedLevel<E>> outIter;
     /** The current level being visited */
     private PrioritizedLevel<E> currentLevel = null;
-    /** Visit order for this level. */
-    private int []order;
+    /** Visit order for this level. Only the first <code>nObjects</code> positions are used */
+    private int []order = new int[0];
+    /** Number of objects of the current level */
+    private int nObjects = 0;
     /** Current object. */
     private int current = 0;
 
     /**
      * Creates a random iterator for the prioritized table.
+     * @param levelSource Returns an iterator over the non-empty levels of the table each time
+     * the iterator is reset
+     * @param rng Random number generator used to build the permutations. If null, the generator
+     * of the current thread is used
      */
-    public RandomIterator() {
-      outIter = levels.values().iterator();
-      if (outIter.hasNext()) {
-        currentLevel = outIter.next();
-        order = RandomPermutation.nextPermutation(currentLevel.size());
+    RandomIterator(Supplier<Iterator<PrioritizedLevel<E>>> levelSource, RandomGenerator rng) {
+      this.levelSource = levelSource;
+      this.rng = rng;
+      reset();
+    }
+
+    @Override
+    public void reset() {
+      outIter = levelSource.get();
+      nextLevel();
+    }
+
+    /**
+     * Starts the next non-empty level, if any.
+     */
+    private void nextLevel() {
+      currentLevel = null;
+      while (currentLevel == null && outIter.hasNext()) {
+        final PrioritizedLevel<E> level = outIter.next();
+        if (!level.isEmpty())
+          currentLevel = level;
+      }
+      if (currentLevel != null) {
+        nObjects = currentLevel.size();
+        if (order.length < nObjects)
+          order = new int[Math.max(nObjects, 2 * order.length)];
+        for (int i = 0; i < nObjects; i++)
+          order[i] = i;
+        current = 0;
       }
     }
 
@@ -192,24 +193,25 @@ public class PrioritizedTable<E extends Prioritizable>
      * @return The next object of the prioritized map.
      */
     public E next() {
+      if (!hasNext())
+        throw new NoSuchElementException();
+      // Chooses randomly among the objects not visited yet
+      final RandomGenerator rng = (this.rng == null) ? ThreadLocalRandom.current() : this.rng;
+      final int chosen = current + rng.nextInt(nObjects - current);
+      final int index = order[chosen];
+      order[chosen] = order[current];
+      order[current++] = index;
       // Next object of the current level
-      E obj = currentLevel.get(order[current++]);
+      E obj = currentLevel.get(index);
       // The level has been finished
-      if (current == order.length) {
-        if (outIter.hasNext()) {
-          currentLevel = outIter.next();
-          order = RandomPermutation.nextPermutation(currentLevel.size());
-          current = 0;
-        }
-        else
-          currentLevel = null;
-      }
+      if (current == nObjects)
+        nextLevel();
       return obj;
     }
 
     public boolean hasNext() {
       if (currentLevel != null)
-        if (current < order.length)
+        if (current < nObjects)
           return true;
       return false;
     }
@@ -219,4 +221,3 @@ public class PrioritizedTable<E extends Prioritizable>
     }
   }
 }
-
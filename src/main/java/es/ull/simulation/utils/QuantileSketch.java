@@ -0,0 +1,430 @@
+package es.ull.simulation.utils;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.DoubleConsumer;
+
+/**
+ * A streaming quantile sketch (KLL, Karnin, Lang and Liberty) that approximates the percentiles of a
+ * set of values using bounded memory, so the values do not need to be stored nor sorted.<p>
+ * The values are kept in a hierarchy of compactors: when a level is full, it is sorted and half of
+ * its values (every other value, starting at a random offset) are promoted to the next level, where
+ * they count twice. The amount of retained values is about <code>3 * k</code>, whatever the amount of
+ * values added, and the rank error decreases as <code>k</code> increases (about 1.3% for k = 200, the
+ * default). While no compaction has taken place, the percentiles are exact and match those of
+ * {@link Statistics#getPercentile95CI(double[])}.<p>
+ * Sketches filled in different threads or replications can be combined with {@link #merge(QuantileSketch)}.
+ * This class is not thread-safe; each thread must use its own sketch. It can be used to collect a stream:<br>
+ * <code>stream.collect(QuantileSketch::new, QuantileSketch::accept, QuantileSketch::merge)</code>
+ * @author Iván Castilla Rodríguez
+ */
+public class QuantileSketch implements DoubleConsumer {
+  /** Default accuracy parameter */
+  public static final int DEFAULT_K = 200;
+  /** Minimum capacity of a level */
+  private static final int MIN_LEVEL_CAPACITY = 2;
+  /** Ratio among the capacities of consecutive levels */
+  private static final double CAPACITY_RATIO = 2.0 / 3.0;
+  /** Accuracy parameter: capacity of the highest level */
+  private final int k;
+  /** Random generator to choose the values promoted when compacting */
+  private final SplittableRandom rng;
+  /** Values retained at each level; a value at level h has weight 2^h */
+  private double[][] levels;
+  /** Amount of values retained at each level */
+  private int[] sizes;
+  /** Amount of levels in use */
+  private int nLevels;
+  /** Capacity of each level, given the current amount of levels */
+  private int[] capacities;
+  /** Sum of the capacities of all the levels */
+  private int totalCapacity;
+  /** Amount of values retained among all the levels */
+  private int retained;
+  /** Amount of values added */
+  private long n = 0;
+  /** Minimum value */
+  private double min = Double.POSITIVE_INFINITY;
+  /** Maximum value */
+  private double max = Double.NEGATIVE_INFINITY;
+  /** Retained values sorted, together with their cumulative weights; null if outdated */
+  private double[] sortedValues = null;
+  /** Cumulative weight of each value in {@link #sortedValues} */
+  private long[] cumWeights = null;
+
+  /**
+   * Creates an empty sketch with the default accuracy.
+   */
+  public QuantileSketch() {
+    this(DEFAULT_K);
+  }
+
+  /**
+   * Creates an empty sketch.
+   * @param k Accuracy parameter; the higher, the more accurate and the more memory used
+   */
+  public QuantileSketch(int k) {
+    this(k, new SplittableRandom());
+  }
+
+  /**
+   * Creates an empty sketch whose compactions are reproducible.
+   * @param k Accuracy parameter; the higher, the more accurate and the more memory used
+   * @param seed Seed of the random generator used when compacting
+   */
+  public QuantileSketch(int k, long seed) {
+    this(k, new SplittableRandom(seed));
+  }
+
+  private QuantileSketch(int k, SplittableRandom rng) {
+    if (k < MIN_LEVEL_CAPACITY * 4)
+      throw new IllegalArgumentException("The accuracy parameter must be at least " + (MIN_LEVEL_CAPACITY * 4));
+    this.k = k;
+    this.rng = rng;
+    clear();
+  }
+
+  /**
+   * Adds a value. NaN values are ignored.
+   * @param value The new value
+   */
+  public void add(double value) {
+    if (Double.isNaN(value))
+      return;
+    if (value < min)
+      min = value;
+    if (value > max)
+      max = value;
+    n++;
+    append(0, value);
+    if (retained >= totalCapacity)
+      compress();
+    sortedValues = null;
+  }
+
+  @Override
+  public void accept(double value) {
+    add(value);
+  }
+
+  /**
+   * Adds a set of values.
+   * @param values Set of values.
+   */
+  public void addAll(double[] values) {
+    for (double value : values)
+      add(value);
+  }
+
+  /**
+   * Adds a set of values.
+   * @param values Set of values.
+   */
+  public void addAll(int[] values) {
+    for (int value : values)
+      add(value);
+  }
+
+  /**
+   * Adds the values summarized by other sketch, which is not modified unless it is this sketch. The
+   * accuracy of the result is that of the less accurate sketch.
+   * @param other Other sketch
+   */
+  public void merge(QuantileSketch other) {
+    if (other.n == 0)
+      return;
+    // The levels are read from a copy of their references and sizes, since appending to this sketch
+    // would otherwise keep growing the levels being read when merging a sketch with itself
+    final int otherLevels = other.nLevels;
+    final int[] otherSizes = Arrays.copyOf(other.sizes, otherLevels);
+    final double[][] otherValues = Arrays.copyOf(other.levels, otherLevels);
+    for (int h = 0; h < otherLevels; h++) {
+      for (int i = 0; i < otherSizes[h]; i++)
+        append(h, otherValues[h][i]);
+    }
+    n += other.n;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+    if (retained >= totalCapacity)
+      compress();
+    sortedValues = null;
+  }
+
+  /**
+   * Removes every value.
+   */
+  public void clear() {
+    levels = new double[1][MIN_LEVEL_CAPACITY];
+    sizes = new int[1];
+    nLevels = 1;
+    updateCapacities();
+    retained = 0;
+    n = 0;
+    min = Double.POSITIVE_INFINITY;
+    max = Double.NEGATIVE_INFINITY;
+    sortedValues = null;
+  }
+
+  /**
+   * Returns the accuracy parameter.
+   * @return The accuracy parameter
+   */
+  public int getK() {
+    return k;
+  }
+
+  /**
+   * Returns the amount of values added.
+   * @return The amount of values added
+   */
+  public long getN() {
+    return n;
+  }
+
+  /**
+   * Returns the amount of values currently stored by the sketch.
+   * @return The amount of values currently stored by the sketch
+   */
+  public int getRetained() {
+    return retained;
+  }
+
+  /**
+   * Returns true if the sketch has not discarded any value, and hence its percentiles are exact.
+   * @return True if the percentiles are exact
+   */
+  public boolean isExact() {
+    return nLevels == 1;
+  }
+
+  /**
+   * Returns the minimum value.
+   * @return The minimum value; NaN if there are no values
+   */
+  public double getMin() {
+    return (n == 0) ? Double.NaN : min;
+  }
+
+  /**
+   * Returns the maximum value.
+   * @return The maximum value; NaN if there are no values
+   */
+  public double getMax() {
+    return (n == 0) ? Double.NaN : max;
+  }
+
+  /**
+   * Returns the (approximate) value whose rank is the specified one, that is, the value that would be
+   * at position <code>rank - 1</code> if all the values were sorted.
+   * @param rank Rank of the value, from 1 to {@link #getN()}
+   * @return The value with the specified rank; NaN if there are no values
+   */
+  public double getValueAtRank(long rank) {
+    if (n == 0)
+      return Double.NaN;
+    if (rank <= 1)
+      return min;
+    if (rank >= n)
+      return max;
+    updateSortedView();
+    int pos = Arrays.binarySearch(cumWeights, rank);
+    if (pos < 0)
+      pos = -pos - 1;
+    return sortedValues[Math.min(pos, sortedValues.length - 1)];
+  }
+
+  /**
+   * Returns the (approximate) percentile of the values, as the smallest value such that at least
+   * a fraction <code>percent</code> of the values are lower or equal to it.
+   * @param percent Percentile to be found, in (0, 1]
+   * @return The percentile; NaN if there are no values or the percentile is not valid
+   */
+  public double getQuantile(double percent) {
+    if (percent <= 0.0 || percent > 1.0)
+      return Double.NaN;
+    return getValueAtRank((long) Math.ceil(n * percent));
+  }
+
+  /**
+   * Returns several (approximate) percentiles of the values (see {@link #getQuantile(double)}).
+   * @param percents Percentiles to be found, in (0, 1]
+   * @return The percentiles, in the same order as requested
+   */
+  public double[] getQuantiles(double... percents) {
+    final double[] result = new double[percents.length];
+    for (int i = 0; i < percents.length; i++)
+      result[i] = getQuantile(percents[i]);
+    return result;
+  }
+
+  /**
+   * Returns the (approximate) fraction of values that are lower or equal to the specified one.
+   * @param value A value
+   * @return The fraction of values that are lower or equal to the specified one; NaN if there are no values
+   */
+  public double getRank(double value) {
+    if (n == 0)
+      return Double.NaN;
+    updateSortedView();
+    int pos = Arrays.binarySearch(sortedValues, value);
+    if (pos < 0)
+      pos = -pos - 2;
+    else {
+      while (pos + 1 < sortedValues.length && sortedValues[pos + 1] == value)
+        pos++;
+    }
+    return (pos < 0) ? 0.0 : (double) cumWeights[pos] / n;
+  }
+
+  /**
+   * Returns the (approximate) 2.5% and 97.5% percentiles of the values, computed as in
+   * {@link Statistics#getPercentile95CI(double[])}.
+   * @return the 2.5% and 97.5% percentiles of the values
+   */
+  public double[] getPercentile95CI() {
+    final long index = (long) Math.ceil(n * 0.025);
+    return new double[] {getValueAtRank(index), getValueAtRank(n - index + 1)};
+  }
+
+  /**
+   * Computes the capacity of each level and their sum. Must be invoked whenever the amount of levels
+   * changes, since the capacity of a level depends on its depth.
+   */
+  private void updateCapacities() {
+    capacities = new int[nLevels];
+    totalCapacity = 0;
+    for (int h = 0; h < nLevels; h++) {
+      final int depth = nLevels - h - 1;
+      capacities[h] = Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_RATIO, depth)));
+      totalCapacity += capacities[h];
+    }
+  }
+
+  /**
+   * Appends a value to a level, creating the level and enlarging its storage if required.
+   * @param level The level
+   * @param value The value
+   */
+  private void append(int level, double value) {
+    if (level >= nLevels) {
+      if (level >= levels.length) {
+        levels = Arrays.copyOf(levels, level + 1);
+        sizes = Arrays.copyOf(sizes, level + 1);
+      }
+      for (int h = nLevels; h <= level; h++)
+        levels[h] = new double[MIN_LEVEL_CAPACITY];
+      nLevels = level + 1;
+      updateCapacities();
+    }
+    if (sizes[level] == levels[level].length)
+      levels[level] = Arrays.copyOf(levels[level], levels[level].length * 2);
+    levels[level][sizes[level]++] = value;
+    retained++;
+  }
+
+  /**
+   * Compacts the lowest full levels until the retained values fit in the sketch.
+   */
+  private void compress() {
+    while (retained >= totalCapacity) {
+      int h = 0;
+      while (sizes[h] < capacities[h])
+        h++;
+      compact(h);
+    }
+  }
+
+  /**
+   * Sorts a level and promotes half of its values to the next level. If the level has an odd amount of
+   * values, its largest value stays in the level.
+   * @param level The level to compact
+   */
+  private void compact(int level) {
+    final double[] values = levels[level];
+    final int size = sizes[level];
+    Arrays.sort(values, 0, size);
+    final int pairs = size / 2;
+    final int offset = rng.nextBoolean() ? 1 : 0;
+    sizes[level] = 0;
+    retained -= size;
+    for (int i = 0; i < pairs; i++)
+      append(level + 1, values[2 * i + offset]);
+    if ((size & 1) == 1) {
+      values[0] = values[size - 1];
+      sizes[level] = 1;
+      retained++;
+    }
+  }
+
+  /**
+   * Builds the sorted view of the retained values and their cumulative weights, if outdated.
+   */
+  private void updateSortedView() {
+    if (sortedValues != null)
+      return;
+    final double[] values = new double[retained];
+    final long[] weights = new long[retained];
+    int count = 0;
+    for (int h = 0; h < nLevels; h++) {
+      System.arraycopy(levels[h], 0, values, count, sizes[h]);
+      Arrays.fill(weights, count, count + sizes[h], 1L << h);
+      count += sizes[h];
+    }
+    sortByValue(values, weights, 0, count - 1);
+    for (int i = 1; i < count; i++)
+      weights[i] += weights[i - 1];
+    sortedValues = values;
+    cumWeights = weights;
+  }
+
+  /**
+   * Sorts a range of values together with their weights (quicksort with insertion sort for small ranges).
+   * @param values Values
+   * @param weights Weights of the values
+   * @param lo First position of the range
+   * @param hi Last position of the range
+   */
+  private static void sortByValue(double[] values, long[] weights, int lo, int hi) {
+    while (hi - lo > 16) {
+      final double pivot = values[(lo + hi) >>> 1];
+      int i = lo;
+      int j = hi;
+      while (i <= j) {
+        while (values[i] < pivot)
+          i++;
+        while (values[j] > pivot)
+          j--;
+        if (i <= j) {
+          swap(values, weights, i++, j--);
+        }
+      }
+      // Recurse on the smaller partition to bound the stack depth
+      if (j - lo < hi - i) {
+        sortByValue(values, weights, lo, j);
+        lo = i;
+      }
+      else {
+        sortByValue(values, weights, i, hi);
+        hi = j;
+      }
+    }
+    for (int i = lo + 1; i <= hi; i++) {
+      for (int j = i; j > lo && values[j - 1] > values[j]; j--)
+        swap(values, weights, j, j - 1);
+    }
+  }
+
+  private static void swap(double[] values, long[] weights, int i, int j) {
+    final double v = values[i];
+    values[i] = values[j];
+    values[j] = v;
+    final long w = weights[i];
+    weights[i] = weights[j];
+    weights[j] = w;
+  }
+
+  @Override
+  public String toString() {
+    return "n=" + n + ", retained=" + retained + ", levels=" + nLevels + ", min=" + getMin() + ", max=" + getMax();
+  }
+}
@@ -1,13 +1,43 @@
 package es.ull.simulation.utils;
 
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
 
 /**
- * This class provides a method to generate permutations.
+ * This class provides a method to generate permutations.<p>
+ * Besides the static method, which uses a shared and unseeded generator, instances of this class
+ * generate permutations by using their own generator, so the results can be replicated. An
+ * instance can generate full permutations, the first <code>k</code> elements of a permutation
+ * in O(k) time and memory, lazy permutations, and stateless bijections ({@link FeistelPermutation})
+ * for very large ranges. Instances are intended to be used by a single thread; use
+ * {@link #split()} to create independent engines for other threads.
  * @author Iv�n Castilla
  */
 public class RandomPermutation {
   private static Random generator = null;
+  /** Generator used by this engine */
+  private final RandomGenerator rng;
+
+  /**
+   * Creates an engine which uses a {@link SplittableRandom} with the specified seed.
+   * @param seed Seed of the generator
+   */
+  public RandomPermutation(long seed) {
+    this(new SplittableRandom(seed));
+  }
+
+  /**
+   * Creates an engine which uses the specified generator.
+   * @param rng Random number generator
+   */
+  public RandomPermutation(RandomGenerator rng) {
+    if (rng == null)
+      throw new IllegalArgumentException("rng must not be null");
+    this.rng = rng;
+  }
 
   /**
    * Gets the next permutation
@@ -33,5 +63,195 @@ public class RandomPermutation {
     }
     return r;
   }
-}
 
+  /**
+   * Creates a new engine whose generator is split from the generator of this engine, so both
+   * engines produce independent sequences.
+   * @return A new engine
+   * @throws UnsupportedOperationException If the generator of this engine cannot be split
+   */
+  public RandomPermutation split() {
+    if (!(rng instanceof RandomGenerator.SplittableGenerator))
+      throw new UnsupportedOperationException("The generator cannot be split: " + rng.getClass().getName());
+    return new RandomPermutation(((RandomGenerator.SplittableGenerator) rng).split());
+  }
+
+  /**
+   * Returns a random permutation of the integers in [0, n).
+   * @param n Amount of elements of the permutation
+   * @return A random permutation of the integers in [0, n)
+   */
+  public int[] permutation(int n) {
+    if (n < 0)
+      throw new IllegalArgumentException("n must be >= 0");
+    final int[] p = new int[n];
+    for (int i = 0; i < n; i++)
+      p[i] = i;
+    shuffle(p, 0, n);
+    return p;
+  }
+
+  /**
+   * Shuffles in place the elements of an array in the range [from, to).
+   * @param values The array
+   * @param from First position to shuffle (inclusive)
+   * @param to Last position to shuffle (exclusive)
+   */
+  public void shuffle(int[] values, int from, int to) {
+    for (int i = to - 1; i > from; i--) {
+      final int j = from + rng.nextInt(i - from + 1);
+      final int aux = values[i];
+      values[i] = values[j];
+      values[j] = aux;
+    }
+  }
+
+  /**
+   * Returns the first <code>k</code> elements of a random permutation of the integers in [0, n),
+   * that is, a random sample of <code>k</code> integers without replacement. Only the positions
+   * modified by the shuffle are stored, so it takes O(k) time and memory, regardless of n.
+   * @param n Amount of elements of the permutation
+   * @param k Amount of elements to return
+   * @return The first <code>k</code> elements of a random permutation of the integers in [0, n)
+   */
+  public int[] partialPermutation(int n, int k) {
+    if (k < 0 || k > n)
+      throw new IllegalArgumentException("k must be in [0, n]");
+    final int[] r = new int[k];
+    final LazyPermutation lazy = new LazyPermutation(n, k);
+    for (int i = 0; i < k; i++)
+      r[i] = lazy.nextInt();
+    return r;
+  }
+
+  /**
+   * Returns a random permutation of the integers in [0, n) which is computed as it is consumed.
+   * Consuming the first <code>k</code> elements takes O(k) time and memory, regardless of n.
+   * @param n Amount of elements of the permutation
+   * @return An iterator over a random permutation of the integers in [0, n)
+   */
+  public PrimitiveIterator.OfInt lazyPermutation(int n) {
+    if (n < 0)
+      throw new IllegalArgumentException("n must be >= 0");
+    return new LazyPermutation(n, 16);
+  }
+
+  /**
+   * Returns a random bijection of the integers in [0, n). The bijection needs no memory
+   * proportional to n, so it can be used to visit millions of elements in random order, or to
+   * sample without replacement, without building the permutation.
+   * @param n Amount of elements of the permutation
+   * @return A random bijection of the integers in [0, n)
+   */
+  public FeistelPermutation bijection(long n) {
+    return new FeistelPermutation(n, rng.nextLong());
+  }
+
+  /**
+   * A Fisher-Yates shuffle of [0, n) which is performed step by step. The array of the shuffle
+   * is not stored; only the positions which have been modified are stored, in an open-addressing
+   * hash table.
+   * @author Iván Castilla Rodríguez
+   */
+  private final class LazyPermutation implements PrimitiveIterator.OfInt {
+    /** Amount of elements of the permutation */
+    private final int n;
+    /** Position of the next element */
+    private int current = 0;
+    /** Modified positions (plus one, so 0 means empty) */
+    private int[] keys;
+    /** Values of the modified positions */
+    private int[] values;
+    /** Amount of positions stored */
+    private int stored = 0;
+
+    /**
+     * Creates a lazy permutation.
+     * @param n Amount of elements of the permutation
+     * @param expected Expected amount of elements to consume
+     */
+    LazyPermutation(int n, int expected) {
+      this.n = n;
+      // Each step stores at most one new position
+      final int capacity = Integer.highestOneBit(Math.max(4, Math.min(n, expected)) * 2 - 1) << 1;
+      keys = new int[capacity];
+      values = new int[capacity];
+    }
+
+    @Override
+    public boolean hasNext() {
+      return current < n;
+    }
+
+    @Override
+    public int nextInt() {
+      if (current >= n)
+        throw new NoSuchElementException();
+      final int chosen = current + rng.nextInt(n - current);
+      final int value = get(chosen);
+      // The element at the current position replaces the chosen one, which is not visited again
+      if (chosen != current)
+        put(chosen, get(current));
+      current++;
+      return value;
+    }
+
+    /**
+     * Returns the value in a position of the shuffled array.
+     * @param pos The position
+     * @return The value in the position
+     */
+    private int get(int pos) {
+      final int mask = keys.length - 1;
+      for (int i = hash(pos) & mask; keys[i] != 0; i = (i + 1) & mask) {
+        if (keys[i] == pos + 1)
+          return values[i];
+      }
+      return pos;
+    }
+
+    /**
+     * Sets the value in a position of the shuffled array.
+     * @param pos The position
+     * @param value The new value
+     */
+    private void put(int pos, int value) {
+      if (2 * (stored + 1) > keys.length)
+        grow();
+      final int mask = keys.length - 1;
+      int i = hash(pos) & mask;
+      while (keys[i] != 0 && keys[i] != pos + 1)
+        i = (i + 1) & mask;
+      if (keys[i] == 0) {
+        keys[i] = pos + 1;
+        stored++;
+      }
+      values[i] = value;
+    }
+
+    /**
+     * Doubles the capacity of the hash table.
+     */
+    private void grow() {
+      final int[] oldKeys = keys;
+      final int[] oldValues = values;
+      keys = new int[oldKeys.length * 2];
+      values = new int[oldKeys.length * 2];
+      final int mask = keys.length - 1;
+      for (int j = 0; j < oldKeys.length; j++) {
+        if (oldKeys[j] != 0) {
+          int i = hash(oldKeys[j] - 1) & mask;
+          while (keys[i] != 0)
+            i = (i + 1) & mask;
+          keys[i] = oldKeys[j];
+          values[i] = oldValues[j];
+        }
+      }
+    }
+
+    private int hash(int pos) {
+      final int h = pos * 0x9E3779B9;
+      return h ^ (h >>> 16);
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package es.ull.simulation.utils;
+
+import java.util.Iterator;
+
+/**
+ * An iterator which can be restarted, so the same iterator (and its internal buffers) can be
+ * reused to traverse a structure several times.
+ * @author Iván Castilla Rodríguez
+ */
+public interface ResettableIterator<E> extends Iterator<E> {
+  /**
+   * Restarts the iterator, which then traverses the current contents of the structure from the
+   * beginning.
+   */
+  void reset();
+}
@@ -0,0 +1,256 @@
+package es.ull.simulation.utils;
+
+import java.util.function.DoubleConsumer;
+
+/**
+ * Accumulates the basic statistics of a set of values in a single pass, without storing the
+ * values: amount, mean, variance, minimum, maximum, skewness and kurtosis. The central moments
+ * are updated incrementally (Welford), so they are numerically stable even with many values.<p>
+ * Accumulators filled in different threads (for example, one per replication) can be combined
+ * with {@link #merge(RunningStatistics)} (Chan et al.), so parallel results can be reduced without
+ * materializing the values. This class is not thread-safe; each thread must use its own accumulator.
+ * It can be used to collect a stream:<br>
+ * <code>stream.collect(RunningStatistics::new, RunningStatistics::accept, RunningStatistics::merge)</code>
+ * @author Iván Castilla Rodríguez
+ */
+public class RunningStatistics implements DoubleConsumer {
+  /** Amount of values */
+  private long n = 0;
+  /** Mean of the values */
+  private double mean = 0.0;
+  /** Sum of the squared deviations from the mean */
+  private double m2 = 0.0;
+  /** Sum of the cubed deviations from the mean */
+  private double m3 = 0.0;
+  /** Sum of the deviations from the mean to the fourth power */
+  private double m4 = 0.0;
+  /** Minimum value */
+  private double min = Double.POSITIVE_INFINITY;
+  /** Maximum value */
+  private double max = Double.NEGATIVE_INFINITY;
+
+  /**
+   * Creates an empty accumulator.
+   */
+  public RunningStatistics() {
+  }
+
+  /**
+   * Creates an accumulator with the same contents as other accumulator.
+   * @param other The accumulator to copy
+   */
+  public RunningStatistics(RunningStatistics other) {
+    n = other.n;
+    mean = other.mean;
+    m2 = other.m2;
+    m3 = other.m3;
+    m4 = other.m4;
+    min = other.min;
+    max = other.max;
+  }
+
+  /**
+   * Adds a value.
+   * @param value The new value
+   */
+  public void add(double value) {
+    final long n1 = n;
+    n++;
+    final double delta = value - mean;
+    final double deltaN = delta / n;
+    final double deltaN2 = deltaN * deltaN;
+    final double term1 = delta * deltaN * n1;
+    mean += deltaN;
+    // The higher moments must be updated first, since they use the previous lower moments
+    m4 += term1 * deltaN2 * ((double) n * n - 3.0 * n + 3.0) + 6.0 * deltaN2 * m2 - 4.0 * deltaN * m3;
+    m3 += term1 * deltaN * (n - 2.0) - 3.0 * deltaN * m2;
+    m2 += term1;
+    if (value < min)
+      min = value;
+    if (value > max)
+      max = value;
+  }
+
+  @Override
+  public void accept(double value) {
+    add(value);
+  }
+
+  /**
+   * Adds a set of values.
+   * @param values Set of values.
+   */
+  public void addAll(double[] values) {
+    for (double value : values)
+      add(value);
+  }
+
+  /**
+   * Adds a set of values.
+   * @param values Set of values.
+   */
+  public void addAll(int[] values) {
+    for (int value : values)
+      add(value);
+  }
+
+  /**
+   * Adds a set of values.
+   * @param values Set of values.
+   */
+  public void addAll(long[] values) {
+    for (long value : values)
+      add(value);
+  }
+
+  /**
+   * Adds the values accumulated by other accumulator, which is not modified. The result is the
+   * same (up to rounding errors) as if every value had been added to this accumulator.
+   * @param other Other accumulator
+   */
+  public void merge(RunningStatistics other) {
+    if (other.n == 0)
+      return;
+    if (n == 0) {
+      n = other.n;
+      mean = other.mean;
+      m2 = other.m2;
+      m3 = other.m3;
+      m4 = other.m4;
+      min = other.min;
+      max = other.max;
+      return;
+    }
+    final double na = n;
+    final double nb = other.n;
+    final double total = na + nb;
+    final double delta = other.mean - mean;
+    final double delta2 = delta * delta;
+    final double delta3 = delta * delta2;
+    final double delta4 = delta2 * delta2;
+    final double newM2 = m2 + other.m2 + delta2 * na * nb / total;
+    final double newM3 = m3 + other.m3 + delta3 * na * nb * (na - nb) / (total * total)
+        + 3.0 * delta * (na * other.m2 - nb * m2) / total;
+    m4 = m4 + other.m4 + delta4 * na * nb * (na * na - na * nb + nb * nb) / (total * total * total)
+        + 6.0 * delta2 * (na * na * other.m2 + nb * nb * m2) / (total * total)
+        + 4.0 * delta * (na * other.m3 - nb * m3) / total;
+    m3 = newM3;
+    m2 = newM2;
+    mean += delta * nb / total;
+    n += other.n;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+  }
+
+  /**
+   * Removes every value.
+   */
+  public void clear() {
+    n = 0;
+    mean = m2 = m3 = m4 = 0.0;
+    min = Double.POSITIVE_INFINITY;
+    max = Double.NEGATIVE_INFINITY;
+  }
+
+  /**
+   * Returns the amount of values.
+   * @return The amount of values
+   */
+  public long getN() {
+    return n;
+  }
+
+  /**
+   * Returns the sum of the values.
+   * @return The sum of the values
+   */
+  public double getSum() {
+    return mean * n;
+  }
+
+  /**
+   * Returns the average of the values.
+   * @return The average of the values; NaN if there are no values
+   */
+  public double getMean() {
+    return (n == 0) ? Double.NaN : mean;
+  }
+
+  /**
+   * Returns the sample variance of the values, as used by {@link Statistics#stdDev(double[])}.
+   * @return The sample variance of the values; NaN if there are no values
+   */
+  public double getVariance() {
+    if (n == 0)
+      return Double.NaN;
+    return (n == 1) ? 0.0 : m2 / (n - 1);
+  }
+
+  /**
+   * Returns the population variance of the values.
+   * @return The population variance of the values; NaN if there are no values
+   */
+  public double getPopulationVariance() {
+    return (n == 0) ? Double.NaN : m2 / n;
+  }
+
+  /**
+   * Returns the sample standard deviation of the values, as computed by {@link Statistics#stdDev(double[])}.
+   * @return The standard deviation of the values; NaN if there are no values
+   */
+  public double getStdDev() {
+    return Math.sqrt(getVariance());
+  }
+
+  /**
+   * Returns the minimum value.
+   * @return The minimum value; NaN if there are no values
+   */
+  public double getMin() {
+    return (n == 0) ? Double.NaN : min;
+  }
+
+  /**
+   * Returns the maximum value.
+   * @return The maximum value; NaN if there are no values
+   */
+  public double getMax() {
+    return (n == 0) ? Double.NaN : max;
+  }
+
+  /**
+   * Returns the skewness of the values (population, not bias-corrected).
+   * @return The skewness of the values; NaN if there are no values or all of them are equal
+   */
+  public double getSkewness() {
+    if (n == 0 || m2 == 0.0)
+      return Double.NaN;
+    return Math.sqrt((double) n) * m3 / Math.pow(m2, 1.5);
+  }
+
+  /**
+   * Returns the excess kurtosis of the values (population, not bias-corrected), that is, 0 for
+   * a normal distribution.
+   * @return The excess kurtosis of the values; NaN if there are no values or all of them are equal
+   */
+  public double getKurtosis() {
+    if (n == 0 || m2 == 0.0)
+      return Double.NaN;
+    return n * m4 / (m2 * m2) - 3.0;
+  }
+
+  /**
+   * Returns the 95% confidence interval of the mean, assuming a normal distribution
+   * (see {@link Statistics#normal95CI(double, double, int)}).
+   * @return The lower and upper bounds of the 95% confidence interval of the mean
+   */
+  public double[] getNormal95CI() {
+    final double ci = 1.96 * getStdDev() / Math.sqrt((double) n);
+    return new double[] {getMean() - ci, getMean() + ci};
+  }
+
+  @Override
+  public String toString() {
+    return "n=" + n + ", mean=" + getMean() + ", sd=" + getStdDev() + ", min=" + getMin() + ", max=" + getMax();
+  }
+}
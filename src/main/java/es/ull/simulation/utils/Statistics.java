@@ -2,16 +2,20 @@ package es.ull.simulation.utils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.stream.IntStream;
 
 /**
- * A simple package to get some basic statistics.
+ * A simple package to get some basic statistics. Arrays with at least {@link #PARALLEL_THRESHOLD} values are
+ * processed in parallel, using the common fork/join pool; their sums are compensated (Kahan), so their
+ * results may differ from the sequential ones in the last digits.
  * @author Iván Castilla Rodríguez
  *
  */
 public class Statistics {
   /** The factor to calculate 95% CI from SD */
   final static private double CI95FACTOR = 1.96;
+  /** The minimum length of an array to be processed in parallel */
+  final static public int PARALLEL_THRESHOLD = 1 << 17;
 
   /**
    * Returns the average of a set of values
@@ -21,6 +25,8 @@ public class Statistics {
   public static double average(double[] values) {
     if (values.length == 0)
       return Double.NaN;
+    if (values.length >= PARALLEL_THRESHOLD)
+      return Arrays.stream(values).parallel().sum() / (double)values.length;
     double acc = 0.0;
     for (double val : values)
       acc += val;
@@ -38,6 +44,8 @@ public class Statistics {
       return Double.NaN;
     else if (values.length == 1)
       return 0.0;
+    if (values.length >= PARALLEL_THRESHOLD)
+      return Math.sqrt(Arrays.stream(values).parallel().map(val -> (val - av) * (val - av)).sum() / (double)(values.length - 1));
     double acc = 0.0;
     for (double val : values)
       acc += (val - av) * (val - av);
@@ -61,6 +69,9 @@ public class Statistics {
   public static double average(int[] values) {
     if (values.length == 0)
       return Double.NaN;
+    // The sum of integers is exact, so the result is the same as the sequential one
+    if (values.length >= PARALLEL_THRESHOLD)
+      return Arrays.stream(values).parallel().asLongStream().sum() / (double)values.length;
     double acc = 0.0;
     for (int val : values)
       acc += val;
@@ -78,6 +89,8 @@ public class Statistics {
       return Double.NaN;
     else if (values.length == 1)
       return 0.0;
+    if (values.length >= PARALLEL_THRESHOLD)
+      return Math.sqrt(Arrays.stream(values).parallel().mapToDouble(val -> (val - av) * (val - av)).sum() / (double)(values.length - 1));
     double acc = 0.0;
     for (int val : values)
       acc += (val - av) * (val - av);
@@ -213,29 +226,31 @@ public class Statistics {
   }
 
 	/**
-	 * Returns the 2.5% and 97.5% percentiles of the array. The array does not need to be previously ordered
+	 * Returns the 2.5% and 97.5% percentiles of the array. The array does not need to be previously ordered,
+	 * since the percentiles are selected without sorting (see {@link OrderStatistics})
 	 * @param values An array of values
 	 * @return the 2.5% and 97.5% percentiles of the array
 	 */
 	public static double[] getPercentile95CI(double[] values) {
 		int n = values.length;
-		final double[] ordered = Arrays.copyOf(values, n);
-		Arrays.sort(ordered);
 		final int index = (int)Math.ceil(n * 0.025);
-		return new double[] {ordered[index - 1], ordered[n - index]}; 
+		if (n >= PARALLEL_THRESHOLD)
+			return OrderStatistics.parallelSortedValuesAt(values, index - 1, n - index);
+		return OrderStatistics.sortedValuesAt(values, null, index - 1, n - index);
 	}
 
 	/**
-	 * Returns the 2.5% and 97.5% percentiles of the array. The array does not need to be previously ordered
+	 * Returns the 2.5% and 97.5% percentiles of the array. The array does not need to be previously ordered,
+	 * since the percentiles are selected without sorting (see {@link OrderStatistics})
 	 * @param values An array of values
 	 * @return the 2.5% and 97.5% percentiles of the array
 	 */
 	public static int[] getPercentile95CI(int[] values) {
 		int n = values.length;
-		final int[] ordered = Arrays.copyOf(values, n);
-		Arrays.sort(ordered);
 		final int index = (int)Math.ceil(n * 0.025);
-		return new int[] {ordered[index - 1], ordered[n - index]}; 
+		if (n >= PARALLEL_THRESHOLD)
+			return OrderStatistics.parallelSortedValuesAt(values, index - 1, n - index);
+		return OrderStatistics.sortedValuesAt(values, null, index - 1, n - index);
 	}
 
   /**
@@ -348,6 +363,11 @@ public class Statistics {
 			return Double.NaN;
 		if (values.length != weights.length)
 			return Double.NaN;
+		if (values.length >= PARALLEL_THRESHOLD) {
+			final double acc = IntStream.range(0, values.length).parallel().filter(i -> weights[i] > 0)
+				.mapToDouble(i -> values[i] * weights[i]).sum();
+			return acc / IntStream.range(0, values.length).parallel().mapToDouble(i -> weights[i]).filter(w -> w > 0).sum();
+		}
 		double acc = 0.0;
 		double accWeights = 0.0;
 		for (int i = 0; i < values.length; i++) {
@@ -361,6 +381,7 @@ public class Statistics {
 	
 	/**
 	 * Returns the weighted percentile for the specified values. Adapted from https://stackoverflow.com/questions/21844024/weighted-percentile-using-numpy/29677616#29677616  
+	 * The values and weights are sorted together as primitive arrays, so no object is created per value.
 	 * @param weights Array of weights for each value
 	 * @param values Array of values 
 	 * @param percent Percentile to be found
@@ -368,68 +389,96 @@ public class Statistics {
 	 * @return the weighted percentile for the specified values
 	 */
 	public static double weightedPercentile(double[] weights, double []values, double percent, boolean sorted) {
-		if (percent <= 0.0 || percent > 1.0)
-			return Double.NaN;
+		return weightedPercentiles(weights, values, sorted, percent)[0];
+	}
+
+	/**
+	 * Returns several weighted percentiles for the specified values, sorting the values only once
+	 * (see {@link #weightedPercentile(double[], double[], double, boolean)}).
+	 * @param weights Array of weights for each value
+	 * @param values Array of values 
+	 * @param sorted Specifies if the array was previously ordered
+	 * @param percents Percentiles to be found
+	 * @return the weighted percentiles for the specified values, in the same order as requested
+	 */
+	public static double[] weightedPercentiles(double[] weights, double []values, boolean sorted, double... percents) {
+		final double[] result = new double[percents.length];
+		Arrays.fill(result, Double.NaN);
 		if (values.length == 0)
-			return Double.NaN;
+			return result;
 		if (values.length != weights.length)
-			return Double.NaN;
-		if (values.length == 1)
-			return values[0];
-		final ArrayList<WeightedValue> sortedValues = new ArrayList<>();
+			return result;
+		if (values.length == 1) {
+			for (int i = 0; i < percents.length; i++)
+				if (percents[i] > 0.0 && percents[i] <= 1.0)
+					result[i] = values[0];
+			return result;
+		}
+		final double[] sortedWeights;
+		final double[] sortedValues;
+		int n = 0;
 		double totalWeight = 0.0;
-		for (int i = 0; i < values.length; i++) {
-			if (weights[i] > 0) {
-				sortedValues.add(new WeightedValue(weights[i], values[i]));
-				totalWeight += weights[i];
+		if (sorted) {
+			// Sorted values can be used as they are, skipping the non-positive weights
+			sortedWeights = weights;
+			sortedValues = values;
+			for (int i = 0; i < values.length; i++) {
+				if (weights[i] > 0) {
+					totalWeight += weights[i];
+					n = i + 1;
+				}
 			}
 		}
-		if (sortedValues.size() == 0)
-			return Double.NaN;
-		if (!sorted)
-			Collections.sort(sortedValues);
-		double cummWeight = 0.0;
-		double previousAux;
-		double aux = 0.0;
-		for (int i = 0; i < sortedValues.size(); i++) {
-			cummWeight += sortedValues.get(i).getWeight();
-			previousAux = aux;
-			aux = (cummWeight - 0.5 * sortedValues.get(i).getWeight()) / totalWeight;
-			if (aux > percent) {
-				return (i == 0) ? 
-					sortedValues.get(0).getValue() : 
-					sortedValues.get(i).getValue() - ((sortedValues.get(i).getValue() - sortedValues.get(i - 1).getValue()) * (aux - percent)) / (aux - previousAux);  
+		else {
+			sortedWeights = new double[values.length];
+			sortedValues = new double[values.length];
+			for (int i = 0; i < values.length; i++) {
+				if (weights[i] > 0) {
+					sortedWeights[n] = weights[i];
+					sortedValues[n++] = values[i];
+					totalWeight += weights[i];
+				}
 			}
+			OrderStatistics.sort(sortedValues, sortedWeights, 0, n);
 		}
-		return sortedValues.get(sortedValues.size() - 1).getValue();
+		if (n == 0)
+			return result;
+		for (int i = 0; i < percents.length; i++)
+			result[i] = sortedWeightedPercentile(sortedWeights, sortedValues, n, totalWeight, percents[i]);
+		return result;
 	}
-	
+
 	/**
-	 * Auxiliary class to order together weights and values 
-	 * @author Iván Castilla Rodríguez
-	 *
+	 * Returns the weighted percentile of the first <code>n</code> values, which are sorted. Values with
+	 * non-positive weights are ignored.
+	 * @param weights Array of weights for each value
+	 * @param values Array of sorted values 
+	 * @param n Amount of values to use; the last one must have a positive weight
+	 * @param totalWeight Sum of the positive weights
+	 * @param percent Percentile to be found
+	 * @return the weighted percentile for the specified values
 	 */
-	private static class WeightedValue implements Comparable<WeightedValue> {
-		private final double weight;
-		private final double value;
-		
-		public WeightedValue(double weight, double value) {
-			this.weight = weight;
-			this.value = value;
-		}
-
-		public double getWeight() {
-			return weight;
-		}
-
-		public double getValue() {
-			return value;
-		}
-
-		@Override
-		public int compareTo(WeightedValue o) {
-			return (int)Math.signum(value - o.value);
+	private static double sortedWeightedPercentile(double[] weights, double[] values, int n, double totalWeight, double percent) {
+		if (percent <= 0.0 || percent > 1.0)
+			return Double.NaN;
+		double cummWeight = 0.0;
+		double previousAux;
+		double aux = 0.0;
+		int previous = -1;
+		for (int i = 0; i < n; i++) {
+			if (weights[i] > 0) {
+				cummWeight += weights[i];
+				previousAux = aux;
+				aux = (cummWeight - 0.5 * weights[i]) / totalWeight;
+				if (aux > percent) {
+					return (previous == -1) ? 
+						values[i] : 
+						values[i] - ((values[i] - values[previous]) * (aux - percent)) / (aux - previousAux);  
+				}
+				previous = i;
+			}
 		}
+		return values[n - 1];
 	}
 }
 
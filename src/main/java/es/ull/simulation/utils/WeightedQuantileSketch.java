@@ -0,0 +1,311 @@
+package es.ull.simulation.utils;
+
+import java.util.Arrays;
+import java.util.function.DoubleConsumer;
+
+/**
+ * A streaming sketch (merging t-digest, Dunning and Ertl) that approximates the weighted percentiles of a
+ * set of values using bounded memory, for when the values and their weights do not fit in memory.<p>
+ * The values are summarized as centroids (a mean and a weight). New values are collected in a buffer
+ * that, once full, is sorted together with the centroids and merged into them. A centroid can only grow
+ * while it covers a small fraction of the total weight, and this fraction is smaller near the tails,
+ * so the extreme percentiles are the most accurate. The amount of centroids is about
+ * <code>compression / 2</code>, whatever the amount of values added.<p>
+ * The percentiles are interpolated among the centroids as {@link Statistics#weightedPercentile(double[], double[], double, boolean)}
+ * does among the values, so both methods return the same results while every centroid holds a single value.
+ * Values with non-positive weights are ignored, as in that method.<p>
+ * Sketches filled in different threads or replications can be combined with {@link #merge(WeightedQuantileSketch)}.
+ * This class is not thread-safe; each thread must use its own sketch.
+ * @author Iván Castilla Rodríguez
+ */
+public class WeightedQuantileSketch implements DoubleConsumer {
+  /** Default compression */
+  public static final double DEFAULT_COMPRESSION = 100.0;
+  /** Compression: the higher, the more centroids and the more accurate */
+  private final double compression;
+  /** Means of the centroids, sorted */
+  private double[] means;
+  /** Weights of the centroids */
+  private double[] weights;
+  /** Amount of centroids */
+  private int nCentroids;
+  /** Values not yet merged into the centroids */
+  private final double[] bufferValues;
+  /** Weights of the values not yet merged into the centroids */
+  private final double[] bufferWeights;
+  /** Amount of values in the buffer */
+  private int bufferSize;
+  /** Sum of the weights of the values added */
+  private double totalWeight;
+  /** Amount of values added */
+  private long n;
+  /** Minimum value */
+  private double min;
+  /** Maximum value */
+  private double max;
+
+  /**
+   * Creates an empty sketch with the default compression.
+   */
+  public WeightedQuantileSketch() {
+    this(DEFAULT_COMPRESSION);
+  }
+
+  /**
+   * Creates an empty sketch.
+   * @param compression Compression; the higher, the more accurate and the more memory used
+   */
+  public WeightedQuantileSketch(double compression) {
+    if (!(compression >= 10.0))
+      throw new IllegalArgumentException("The compression must be at least 10");
+    this.compression = compression;
+    final int capacity = (int) Math.ceil(compression) + 10;
+    means = new double[capacity];
+    weights = new double[capacity];
+    bufferValues = new double[5 * capacity];
+    bufferWeights = new double[5 * capacity];
+    clear();
+  }
+
+  /**
+   * Adds a value with weight 1.
+   * @param value The new value
+   */
+  public void add(double value) {
+    add(value, 1.0);
+  }
+
+  /**
+   * Adds a weighted value. NaN values and values with non-positive weights are ignored.
+   * @param value The new value
+   * @param weight The weight of the value
+   */
+  public void add(double value, double weight) {
+    if (Double.isNaN(value) || !(weight > 0.0))
+      return;
+    if (bufferSize == bufferValues.length)
+      flush();
+    bufferValues[bufferSize] = value;
+    bufferWeights[bufferSize++] = weight;
+    totalWeight += weight;
+    n++;
+    if (value < min)
+      min = value;
+    if (value > max)
+      max = value;
+  }
+
+  @Override
+  public void accept(double value) {
+    add(value);
+  }
+
+  /**
+   * Adds a set of weighted values. Both arrays must be the same length.
+   * @param weights Array of weights for each value
+   * @param values Array of values
+   */
+  public void addAll(double[] weights, double[] values) {
+    if (values.length != weights.length)
+      throw new IllegalArgumentException("The arrays of weights and values must be the same length");
+    for (int i = 0; i < values.length; i++)
+      add(values[i], weights[i]);
+  }
+
+  /**
+   * Adds the values summarized by other sketch, which is not modified unless it is this sketch.
+   * @param other Other sketch
+   */
+  public void merge(WeightedQuantileSketch other) {
+    final long otherN = other.n;
+    if (otherN == 0)
+      return;
+    // The centroids and the buffer are copied first, since adding to this sketch flushes its buffer
+    // into its centroids, which would modify the values being read when merging a sketch with itself
+    final int otherCentroids = other.nCentroids;
+    final int otherBuffered = other.bufferSize;
+    final double[] otherMeans = Arrays.copyOf(other.means, otherCentroids);
+    final double[] otherWeights = Arrays.copyOf(other.weights, otherCentroids);
+    final double[] otherValues = Arrays.copyOf(other.bufferValues, otherBuffered);
+    final double[] otherValueWeights = Arrays.copyOf(other.bufferWeights, otherBuffered);
+    final double otherMin = other.min;
+    final double otherMax = other.max;
+    for (int i = 0; i < otherCentroids; i++)
+      add(otherMeans[i], otherWeights[i]);
+    for (int i = 0; i < otherBuffered; i++)
+      add(otherValues[i], otherValueWeights[i]);
+    // Each centroid was counted as a single value
+    n += otherN - otherCentroids - otherBuffered;
+    min = Math.min(min, otherMin);
+    max = Math.max(max, otherMax);
+  }
+
+  /**
+   * Removes every value.
+   */
+  public void clear() {
+    nCentroids = 0;
+    bufferSize = 0;
+    totalWeight = 0.0;
+    n = 0;
+    min = Double.POSITIVE_INFINITY;
+    max = Double.NEGATIVE_INFINITY;
+  }
+
+  /**
+   * Returns the compression.
+   * @return The compression
+   */
+  public double getCompression() {
+    return compression;
+  }
+
+  /**
+   * Returns the amount of values added.
+   * @return The amount of values added
+   */
+  public long getN() {
+    return n;
+  }
+
+  /**
+   * Returns the sum of the weights of the values added.
+   * @return The sum of the weights of the values added
+   */
+  public double getTotalWeight() {
+    return totalWeight;
+  }
+
+  /**
+   * Returns the amount of centroids that summarize the values.
+   * @return The amount of centroids that summarize the values
+   */
+  public int getCentroidCount() {
+    flush();
+    return nCentroids;
+  }
+
+  /**
+   * Returns the minimum value.
+   * @return The minimum value; NaN if there are no values
+   */
+  public double getMin() {
+    return (n == 0) ? Double.NaN : min;
+  }
+
+  /**
+   * Returns the maximum value.
+   * @return The maximum value; NaN if there are no values
+   */
+  public double getMax() {
+    return (n == 0) ? Double.NaN : max;
+  }
+
+  /**
+   * Returns the (approximate) weighted percentile of the values.
+   * @param percent Percentile to be found, in (0, 1]
+   * @return The weighted percentile; NaN if there are no values or the percentile is not valid
+   */
+  public double getQuantile(double percent) {
+    if (percent <= 0.0 || percent > 1.0 || n == 0)
+      return Double.NaN;
+    flush();
+    double cummWeight = 0.0;
+    double previousAux;
+    double aux = 0.0;
+    for (int i = 0; i < nCentroids; i++) {
+      cummWeight += weights[i];
+      previousAux = aux;
+      aux = (cummWeight - 0.5 * weights[i]) / totalWeight;
+      if (aux > percent) {
+        return (i == 0) ?
+          means[0] :
+          means[i] - ((means[i] - means[i - 1]) * (aux - percent)) / (aux - previousAux);
+      }
+    }
+    return means[nCentroids - 1];
+  }
+
+  /**
+   * Returns several (approximate) weighted percentiles of the values (see {@link #getQuantile(double)}).
+   * @param percents Percentiles to be found, in (0, 1]
+   * @return The weighted percentiles, in the same order as requested
+   */
+  public double[] getQuantiles(double... percents) {
+    final double[] result = new double[percents.length];
+    for (int i = 0; i < percents.length; i++)
+      result[i] = getQuantile(percents[i]);
+    return result;
+  }
+
+  /**
+   * Scale function (k1): maps a fraction of the total weight to a scale where every centroid can
+   * span at most one unit.
+   */
+  private double scale(double q) {
+    return compression / (2.0 * Math.PI) * Math.asin(2.0 * q - 1.0);
+  }
+
+  /**
+   * Inverse of the scale function.
+   */
+  private double inverseScale(double k) {
+    if (k >= compression / 4.0)
+      return 1.0;
+    return (Math.sin(k * 2.0 * Math.PI / compression) + 1.0) / 2.0;
+  }
+
+  /**
+   * Merges the buffered values into the centroids.
+   */
+  private void flush() {
+    if (bufferSize == 0)
+      return;
+    final int total = nCentroids + bufferSize;
+    final double[] allMeans = Arrays.copyOf(means, total);
+    final double[] allWeights = Arrays.copyOf(weights, total);
+    System.arraycopy(bufferValues, 0, allMeans, nCentroids, bufferSize);
+    System.arraycopy(bufferWeights, 0, allWeights, nCentroids, bufferSize);
+    OrderStatistics.sort(allMeans, allWeights, 0, total);
+    bufferSize = 0;
+    int count = 0;
+    double mean = allMeans[0];
+    double weight = allWeights[0];
+    double weightSoFar = 0.0;
+    double limit = totalWeight * inverseScale(scale(0.0) + 1.0);
+    for (int i = 1; i < total; i++) {
+      if (weightSoFar + weight + allWeights[i] <= limit) {
+        // Incremental weighted mean, which keeps the mean within the range of the merged values
+        weight += allWeights[i];
+        mean += (allMeans[i] - mean) * allWeights[i] / weight;
+      }
+      else {
+        count = store(count, mean, weight);
+        weightSoFar += weight;
+        limit = totalWeight * inverseScale(scale(weightSoFar / totalWeight) + 1.0);
+        mean = allMeans[i];
+        weight = allWeights[i];
+      }
+    }
+    nCentroids = store(count, mean, weight);
+  }
+
+  /**
+   * Stores a centroid at the specified position, enlarging the storage if required.
+   * @return The amount of centroids stored
+   */
+  private int store(int position, double mean, double weight) {
+    if (position == means.length) {
+      means = Arrays.copyOf(means, position * 2);
+      weights = Arrays.copyOf(weights, position * 2);
+    }
+    means[position] = mean;
+    weights[position] = weight;
+    return position + 1;
+  }
+
+  @Override
+  public String toString() {
+    return "n=" + n + ", weight=" + totalWeight + ", centroids=" + getCentroidCount() + ", min=" + getMin() + ", max=" + getMax();
+  }
+}
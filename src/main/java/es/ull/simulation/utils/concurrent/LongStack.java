@@ -0,0 +1,33 @@
+package es.ull.simulation.utils.concurrent;
+
+import java.util.Arrays;
+
+/**
+ * A stack of primitive longs, used by the pools to keep the submission timestamp of each pending
+ * task alongside the task. This class is not thread-safe.
+ * @author Iván Castilla Rodríguez
+ */
+final class LongStack {
+  /** The values of the stack */
+  private long[] values = new long[16];
+  /** Amount of values in the stack */
+  private int size = 0;
+
+  /**
+   * Pushes a value onto the stack.
+   * @param value The value to push
+   */
+  void push(long value) {
+    if (size == values.length)
+      values = Arrays.copyOf(values, size * 2);
+    values[size++] = value;
+  }
+
+  /**
+   * Removes the value at the top of the stack.
+   * @return The value at the top of the stack, or 0 if the stack is empty
+   */
+  long pop() {
+    return (size == 0) ? 0 : values[--size];
+  }
+}
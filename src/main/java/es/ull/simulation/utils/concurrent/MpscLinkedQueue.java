@@ -0,0 +1,97 @@
+package es.ull.simulation.utils.concurrent;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An unbounded, lock-free FIFO queue for many producers and a single consumer. Producers only
+ * swap the tail of a linked list of nodes, so adding an element never blocks nor retries.
+ * {@link #poll()} and {@link #isEmpty()} must only be invoked by the consumer thread.<p>
+ * A producer links its node to the list right after swapping the tail, so the consumer can
+ * briefly find an element which is not linked yet: in such a case, {@link #poll()} returns null
+ * but {@link #isEmpty()} returns false.
+ * @author Iván Castilla Rodríguez
+ */
+final class MpscLinkedQueue<E> {
+  /** Last node of the list. Updated by the producers */
+  private final AtomicReference<Node<E>> tail;
+  /** Node before the first element. Only used by the consumer */
+  private Node<E> head;
+  /** Timestamp of the last element removed. Only used by the consumer */
+  private long lastTimestamp = 0;
+
+  /**
+   * Creates an empty queue.
+   */
+  MpscLinkedQueue() {
+    head = new Node<E>(null, 0);
+    tail = new AtomicReference<Node<E>>(head);
+  }
+
+  /**
+   * Adds an element at the end of the queue. Can be invoked by any thread.
+   * @param value The element to add
+   */
+  void offer(E value) {
+    offer(value, 0);
+  }
+
+  /**
+   * Adds an element at the end of the queue, together with a timestamp. Can be invoked by any thread.
+   * @param value The element to add
+   * @param timestamp A timestamp associated to the element, which can be retrieved by the
+   * consumer by using {@link #lastTimestamp()} once the element is removed.
+   */
+  void offer(E value, long timestamp) {
+    final Node<E> node = new Node<E>(value, timestamp);
+    tail.getAndSet(node).next = node;
+  }
+
+  /**
+   * Removes the first element of the queue. Must only be invoked by the consumer.
+   * @return The first element of the queue, or null if there is no element available.
+   */
+  E poll() {
+    final Node<E> next = head.next;
+    if (next == null)
+      return null;
+    final E value = next.value;
+    // The node becomes the new head, so it must not keep a reference to the element
+    next.value = null;
+    head = next;
+    lastTimestamp = next.timestamp;
+    return value;
+  }
+
+  /**
+   * Returns the timestamp associated to the last element removed. Must only be invoked by the consumer.
+   * @return The timestamp associated to the last element removed
+   */
+  long lastTimestamp() {
+    return lastTimestamp;
+  }
+
+  /**
+   * Returns true if no element has been added and not removed. Must only be invoked by the consumer.
+   * @return True if the queue is empty
+   */
+  boolean isEmpty() {
+    return tail.get() == head;
+  }
+
+  /**
+   * A node of the list.
+   */
+  private static final class Node<E> {
+    /** The element stored in this node */
+    E value;
+    /** The timestamp associated to the element */
+    final long timestamp;
+    /** The next node of the list */
+    volatile Node<E> next;
+
+    Node(E value, long timestamp) {
+      this.value = value;
+      this.timestamp = timestamp;
+    }
+  }
+}
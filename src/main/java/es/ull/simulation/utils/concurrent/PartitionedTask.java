@@ -0,0 +1,15 @@
+package es.ull.simulation.utils.concurrent;
+
+/**
+ * A task which belongs to a partition, for example, the model entity whose state is modified by
+ * the task. A {@link PartitionedThreadPool} executes the tasks of the same partition in the same
+ * thread, in the order they were submitted.
+ * @author Iván Castilla Rodríguez
+ */
+public interface PartitionedTask extends Runnable {
+  /**
+   * Returns the identifier of the partition this task belongs to.
+   * @return The identifier of the partition this task belongs to
+   */
+  public int getPartitionId();
+}
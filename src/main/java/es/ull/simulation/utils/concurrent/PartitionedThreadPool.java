@@ -0,0 +1,206 @@
+package es.ull.simulation.utils.concurrent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A pool of threads where each task is always executed by the same thread as the rest of tasks of
+ * its partition, in the order they were submitted. Tasks of different partitions run in parallel,
+ * so the state of a partition (for example, a model entity) can be modified without locks, and the
+ * results are reproducible.<p>
+ * Partitions are grouped into a fixed amount of slots, and each slot is assigned to a thread. Each
+ * thread is a {@link SingleThreadPool} in high-throughput mode, so it has its own lock-free FIFO
+ * queue. The load of each slot is counted, so hot slots can be redistributed among the threads by
+ * invoking {@link #rebalance()} between phases.
+ * @author Iván Castilla Rodríguez
+ */
+public class PartitionedThreadPool<T extends PartitionedTask> implements ThreadPool<T> {
+  /** Default amount of slots per thread */
+  public static final int DEFAULT_SLOTS_PER_THREAD = 16;
+  /** Threads of the pool */
+  protected final SingleThreadPool<Runnable>[] workers;
+  /** Number of threads */
+  protected final int nThreads;
+  /** Thread assigned to each slot. Replaced (not modified) when rebalancing */
+  private volatile int[] assignment;
+  /** Tasks submitted to each slot since the last rebalancing */
+  private final LongAdder[] load;
+  /** Tasks submitted and not finished yet */
+  protected final TaskCounter tasks = new TaskCounter();
+
+  /**
+   * Creates a new pool of threads with <code>nThreads</code> threads and
+   * {@link #DEFAULT_SLOTS_PER_THREAD} slots per thread.
+   * @param nThreads Amount of internal threads in the pool
+   */
+  public PartitionedThreadPool(int nThreads) {
+    this(nThreads, nThreads * DEFAULT_SLOTS_PER_THREAD);
+  }
+
+  /**
+   * Creates a new pool of threads.
+   * @param nThreads Amount of internal threads in the pool
+   * @param nSlots Amount of slots where the partitions are grouped. A higher value allows
+   * a finer rebalancing.
+   */
+  public PartitionedThreadPool(int nThreads, int nSlots) {
+    if (nThreads <= 0)
+      throw new IllegalArgumentException("nThreads must be > 0");
+    if (nSlots < nThreads)
+      throw new IllegalArgumentException("nSlots must be >= nThreads");
+    this.nThreads = nThreads;
+    workers = newArray(new SingleThreadPool<?>[nThreads]);
+    for (int i = 0; i < nThreads; i++)
+      workers[i] = new SingleThreadPool<Runnable>(true);
+    final int[] initial = new int[nSlots];
+    load = new LongAdder[nSlots];
+    for (int i = 0; i < nSlots; i++) {
+      initial[i] = i % nThreads;
+      load[i] = new LongAdder();
+    }
+    assignment = initial;
+  }
+
+  /**
+   * Returns the slot where a partition is grouped.
+   * @param partitionId Identifier of the partition
+   * @return The slot where the partition is grouped
+   */
+  protected int getSlot(int partitionId) {
+    // Spreads consecutive identifiers
+    final int h = partitionId * 0x9E3779B9;
+    return Math.floorMod(h ^ (h >>> 16), load.length);
+  }
+
+  /**
+   * Returns the thread currently assigned to a partition.
+   * @param partitionId Identifier of the partition
+   * @return The index of the thread currently assigned to the partition
+   */
+  public int getWorker(int partitionId) {
+    return assignment[getSlot(partitionId)];
+  }
+
+  @Override
+  public void execute(T ev) {
+    final int slot = getSlot(ev.getPartitionId());
+    load[slot].increment();
+    tasks.add(1);
+    workers[assignment[slot]].execute(wrap(ev));
+  }
+
+  /**
+   * Adds a batch of tasks. The tasks are grouped by thread, so each thread is woken up once.
+   */
+  @Override
+  public void executeAll(Collection<? extends T> evs) {
+    final int[] assigned = assignment;
+    final ArrayList<Runnable>[] batches = newArray(new ArrayList<?>[nThreads]);
+    for (T ev : evs) {
+      final int slot = getSlot(ev.getPartitionId());
+      load[slot].increment();
+      final int worker = assigned[slot];
+      if (batches[worker] == null)
+        batches[worker] = new ArrayList<Runnable>();
+      batches[worker].add(wrap(ev));
+    }
+    tasks.add(evs.size());
+    for (int i = 0; i < nThreads; i++) {
+      if (batches[i] != null)
+        workers[i].executeAll(batches[i]);
+    }
+  }
+
+  /**
+   * Returns an array of a generic type, so it can be created as an array of wildcard types.
+   * @param array A new array, whose elements are all null
+   * @return The same array
+   */
+  private static <E> E[] newArray(Object[] array) {
+    @SuppressWarnings("unchecked")
+    final E[] typed = (E[]) array;
+    return typed;
+  }
+
+  /**
+   * Wraps a task to count it as finished once executed.
+   * @param ev The task
+   * @return The wrapped task
+   */
+  private Runnable wrap(T ev) {
+    return () -> {
+      try {
+        ev.run();
+      } finally {
+        tasks.done();
+      }
+    };
+  }
+
+  @Override
+  public void awaitQuiescence() throws InterruptedException {
+    tasks.await();
+  }
+
+  /**
+   * Redistributes the slots among the threads according to the tasks submitted to each slot
+   * since the last rebalancing, so the threads receive similar loads. The heaviest slots are
+   * assigned first, each one to the thread with the lowest load. The caller waits until
+   * every task submitted has finished, so the order of the tasks of each partition is kept;
+   * hence, this method is intended to be invoked between phases and must not be invoked from a
+   * task executed in this pool.
+   * @throws InterruptedException If the caller is interrupted while waiting
+   */
+  public synchronized void rebalance() throws InterruptedException {
+    awaitQuiescence();
+    final int nSlots = load.length;
+    final long[] slotLoad = new long[nSlots];
+    final Integer[] order = new Integer[nSlots];
+    for (int i = 0; i < nSlots; i++) {
+      slotLoad[i] = load[i].sumThenReset();
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> Long.compare(slotLoad[b], slotLoad[a]));
+    final long[] workerLoad = new long[nThreads];
+    final int[] newAssignment = assignment.clone();
+    for (int slot : order) {
+      // Slots without tasks keep their thread
+      if (slotLoad[slot] == 0)
+        break;
+      int lightest = 0;
+      for (int w = 1; w < nThreads; w++) {
+        if (workerLoad[w] < workerLoad[lightest])
+          lightest = w;
+      }
+      newAssignment[slot] = lightest;
+      workerLoad[lightest] += slotLoad[slot];
+    }
+    assignment = newAssignment;
+  }
+
+  /**
+   * Returns the tasks submitted to each thread since the last rebalancing, according to the
+   * current assignment of slots.
+   * @return The tasks submitted to each thread since the last rebalancing
+   */
+  public long[] getWorkerLoad() {
+    final int[] assigned = assignment;
+    final long[] values = new long[nThreads];
+    for (int i = 0; i < assigned.length; i++)
+      values[assigned[i]] += load[i].sum();
+    return values;
+  }
+
+  @Override
+  public void shutdown() {
+    for (SingleThreadPool<Runnable> worker : workers)
+      worker.shutdown();
+  }
+
+  @Override
+  public int getNThreads() {
+    return nThreads;
+  }
+}
@@ -0,0 +1,196 @@
+package es.ull.simulation.utils.concurrent;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Records the metrics of a pool of threads. Every value is recorded in a striped counter
+ * ({@link LongAdder}), so recording a task does not make the threads of the pool contend.
+ * @author Iván Castilla Rodríguez
+ */
+public class PoolMetrics implements ThreadPoolMetrics {
+  /** Domain of the names used to register the metrics in JMX */
+  public static final String JMX_DOMAIN = "es.ull.simulation.utils.concurrent";
+  /** Amount of positions of the execution time histogram */
+  private static final int HISTOGRAM_SIZE = 64;
+  /** Amount of threads of the pool */
+  private final int nWorkers;
+  /** Timestamp when the metrics were enabled */
+  private final long startTs;
+  private final LongAdder submitted = new LongAdder();
+  private final LongAdder started = new LongAdder();
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder queueTime = new LongAdder();
+  /** Amount of tasks whose time in queue was recorded */
+  private final LongAdder queued = new LongAdder();
+  private final LongAdder executionTime = new LongAdder();
+  private final LongAdder[] histogram;
+  /** Time spent executing tasks by each worker */
+  private final LongAdder[] busyTime;
+  /** Name used to register the metrics in JMX; null if not registered */
+  private ObjectName jmxName = null;
+
+  /**
+   * Creates the metrics of a pool.
+   * @param nWorkers Amount of threads of the pool
+   */
+  public PoolMetrics(int nWorkers) {
+    this.nWorkers = nWorkers;
+    this.startTs = System.nanoTime();
+    histogram = new LongAdder[HISTOGRAM_SIZE];
+    for (int i = 0; i < HISTOGRAM_SIZE; i++)
+      histogram[i] = new LongAdder();
+    busyTime = new LongAdder[nWorkers];
+    for (int i = 0; i < nWorkers; i++)
+      busyTime[i] = new LongAdder();
+  }
+
+  /**
+   * Records the submission of tasks.
+   * @param n Amount of tasks submitted
+   */
+  public void taskSubmitted(long n) {
+    submitted.add(n);
+  }
+
+  /**
+   * Records the start of a task.
+   * @param submitTs Timestamp (as returned by {@link System#nanoTime()}) when the task was
+   * submitted, or 0 if unknown.
+   * @param now Current timestamp
+   */
+  public void taskStarted(long submitTs, long now) {
+    started.increment();
+    if (submitTs != 0) {
+      queueTime.add(Math.max(0, now - submitTs));
+      queued.increment();
+    }
+  }
+
+  /**
+   * Records the end of a task.
+   * @param worker Index of the thread which executed the task
+   * @param startTs Timestamp (as returned by {@link System#nanoTime()}) when the task started
+   * @param now Current timestamp
+   */
+  public void taskFinished(int worker, long startTs, long now) {
+    final long duration = Math.max(0, now - startTs);
+    completed.increment();
+    executionTime.add(duration);
+    histogram[(duration == 0) ? 0 : 63 - Long.numberOfLeadingZeros(duration)].increment();
+    busyTime[worker].add(duration);
+  }
+
+  /**
+   * Registers these metrics in the platform MBean server, with the name
+   * <code>es.ull.simulation.utils.concurrent:type=ThreadPool,name=</code><i>name</i>.
+   * @param name Name of the pool
+   * @throws IllegalStateException If the metrics cannot be registered
+   */
+  public synchronized void register(String name) {
+    if (jmxName != null)
+      throw new IllegalStateException("Metrics already registered as " + jmxName);
+    try {
+      final ObjectName objName = new ObjectName(JMX_DOMAIN + ":type=ThreadPool,name=" + ObjectName.quote(name));
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, objName);
+      jmxName = objName;
+    } catch (JMException e) {
+      throw new IllegalStateException("Cannot register metrics " + name, e);
+    }
+  }
+
+  /**
+   * Removes these metrics from the platform MBean server, if registered.
+   */
+  public synchronized void unregister() {
+    if (jmxName != null) {
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      try {
+        if (server.isRegistered(jmxName))
+          server.unregisterMBean(jmxName);
+      } catch (JMException e) {
+        throw new IllegalStateException("Cannot unregister metrics " + jmxName, e);
+      }
+      jmxName = null;
+    }
+  }
+
+  /**
+   * Returns the name used to register these metrics in JMX.
+   * @return The name used to register these metrics in JMX; null if not registered
+   */
+  public synchronized ObjectName getJmxName() {
+    return jmxName;
+  }
+
+  @Override
+  public long getSubmittedTasks() {
+    return submitted.sum();
+  }
+
+  @Override
+  public long getCompletedTasks() {
+    return completed.sum();
+  }
+
+  @Override
+  public long getPendingTasks() {
+    // Started is read first, so the result is not underestimated while counters are updated
+    final long done = started.sum();
+    return Math.max(0, submitted.sum() - done);
+  }
+
+  @Override
+  public int getActiveThreads() {
+    final long done = completed.sum();
+    return (int) Math.min(nWorkers, Math.max(0, started.sum() - done));
+  }
+
+  @Override
+  public int getIdleThreads() {
+    return nWorkers - getActiveThreads();
+  }
+
+  @Override
+  public long getTotalQueueTime() {
+    return queueTime.sum();
+  }
+
+  @Override
+  public double getMeanQueueTime() {
+    final long n = queued.sum();
+    return (n == 0) ? 0.0 : (double) queueTime.sum() / n;
+  }
+
+  @Override
+  public long getTotalExecutionTime() {
+    return executionTime.sum();
+  }
+
+  @Override
+  public long[] getExecutionTimeHistogram() {
+    final long[] values = new long[HISTOGRAM_SIZE];
+    for (int i = 0; i < HISTOGRAM_SIZE; i++)
+      values[i] = histogram[i].sum();
+    return values;
+  }
+
+  @Override
+  public double[] getWorkerUtilization() {
+    final double elapsed = Math.max(1, System.nanoTime() - startTs);
+    final double[] values = new double[nWorkers];
+    for (int i = 0; i < nWorkers; i++)
+      values[i] = Math.min(1.0, busyTime[i].sum() / elapsed);
+    return values;
+  }
+
+  @Override
+  public double getThroughput() {
+    final double elapsed = Math.max(1, System.nanoTime() - startTs);
+    return completed.sum() * 1e9 / elapsed;
+  }
+}
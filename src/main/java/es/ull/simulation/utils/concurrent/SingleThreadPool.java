@@ -1,21 +1,42 @@
 package es.ull.simulation.utils.concurrent;
 
 import java.util.ArrayDeque;
+import java.util.Collection;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * A single threaded pool of threads. This structure is intended to execute a set of tasks in a
  * sequential order.
- * This pool has a queue of waiting tasks and a semaphore to control the idle time.
+ * By default, this pool has a queue of waiting tasks and a semaphore to control the idle time,
+ * and the last task submitted is the first one executed. A high-throughput mode can be chosen
+ * when creating the pool: tasks are then put in a lock-free queue and executed in FIFO order,
+ * and the thread spins for a while before parking when it runs out of tasks, so producers
+ * only have to wake it up when it is actually parked.
  * @author Iván Castilla Rodríguez
  */
 public class SingleThreadPool<T extends Runnable> extends Thread implements ThreadPool<T> {
+  /** Iterations that the thread spins waiting for new tasks before parking in high-throughput mode */
+  private static final int SPINS = 1 << 10;
   /** Finished flag */
-  protected boolean finished = false;
+  protected volatile boolean finished = false;
   /** Events that cannot be executed because there are no free threads */
   protected ArrayDeque<T> pending;
   /** Lock to set the pool into the idle state */
   protected Semaphore pLock;
+  /** Tasks submitted and not finished yet */
+  protected final TaskCounter tasks = new TaskCounter();
+  /** Queue of tasks in high-throughput mode; null otherwise */
+  private final MpscLinkedQueue<T> queue;
+  /**
+   * Submission timestamps of the pending tasks submitted while metrics are enabled. Since
+   * metrics cannot be disabled, these tasks are always at the top of <code>pending</code>
+   */
+  private final LongStack pendingTs = new LongStack();
+  /** Runtime metrics of this pool; null if not enabled */
+  protected volatile PoolMetrics metrics = null;
+  /** True if the thread is parked (or about to park) in high-throughput mode */
+  private volatile boolean parked = false;
   /** An internal counter to set a different value to each pool */
   private static int count = 0;
 
@@ -23,12 +44,30 @@ public class SingleThreadPool<T extends Runnable> extends Thread implements Thre
    * Creates a new single threaded pool of threads.
    */
   public SingleThreadPool() {
+    this(false);
+  }
+
+  /**
+   * Creates a new single threaded pool of threads.
+   * @param highThroughput If true, tasks are executed in FIFO order and submitted through a
+   * lock-free queue; otherwise, the last task submitted is the first one executed.
+   */
+  public SingleThreadPool(boolean highThroughput) {
     super("STP" + count++);
     pending = new ArrayDeque<T>();
     pLock = new Semaphore(0);
+    queue = highThroughput ? new MpscLinkedQueue<T>() : null;
     start();
   }
 
+  /**
+   * Returns true if this pool uses the high-throughput mode.
+   * @return True if this pool uses the high-throughput mode
+   */
+  public boolean isHighThroughput() {
+    return queue != null;
+  }
+
   /**
    * Execution loop. The thread is initially put into the idle state. Once a task arrives,
    * the thread is awakened and executes it. As the task is finished,
@@ -36,7 +75,12 @@ public class SingleThreadPool<T extends Runnable> extends Thread implements Thre
    * flag is set to true.
    */
   public void run() {
+    if (queue != null) {
+      runQueue();
+      return;
+    }
     T event = null;
+    long submitTs = 0;
     while (!finished) {
       try {
         pLock.acquire();
@@ -46,28 +90,167 @@ public class SingleThreadPool<T extends Runnable> extends Thread implements Thre
       while (!pending.isEmpty()) {
         synchronized (pending) {
           event = pending.pop();
+          submitTs = (metrics == null) ? 0 : pendingTs.pop();
         }
-        event.run();
+        runTask(event, submitTs);
+      }
+    }
+  }
+
+  /**
+   * Executes a task and records it.
+   * @param event The task
+   * @param submitTs Submission timestamp of the task, if metrics are enabled; 0 otherwise
+   */
+  private void runTask(T event, long submitTs) {
+    final PoolMetrics m = metrics;
+    final long startTs = (m == null) ? 0 : System.nanoTime();
+    if (m != null)
+      m.taskStarted(submitTs, startTs);
+    try {
+      event.run();
+    } finally {
+      if (m != null)
+        m.taskFinished(0, startTs, System.nanoTime());
+      tasks.done();
+    }
+  }
+
+  /**
+   * Records the submission of tasks, if metrics are enabled.
+   * @param n Amount of tasks submitted
+   * @return The submission timestamp if metrics are enabled; 0 otherwise
+   */
+  private long submitted(int n) {
+    final PoolMetrics m = metrics;
+    if (m == null)
+      return 0;
+    m.taskSubmitted(n);
+    return System.nanoTime();
+  }
+
+  /**
+   * Enables the runtime metrics of this pool. The tasks submitted before enabling the metrics
+   * are not fully accounted.
+   * @return The metrics of this pool
+   */
+  public synchronized PoolMetrics enableMetrics() {
+    if (metrics == null)
+      metrics = new PoolMetrics(1);
+    return metrics;
+  }
+
+  /**
+   * Returns the runtime metrics of this pool.
+   * @return The metrics of this pool; null if not enabled
+   */
+  public PoolMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Execution loop in high-throughput mode. The thread executes every available task; then,
+   * it spins for a while and, if no task arrives, parks until a producer wakes it up. The loop
+   * finishes when the <code>finished</code> flag is set to true and there are no more tasks.
+   */
+  private void runQueue() {
+    int spins = 0;
+    while (true) {
+      final T event = queue.poll();
+      if (event != null) {
+        spins = 0;
+        runTask(event, queue.lastTimestamp());
+      }
+      else if (!queue.isEmpty()) {
+        // A producer is adding a task
+        Thread.onSpinWait();
+      }
+      else if (finished) {
+        return;
+      }
+      else if (spins < SPINS) {
+        spins++;
+        Thread.onSpinWait();
+      }
+      else {
+        parked = true;
+        // Checks again, since a producer may have added a task before seeing the flag
+        if (queue.isEmpty() && !finished)
+          LockSupport.park(this);
+        parked = false;
+        spins = 0;
       }
     }
   }
 
   /**
-   * Puts a task in the pending task queue. This action releases the semaphore in the main loop.
+   * Wakes up the thread if it is parked in high-throughput mode.
+   */
+  private void wakeUp() {
+    if (parked)
+      LockSupport.unpark(this);
+  }
+
+  /**
+   * Puts a task in the pending task queue. This action releases the semaphore in the main loop
+   * or, in high-throughput mode, wakes up the thread if it is parked.
    * @param ev Task to be executed
    */
   @Override
   public void execute(T ev) {
+    tasks.add(1);
+    final long ts = submitted(1);
+    if (queue != null) {
+      queue.offer(ev, ts);
+      wakeUp();
+      return;
+    }
     synchronized (pending) {
       pending.push(ev);
+      if (metrics != null)
+        pendingTs.push(ts);
+    }
+    pLock.release();
+  }
+
+  /**
+   * Puts a batch of tasks in the pending task queue. The semaphore in the main loop is released
+   * once for the whole batch.
+   * @param evs Tasks to be executed
+   */
+  @Override
+  public void executeAll(Collection<? extends T> evs) {
+    tasks.add(evs.size());
+    final long ts = submitted(evs.size());
+    if (queue != null) {
+      for (T ev : evs)
+        queue.offer(ev, ts);
+      wakeUp();
+      return;
+    }
+    synchronized (pending) {
+      final boolean timed = metrics != null;
+      for (T ev : evs) {
+        pending.push(ev);
+        if (timed)
+          pendingTs.push(ts);
+      }
     }
     pLock.release();
   }
 
+  @Override
+  public void awaitQuiescence() throws InterruptedException {
+    tasks.await();
+  }
+
   @Override
   public void shutdown() {
     finished = true;
-    pLock.release();
+    if (queue != null)
+      LockSupport.unpark(this);
+    else
+      pLock.release();
   }
 
   @Override
@@ -1,6 +1,7 @@
 package es.ull.simulation.utils.concurrent;
 
 import java.util.ArrayDeque;
+import java.util.Collection;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -17,6 +18,15 @@ public class StandardThreadPool<T extends Runnable> implements ThreadPool<T> {
   protected boolean finished = false;
   /** Events that cannot be executed because there are no free threads */
   protected ArrayDeque<T> pending;
+  /** Tasks submitted and not finished yet */
+  protected final TaskCounter tasks = new TaskCounter();
+  /**
+   * Submission timestamps of the pending events submitted while metrics are enabled. Since
+   * metrics cannot be disabled, these events are always at the top of <code>pending</code>
+   */
+  private final LongStack pendingTs = new LongStack();
+  /** Runtime metrics of this pool; null if not enabled */
+  protected volatile PoolMetrics metrics = null;
   protected static StandardThreadPool<?> tp = null;
   protected static AtomicInteger assigned = new AtomicInteger(0);
 
@@ -40,14 +50,76 @@ public class StandardThreadPool<T extends Runnable> implements ThreadPool<T> {
 
   @Override
   public synchronized void execute(T ev) {
-    if (freeThreads.isEmpty())
+    tasks.add(1);
+    final long ts = submitted(1);
+    if (freeThreads.isEmpty()) {
       pending.push(ev);
+      if (metrics != null)
+        pendingTs.push(ts);
+    }
     else {
       PoolElement elem = freeThreads.pop();
-      elem.setEvent(ev);
+      elem.setEvent(ev, ts);
+    }
+  }
+
+  /**
+   * Adds a batch of tasks by acquiring the pool once. Only the free threads which receive a task
+   * are woken up; the rest of tasks are taken by the threads as they finish.
+   */
+  @Override
+  public synchronized void executeAll(Collection<? extends T> evs) {
+    tasks.add(evs.size());
+    final long ts = submitted(evs.size());
+    final boolean timed = metrics != null;
+    for (T ev : evs) {
+      if (freeThreads.isEmpty()) {
+        pending.push(ev);
+        if (timed)
+          pendingTs.push(ts);
+      }
+      else
+        freeThreads.pop().setEvent(ev, ts);
     }
   }
 
+  /**
+   * Records the submission of tasks, if metrics are enabled.
+   * @param n Amount of tasks submitted
+   * @return The submission timestamp if metrics are enabled; 0 otherwise
+   */
+  private long submitted(int n) {
+    final PoolMetrics m = metrics;
+    if (m == null)
+      return 0;
+    m.taskSubmitted(n);
+    return System.nanoTime();
+  }
+
+  /**
+   * Enables the runtime metrics of this pool. The tasks submitted before enabling the metrics
+   * are not fully accounted.
+   * @return The metrics of this pool
+   */
+  public synchronized PoolMetrics enableMetrics() {
+    if (metrics == null)
+      metrics = new PoolMetrics(nThreads);
+    return metrics;
+  }
+
+  /**
+   * Returns the runtime metrics of this pool.
+   * @return The metrics of this pool; null if not enabled
+   */
+  public PoolMetrics getMetrics() {
+    return metrics;
+  }
+
+  @Override
+  public void awaitQuiescence() throws InterruptedException {
+    tasks.await();
+  }
+
   @Override
   public synchronized void shutdown() {
     finished = true;
@@ -70,7 +142,7 @@ public class StandardThreadPool<T extends Runnable> implements ThreadPool<T> {
           e.finish();
     }
     else
-      elem.setEvent(pending.pop());
+      elem.setEvent(pending.pop(), (metrics == null) ? 0 : pendingTs.pop());
   }
 
   @Override
@@ -101,10 +173,15 @@ public class StandardThreadPool<T extends Runnable> implements ThreadPool<T> {
    */
   public class PoolElement extends Thread {
     T event = null;
+    /** Submission timestamp of the event, if metrics are enabled; 0 otherwise */
+    long submitTs = 0;
     Semaphore pLock;
+    /** Index of this thread in the pool */
+    final int index;
 
     public PoolElement(int index) {
       super("" + index);
+      this.index = index;
       pLock = new Semaphore(0);
     }
 
@@ -116,8 +193,18 @@ public class StandardThreadPool<T extends Runnable> implements ThreadPool<T> {
           e.printStackTrace();
         }
         if (event != null) {
-          event.run();
-          event = null;
+          final PoolMetrics m = metrics;
+          final long startTs = (m == null) ? 0 : System.nanoTime();
+          if (m != null)
+            m.taskStarted(submitTs, startTs);
+          try {
+            event.run();
+          } finally {
+            event = null;
+            if (m != null)
+              m.taskFinished(index, startTs, System.nanoTime());
+            tasks.done();
+          }
           StandardThreadPool.this.freeThread(this);
         }
       }
@@ -128,7 +215,17 @@ public class StandardThreadPool<T extends Runnable> implements ThreadPool<T> {
     }
 
     public void setEvent(T ev) {
+      setEvent(ev, 0);
+    }
+
+    /**
+     * Sets the event to be executed by this thread.
+     * @param ev The event
+     * @param submitTs Submission timestamp of the event, if metrics are enabled; 0 otherwise
+     */
+    public void setEvent(T ev, long submitTs) {
       this.event = ev;
+      this.submitTs = submitTs;
       pLock.release();
     }
 
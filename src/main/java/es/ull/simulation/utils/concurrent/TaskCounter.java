@@ -0,0 +1,91 @@
+package es.ull.simulation.utils.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the tasks submitted to a pool which have not finished yet, so a caller can wait until
+ * the pool becomes quiescent. Submitting and finishing a task only updates an atomic counter;
+ * the monitor of this object is used only to wake up the waiting threads when the counter
+ * reaches zero.
+ * @author Iván Castilla Rodríguez
+ */
+final class TaskCounter {
+  /** Tasks submitted and not finished yet */
+  private final AtomicLong count = new AtomicLong(0);
+
+  /**
+   * Counts new submitted tasks.
+   * @param n Amount of tasks submitted
+   */
+  void add(long n) {
+    count.addAndGet(n);
+  }
+
+  /**
+   * Counts a finished task, and wakes up the waiting threads if there are no more unfinished tasks.
+   */
+  void done() {
+    if (count.decrementAndGet() == 0) {
+      synchronized (this) {
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Counts several tasks which finished or will never be executed, and wakes up the waiting
+   * threads if there are no more unfinished tasks.
+   * @param n Amount of tasks
+   */
+  void done(long n) {
+    if (count.addAndGet(-n) == 0) {
+      synchronized (this) {
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Returns the amount of unfinished tasks.
+   * @return The amount of unfinished tasks
+   */
+  long get() {
+    return count.get();
+  }
+
+  /**
+   * Waits until every task submitted has finished.
+   * @throws InterruptedException If the caller is interrupted while waiting
+   */
+  void await() throws InterruptedException {
+    if (count.get() > 0) {
+      synchronized (this) {
+        while (count.get() > 0)
+          wait();
+      }
+    }
+  }
+
+  /**
+   * Waits until every task submitted has finished or the timeout expires.
+   * @param timeout Maximum time to wait
+   * @param unit Unit of the timeout
+   * @return True if every task submitted has finished; false if the timeout expired
+   * @throws InterruptedException If the caller is interrupted while waiting
+   */
+  boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+    if (count.get() > 0) {
+      final long deadline = System.nanoTime() + unit.toNanos(timeout);
+      synchronized (this) {
+        while (count.get() > 0) {
+          final long left = deadline - System.nanoTime();
+          if (left <= 0)
+            return false;
+          TimeUnit.NANOSECONDS.timedWait(this, left);
+        }
+      }
+    }
+    return true;
+  }
+}
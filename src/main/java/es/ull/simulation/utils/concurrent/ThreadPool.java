@@ -1,5 +1,7 @@
 package es.ull.simulation.utils.concurrent;
 
+import java.util.Collection;
+
 /**
  * A generic interface to create a pool of threads. A pool of threads consists on 1 to N threads which
  * can execute tasks. The idea is to reuse the same threads once and again instead of being creating a
@@ -13,6 +15,41 @@ public interface ThreadPool<T extends Runnable> {
    */
   public void execute(T ev);
 
+  /**
+   * Adds a batch of tasks to be executed in the pool. Implementations hand out the batch at once,
+   * instead of waking up a thread per task.
+   * @param evs Tasks to be executed
+   */
+  public default void executeAll(Collection<? extends T> evs) {
+    for (T ev : evs)
+      execute(ev);
+  }
+
+  /**
+   * Waits until every task submitted to the pool has finished, including the tasks submitted by
+   * other tasks while waiting. Must not be invoked from a task executed in the pool. Pools which
+   * do not keep track of their unfinished tasks do not support this operation, nor
+   * {@link #executePhase(Collection)}.
+   * @throws InterruptedException If the caller is interrupted while waiting
+   * @throws UnsupportedOperationException If the pool does not support this operation
+   */
+  public default void awaitQuiescence() throws InterruptedException {
+    throw new UnsupportedOperationException("awaitQuiescence");
+  }
+
+  /**
+   * Executes a phase: submits a batch of tasks and waits until every task submitted to the pool
+   * has finished. Intended for engines which must finish the events of a timestamp before
+   * advancing the clock.
+   * @param evs Tasks to be executed in this phase
+   * @throws InterruptedException If the caller is interrupted while waiting
+   * @throws UnsupportedOperationException If the pool does not support {@link #awaitQuiescence()}
+   */
+  public default void executePhase(Collection<? extends T> evs) throws InterruptedException {
+    executeAll(evs);
+    awaitQuiescence();
+  }
+
   /**
    * Stops the pool.
    */
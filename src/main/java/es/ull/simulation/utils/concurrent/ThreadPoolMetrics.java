@@ -0,0 +1,82 @@
+package es.ull.simulation.utils.concurrent;
+
+import javax.management.MXBean;
+
+/**
+ * Runtime metrics of a pool of threads, intended to size pools for production runs. Times are
+ * expressed in nanoseconds and measured since the metrics were enabled. The values are read
+ * without stopping the pool, so they are approximate while tasks are being executed.<p>
+ * This interface is an MXBean, so the metrics can be exported through JMX by using
+ * {@link PoolMetrics#register(String)}.
+ * @author Iván Castilla Rodríguez
+ */
+@MXBean
+public interface ThreadPoolMetrics {
+  /**
+   * Returns the amount of tasks submitted to the pool.
+   * @return The amount of tasks submitted to the pool
+   */
+  public long getSubmittedTasks();
+
+  /**
+   * Returns the amount of tasks which have finished.
+   * @return The amount of tasks which have finished
+   */
+  public long getCompletedTasks();
+
+  /**
+   * Returns the amount of tasks waiting for a thread.
+   * @return The amount of tasks waiting for a thread
+   */
+  public long getPendingTasks();
+
+  /**
+   * Returns the amount of threads executing a task.
+   * @return The amount of threads executing a task
+   */
+  public int getActiveThreads();
+
+  /**
+   * Returns the amount of threads waiting for a task.
+   * @return The amount of threads waiting for a task
+   */
+  public int getIdleThreads();
+
+  /**
+   * Returns the total time that the tasks have waited in the queue before being executed.
+   * @return The total time that the tasks have waited in the queue
+   */
+  public long getTotalQueueTime();
+
+  /**
+   * Returns the mean time that a task waits in the queue before being executed.
+   * @return The mean time that a task waits in the queue
+   */
+  public double getMeanQueueTime();
+
+  /**
+   * Returns the total time spent executing tasks.
+   * @return The total time spent executing tasks
+   */
+  public long getTotalExecutionTime();
+
+  /**
+   * Returns a histogram of the execution time of the tasks. The i-th position counts the tasks
+   * whose execution took at least 2<sup>i</sup> and less than 2<sup>i+1</sup> nanoseconds
+   * (the first position also counts the tasks that took less than 1 nanosecond).
+   * @return A histogram of the execution time of the tasks
+   */
+  public long[] getExecutionTimeHistogram();
+
+  /**
+   * Returns the fraction of time that each thread of the pool has spent executing tasks.
+   * @return The fraction of time that each thread of the pool has spent executing tasks
+   */
+  public double[] getWorkerUtilization();
+
+  /**
+   * Returns the amount of tasks finished per second.
+   * @return The amount of tasks finished per second
+   */
+  public double getThroughput();
+}
@@ -0,0 +1,234 @@
+package es.ull.simulation.utils.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool intended for tasks which spend most of their time blocked, for example, waiting for I/O.
+ * When running on Java 21 or later, each task is executed on a virtual thread, so thousands of
+ * tasks can be blocked at the same time without using a platform thread each. On previous versions,
+ * tasks are executed on platform threads which are reused among tasks.<p>
+ * The amount of tasks executed at the same time is bounded by <code>maxConcurrency</code>; the rest
+ * of tasks wait in a queue. Submitting a task never blocks the caller.<p>
+ * {@link #shutdown()} waits until every task submitted has finished, so it must not be invoked
+ * from a task executed in this pool.
+ * @author Iván Castilla Rodríguez
+ */
+public class VirtualThreadPool<T extends Runnable> implements ThreadPool<T> {
+  /** Default maximum amount of tasks executed at the same time */
+  public static final int DEFAULT_MAX_CONCURRENCY = 1024;
+  /** An internal counter to set a different name to each pool */
+  private static final AtomicInteger count = new AtomicInteger(0);
+  /** Maximum amount of tasks executed at the same time */
+  protected final int maxConcurrency;
+  /** True if the tasks are executed on virtual threads */
+  protected final boolean virtual;
+  /** Launches the threads which execute the tasks */
+  private final Executor launcher;
+  /** Tasks waiting for a thread */
+  private final ConcurrentLinkedQueue<T> pending;
+  /** Threads currently executing tasks */
+  private final AtomicInteger active;
+  /** Tasks submitted and not finished yet */
+  private final TaskCounter tasks;
+  /** Finished flag */
+  protected volatile boolean finished = false;
+
+  /**
+   * Creates a new pool which executes at most {@link #DEFAULT_MAX_CONCURRENCY} tasks at the same time.
+   */
+  public VirtualThreadPool() {
+    this(DEFAULT_MAX_CONCURRENCY);
+  }
+
+  /**
+   * Creates a new pool.
+   * @param maxConcurrency Maximum amount of tasks executed at the same time
+   */
+  public VirtualThreadPool(int maxConcurrency) {
+    if (maxConcurrency <= 0)
+      throw new IllegalArgumentException("maxConcurrency must be > 0");
+    this.maxConcurrency = maxConcurrency;
+    final String prefix = "VTP" + count.getAndIncrement() + "-";
+    final ThreadFactory factory = virtualThreadFactory(prefix);
+    if (factory != null) {
+      virtual = true;
+      launcher = task -> factory.newThread(task).start();
+    }
+    else {
+      virtual = false;
+      final AtomicInteger threadCount = new AtomicInteger(0);
+      // The amount of threads is already bounded by the pool
+      launcher = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+          new SynchronousQueue<Runnable>(), task -> {
+            final Thread thread = new Thread(task, prefix + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+          });
+    }
+    pending = new ConcurrentLinkedQueue<T>();
+    active = new AtomicInteger(0);
+    tasks = new TaskCounter();
+  }
+
+  /**
+   * Returns a factory of virtual threads, if the running JVM supports them. Reflection is used
+   * so this class can be compiled and used with Java 17.
+   * @param prefix Prefix of the names of the threads
+   * @return A factory of virtual threads, or null if the running JVM does not support them
+   */
+  private static ThreadFactory virtualThreadFactory(String prefix) {
+    try {
+      final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+      final Method factory = builderClass.getMethod("factory");
+      return (ThreadFactory) factory.invoke(builder);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * @throws RejectedExecutionException If the pool has been shut down
+   */
+  @Override
+  public void execute(T ev) {
+    if (finished)
+      throw new RejectedExecutionException("The pool has been shut down");
+    tasks.add(1);
+    pending.offer(ev);
+    startThread();
+  }
+
+  /**
+   * {@inheritDoc}
+   * @throws RejectedExecutionException If the pool has been shut down
+   */
+  @Override
+  public void executeAll(Collection<? extends T> evs) {
+    if (finished)
+      throw new RejectedExecutionException("The pool has been shut down");
+    tasks.add(evs.size());
+    for (T ev : evs)
+      pending.offer(ev);
+    // Threads are started once every task is queued, so no thread can finish before the last
+    // tasks are queued. Starts as many threads as tasks, up to the maximum concurrency
+    final int n = Math.min(evs.size(), maxConcurrency);
+    for (int i = 0; i < n; i++)
+      startThread();
+  }
+
+  /**
+   * Starts a new thread to execute the pending tasks, unless the maximum concurrency has been reached.
+   */
+  private void startThread() {
+    int n;
+    while ((n = active.get()) < maxConcurrency) {
+      if (active.compareAndSet(n, n + 1)) {
+        try {
+          launcher.execute(this::runPending);
+        } catch (RuntimeException | Error e) {
+          active.decrementAndGet();
+          throw e;
+        }
+        return;
+      }
+    }
+  }
+
+  /**
+   * Executes pending tasks until the queue is empty. The thread that executes this method
+   * must be counted as active.
+   */
+  private void runPending() {
+    do {
+      T task;
+      while ((task = pending.poll()) != null) {
+        try {
+          task.run();
+        } catch (Throwable t) {
+          final Thread thread = Thread.currentThread();
+          thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+        } finally {
+          tasks.done();
+        }
+      }
+      active.decrementAndGet();
+      // A task may have been submitted while the active threads were at maximum
+    } while (!pending.isEmpty() && reactivate());
+  }
+
+  /**
+   * Counts the current thread as active again, unless the maximum concurrency has been reached.
+   * @return True if the current thread is active again
+   */
+  private boolean reactivate() {
+    int n;
+    while ((n = active.get()) < maxConcurrency) {
+      if (active.compareAndSet(n, n + 1))
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * Stops the pool. No more tasks are accepted, and the caller waits until every submitted task
+   * has finished. If the caller is interrupted, it stops waiting but the pending tasks are still
+   * executed.
+   */
+  @Override
+  public void shutdown() {
+    finished = true;
+    try {
+      awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (launcher instanceof ThreadPoolExecutor)
+      ((ThreadPoolExecutor) launcher).shutdown();
+  }
+
+  /**
+   * Waits until every task submitted has finished or the timeout expires.
+   * @param timeout Maximum time to wait
+   * @param unit Unit of the timeout
+   * @return True if every task submitted has finished; false if the timeout expired
+   * @throws InterruptedException If the caller is interrupted while waiting
+   */
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return tasks.await(timeout, unit);
+  }
+
+  @Override
+  public void awaitQuiescence() throws InterruptedException {
+    tasks.await();
+  }
+
+  /**
+   * Returns true if the tasks are executed on virtual threads.
+   * @return True if the tasks are executed on virtual threads; false if the running JVM does not
+   * support them and platform threads are used instead.
+   */
+  public boolean isVirtual() {
+    return virtual;
+  }
+
+  /**
+   * Returns the maximum amount of tasks executed at the same time.
+   * @return The maximum amount of tasks executed at the same time
+   */
+  @Override
+  public int getNThreads() {
+    return maxConcurrency;
+  }
+}
@@ -0,0 +1,140 @@
+package es.ull.simulation.utils.concurrent;
+
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of threads, consisting on 1 to N threads to execute tasks, where each thread has its
+ * own queue of tasks. Tasks submitted by a thread of the pool are put in the queue of that
+ * thread; tasks submitted by other threads are distributed among the threads. A thread with no
+ * tasks steals them from the queues of the other threads. Submitting and finishing a task
+ * requires no lock shared by every thread, so this pool scales better than
+ * {@link StandardThreadPool} when there are many threads and short tasks.<p>
+ * The threads and queues are managed by a {@link ForkJoinPool} in asynchronous mode, so the
+ * tasks of each queue are executed in FIFO order.
+ * @author Iván Castilla Rodríguez
+ */
+public class WorkStealingThreadPool<T extends Runnable> implements ThreadPool<T> {
+  /** The pool that manages the threads and their queues */
+  protected final ForkJoinPool pool;
+  /** Number of threads */
+  protected final int nThreads;
+  /** Tasks submitted and not finished yet */
+  protected final TaskCounter tasks = new TaskCounter();
+  protected static WorkStealingThreadPool<?> tp = null;
+  protected static AtomicInteger assigned = new AtomicInteger(0);
+  /** An internal counter to set a different name to each pool */
+  private static final AtomicInteger count = new AtomicInteger(0);
+
+  /**
+   * Creates a new pool of threads with <code>nThreads</code> threads.
+   * @param nThreads Amount of internal threads in the pool
+   */
+  public WorkStealingThreadPool(int nThreads) {
+    if (nThreads <= 0)
+      throw new IllegalArgumentException("nThreads must be > 0");
+    this.nThreads = nThreads;
+    final String prefix = "WSTP" + count.getAndIncrement() + "-";
+    pool = new ForkJoinPool(nThreads, p -> {
+      final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+      thread.setName(prefix + thread.getPoolIndex());
+      return thread;
+    }, null, true);
+  }
+
+  /**
+   * {@inheritDoc}
+   * @throws java.util.concurrent.RejectedExecutionException If the pool has been shut down
+   */
+  @Override
+  public void execute(T ev) {
+    tasks.add(1);
+    submit(ev);
+  }
+
+  /**
+   * {@inheritDoc}
+   * @throws java.util.concurrent.RejectedExecutionException If the pool has been shut down
+   */
+  @Override
+  public void executeAll(Collection<? extends T> evs) {
+    final int n = evs.size();
+    tasks.add(n);
+    int submitted = 0;
+    try {
+      for (T ev : evs) {
+        // A rejected task is uncounted by submit
+        submitted++;
+        submit(ev);
+      }
+    } catch (RuntimeException e) {
+      // The rest of the batch is never submitted
+      tasks.done(n - submitted);
+      throw e;
+    }
+  }
+
+  /**
+   * Submits a task already counted as unfinished.
+   * @param ev Task to be executed
+   */
+  private void submit(T ev) {
+    try {
+      pool.execute(() -> {
+        try {
+          ev.run();
+        } finally {
+          tasks.done();
+        }
+      });
+    } catch (RuntimeException e) {
+      tasks.done();
+      throw e;
+    }
+  }
+
+  @Override
+  public void awaitQuiescence() throws InterruptedException {
+    tasks.await();
+  }
+
+  /**
+   * Stops the pool. The tasks already submitted are executed before the threads finish.
+   */
+  @Override
+  public void shutdown() {
+    pool.shutdown();
+  }
+
+  @Override
+  public int getNThreads() {
+    return nThreads;
+  }
+
+  /**
+   * Returns a pool shared by every caller. The pool is created by the first caller, and it is
+   * actually stopped when every caller has invoked {@link #shutdown()}.
+   * @param nThreads Amount of internal threads in the pool, if it has to be created
+   * @return A pool shared by every caller
+   */
+  @SuppressWarnings("unchecked")
+  public static synchronized <T1 extends Runnable> WorkStealingThreadPool<T1> getPool(int nThreads) {
+    if (tp == null) {
+      tp = new WorkStealingThreadPool<T1>(nThreads) {
+        @Override
+        public void shutdown() {
+          synchronized (WorkStealingThreadPool.class) {
+            if (assigned.decrementAndGet() == 0) {
+              super.shutdown();
+              tp = null;
+            }
+          }
+        }
+      };
+    }
+    assigned.incrementAndGet();
+    return (WorkStealingThreadPool<T1>) tp;
+  }
+}
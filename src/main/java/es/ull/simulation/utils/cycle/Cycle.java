@@ -1,5 +1,10 @@
 package es.ull.simulation.utils.cycle;
 
+import java.util.Arrays;
+import java.util.stream.DoubleStream;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
 /**
  * Defines a repeated sequence of events. <p>
  * A cycle can be defined as containing a subcycle. The subcycle total duration
@@ -51,6 +56,119 @@ public abstract class Cycle {
     return new DiscreteCycleIterator(this, absStart, absEnd);
   }
 
+  /**
+   * Returns every timestamp of this cycle within the specified interval, in the same order
+   * as an iterator would return them. The cycle must finish, either by itself or because of
+   * <code>absEnd</code>.
+   * @param absStart Absolute start timestamp
+   * @param absEnd Absolute end timestamp
+   * @return The timestamps of this cycle which are not lower than <code>absStart</code> and
+   * lower than <code>absEnd</code>.
+   * @throws IllegalArgumentException If this cycle is infinite and <code>absEnd</code> is
+   * either infinite or NaN, or if there are too many timestamps to fit in an array.
+   */
+  public double[] materialize(double absStart, double absEnd) {
+    if (!isFinite() && (Double.isNaN(absEnd) || absEnd == Double.POSITIVE_INFINITY))
+      throw new IllegalArgumentException("Cannot materialize an infinite cycle");
+    return collect(iterator(absStart, absEnd));
+  }
+
+  /**
+   * Returns every timestamp of this cycle within the specified interval, in the same order
+   * as an iterator would return them. The cycle must finish, either by itself or because of
+   * <code>absEnd</code>.
+   * @param absStart Absolute start timestamp
+   * @param absEnd Absolute end timestamp
+   * @return The timestamps of this cycle which are not lower than <code>absStart</code> and
+   * lower than <code>absEnd</code>.
+   * @throws IllegalArgumentException If this cycle is infinite and <code>absEnd</code> is
+   * either -1 or <code>Long.MAX_VALUE</code>, or if there are too many timestamps to fit
+   * in an array.
+   */
+  public long[] materialize(long absStart, long absEnd) {
+    if (!isFinite() && (absEnd == -1 || absEnd == Long.MAX_VALUE))
+      throw new IllegalArgumentException("Cannot materialize an infinite cycle");
+    return collect(iterator(absStart, absEnd));
+  }
+
+  /**
+   * Returns whether this cycle finishes by itself, regardless of the end timestamp used to
+   * traverse it. Cycles are finite by default.
+   * @return True if this cycle finishes by itself; false otherwise.
+   */
+  protected boolean isFinite() {
+    return true;
+  }
+
+  /**
+   * Returns a lazy stream with the timestamps of this cycle within the specified interval.
+   * Timestamps are not computed until the stream is traversed. When used in parallel, the
+   * interval is split in subintervals, each one traversed by its own iterator.
+   * @param absStart Absolute start timestamp
+   * @param absEnd Absolute end timestamp
+   * @return A stream with the timestamps of this cycle which are not lower than
+   * <code>absStart</code> and lower than <code>absEnd</code>.
+   */
+  public DoubleStream stream(double absStart, double absEnd) {
+    return StreamSupport.doubleStream(new CycleSpliterators.DoubleSpliterator(this, absStart, absEnd), false);
+  }
+
+  /**
+   * Returns a lazy stream with the timestamps of this cycle within the specified interval.
+   * Timestamps are not computed until the stream is traversed. When used in parallel, the
+   * interval is split in subintervals, each one traversed by its own iterator.
+   * @param absStart Absolute start timestamp
+   * @param absEnd Absolute end timestamp
+   * @return A stream with the timestamps of this cycle which are not lower than
+   * <code>absStart</code> and lower than <code>absEnd</code>.
+   */
+  public LongStream stream(long absStart, long absEnd) {
+    return StreamSupport.longStream(new CycleSpliterators.LongSpliterator(this, absStart, absEnd), false);
+  }
+
+  /**
+   * Returns the remaining timestamps of an iterator.
+   * @param iter The iterator
+   * @return The remaining timestamps of the iterator
+   */
+  protected static double[] collect(CycleIterator iter) {
+    double[] values = new double[16];
+    int n = 0;
+    for (double ts = iter.next(); !Double.isNaN(ts); ts = iter.next()) {
+      if (n == values.length)
+        values = Arrays.copyOf(values, growCapacity(n));
+      values[n++] = ts;
+    }
+    return Arrays.copyOf(values, n);
+  }
+
+  /**
+   * Returns the remaining timestamps of an iterator.
+   * @param iter The iterator
+   * @return The remaining timestamps of the iterator
+   */
+  protected static long[] collect(DiscreteCycleIterator iter) {
+    long[] values = new long[16];
+    int n = 0;
+    for (long ts = iter.next(); ts != -1; ts = iter.next()) {
+      if (n == values.length)
+        values = Arrays.copyOf(values, growCapacity(n));
+      values[n++] = ts;
+    }
+    return Arrays.copyOf(values, n);
+  }
+
+  /**
+   * Returns the new capacity of an array of timestamps which is full.
+   * @param length The current length of the array
+   * @return The new capacity of the array
+   */
+  protected static int growCapacity(int length) {
+    if (length == Integer.MAX_VALUE - 8)
+      throw new IllegalArgumentException("Too many timestamps to materialize");
+    return (int) Math.min(Integer.MAX_VALUE - 8L, length * 2L);
+  }
+
   protected abstract Cycle.IteratorLevel getIteratorLevel(double start, double end);
 
 
@@ -94,6 +212,32 @@ public abstract class Cycle {
      */
     public abstract double getNextTs();
 
+    /**
+     * Moves this level forward to its last valid timestamp which is lower than
+     * <code>target</code>. The level never moves backwards. By default, the level is moved
+     * by using {@link #next()}; subclasses can override this method to compute the timestamp
+     * directly.
+     * @param target The timestamp to reach.
+     * @return The new current timestamp, as returned by {@link #next()}, or Double.NaN if the
+     * level did not move.
+     */
+    public double seek(double target) {
+      return stepTo(target);
+    }
+
+    /**
+     * Moves this level forward by using {@link #next()} until the next timestamp is not lower
+     * than <code>target</code>.
+     * @param target The timestamp to reach.
+     * @return The new current timestamp, or Double.NaN if the level did not move.
+     */
+    protected final double stepTo(double target) {
+      double ts = Double.NaN;
+      while (hasNext() && getNextTs() < target)
+        ts = next();
+      return ts;
+    }
+
     /**
      * Returns the cycle referenced by this entry.
      * @return The cycle referenced by this entry.
@@ -153,6 +297,32 @@ public abstract class Cycle {
      */
     public abstract long getNextTs();
 
+    /**
+     * Moves this level forward to its last valid timestamp which is lower than
+     * <code>target</code>. The level never moves backwards. By default, the level is moved
+     * by using {@link #next()}; subclasses can override this method to compute the timestamp
+     * directly.
+     * @param target The timestamp to reach.
+     * @return The new current timestamp, as returned by {@link #next()}, or -1 if the
+     * level did not move.
+     */
+    public long seek(long target) {
+      return stepTo(target);
+    }
+
+    /**
+     * Moves this level forward by using {@link #next()} until the next timestamp is not lower
+     * than <code>target</code>.
+     * @param target The timestamp to reach.
+     * @return The new current timestamp, or -1 if the level did not move.
+     */
+    protected final long stepTo(long target) {
+      long ts = -1;
+      while (hasNext() && getNextTs() < target)
+        ts = next();
+      return ts;
+    }
+
     /**
      * Returns the cycle referenced by this entry.
      * @return The cycle referenced by this entry.
@@ -0,0 +1,166 @@
+package es.ull.simulation.utils.cycle;
+
+import java.util.Arrays;
+
+/**
+ * A sorted index of the timestamps of a cycle, intended to answer many queries about the
+ * activations of the cycle (for example, the availability of a resource) without iterating
+ * over the cycle each time. Nested cycles are flattened into a sorted array of timestamps,
+ * and each query is answered by a binary search.<p>
+ * The index is extended lazily: the timestamps are taken from a {@link CycleIterator} only
+ * when a query requires them, so infinite cycles can be indexed as the simulation time moves
+ * forward. This class is not thread-safe.
+ * @author Iván Castilla Rodríguez
+ */
+public class CycleIndex {
+  /** Initial capacity of the index */
+  private static final int INITIAL_CAPACITY = 64;
+  /** The cycle indexed */
+  private final Cycle cycle;
+  /** Iterator used to extend the index */
+  private final CycleIterator iter;
+  /** Timestamps indexed so far, sorted in increasing order */
+  private double[] timestamps;
+  /** Amount of timestamps indexed */
+  private int size = 0;
+  /** First timestamp not indexed yet. Double.NaN if the cycle has finished */
+  private double pending;
+  /** True if the timestamps indexed never finish: the cycle is infinite and so is the end timestamp */
+  private final boolean unbounded;
+
+  /**
+   * Creates an index of a cycle with no end timestamp.
+   * @param cycle The cycle indexed
+   * @param absStart Absolute start timestamp
+   */
+  public CycleIndex(Cycle cycle, double absStart) {
+    this(cycle, absStart, Double.POSITIVE_INFINITY);
+  }
+
+  /**
+   * Creates an index of a cycle.
+   * @param cycle The cycle indexed
+   * @param absStart Absolute start timestamp
+   * @param absEnd Absolute end timestamp
+   */
+  public CycleIndex(Cycle cycle, double absStart, double absEnd) {
+    this.cycle = cycle;
+    this.iter = cycle.iterator(absStart, absEnd);
+    this.timestamps = new double[INITIAL_CAPACITY];
+    this.pending = iter.next();
+    this.unbounded = !cycle.isFinite() && (Double.isNaN(absEnd) || absEnd == Double.POSITIVE_INFINITY);
+  }
+
+  /**
+   * Returns the cycle indexed.
+   * @return The cycle indexed
+   */
+  public Cycle getCycle() {
+    return cycle;
+  }
+
+  /**
+   * Returns the amount of timestamps indexed so far.
+   * @return The amount of timestamps indexed so far
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the first activation of the cycle which is not lower than <code>ts</code>.
+   * @param ts A timestamp
+   * @return The first activation of the cycle which is not lower than <code>ts</code>;
+   * Double.NaN if the cycle finishes before <code>ts</code>.
+   * @throws IllegalArgumentException If <code>ts</code> is infinite and the timestamps indexed
+   * never finish
+   */
+  public double nextActivation(double ts) {
+    extendTo(ts);
+    final int pos = lowerBound(ts);
+    return (pos < size) ? timestamps[pos] : pending;
+  }
+
+  /**
+   * Returns the last activation of the cycle which is not greater than <code>ts</code>.
+   * @param ts A timestamp
+   * @return The last activation of the cycle which is not greater than <code>ts</code>;
+   * Double.NaN if the cycle starts after <code>ts</code>.
+   * @throws IllegalArgumentException If <code>ts</code> is infinite and the timestamps indexed
+   * never finish
+   */
+  public double lastActivation(double ts) {
+    extendTo(ts);
+    final int pos = upperBound(ts);
+    return (pos > 0) ? timestamps[pos - 1] : Double.NaN;
+  }
+
+  /**
+   * Returns true if <code>ts</code> falls within an activation of the cycle, that is, if there
+   * is an activation at <code>t</code> such that <code>t &lt;= ts &lt; t + duration</code>.
+   * @param ts A timestamp
+   * @param duration The duration of each activation
+   * @return True if <code>ts</code> falls within an activation of the cycle
+   * @throws IllegalArgumentException If <code>ts</code> is infinite and the timestamps indexed
+   * never finish
+   */
+  public boolean isActive(double ts, double duration) {
+    final double last = lastActivation(ts);
+    return !Double.isNaN(last) && ts < last + duration;
+  }
+
+  /**
+   * Extends the index until it contains every timestamp not greater than <code>ts</code>.
+   * @param ts The timestamp to reach
+   * @throws IllegalArgumentException If <code>ts</code> is infinite and the timestamps indexed
+   * never finish, since the index would grow forever
+   */
+  private void extendTo(double ts) {
+    if (unbounded && ts == Double.POSITIVE_INFINITY)
+      throw new IllegalArgumentException("Cannot index an infinite cycle up to an infinite timestamp");
+    while (!Double.isNaN(pending) && pending <= ts) {
+      if (size == timestamps.length)
+        timestamps = Arrays.copyOf(timestamps, Cycle.growCapacity(size));
+      timestamps[size++] = pending;
+      pending = iter.next();
+    }
+  }
+
+  /**
+   * Returns the position of the first indexed timestamp which is not lower than <code>ts</code>.
+   * @param ts A timestamp
+   * @return The position of the first indexed timestamp which is not lower than
+   * <code>ts</code>, or the size of the index if there is none.
+   */
+  private int lowerBound(double ts) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (timestamps[mid] < ts)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low;
+  }
+
+  /**
+   * Returns the position of the first indexed timestamp which is greater than <code>ts</code>.
+   * @param ts A timestamp
+   * @return The position of the first indexed timestamp which is greater than
+   * <code>ts</code>, or the size of the index if there is none.
+   */
+  private int upperBound(double ts) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (timestamps[mid] <= ts)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low;
+  }
+}
@@ -43,13 +43,32 @@ public class CycleIterator {
     }
     // CHANGE 13/12/06 If the start timestamp is not zero, the real start timestamp
     // has to be recomputed.
-    boolean found = false;
-    while (!Double.isNaN(ts) && !found) {
-      if (ts >= absStartTs)
-        found = true;
-      else
-        next();
+    seek(absStartTs);
+  }
+
+  /**
+   * Moves this iterator forward to the first valid timestamp which is not lower than
+   * <code>target</code>. Each level of the cycle is moved directly to the target whenever it
+   * can compute its timestamps without iterating, so the cost does not depend on the amount
+   * of timestamps skipped.
+   * @param target The timestamp to reach.
+   * @return The timestamp to be returned by the next call to {@link #next()}. Double.NaN if
+   * the end of the cycle has been reached.
+   */
+  public double seek(double target) {
+    for (int i = 0; (i < cycleTable.length) && !Double.isNaN(ts) && (ts < target); i++) {
+      final double newTs = cycleTable[i].seek(target);
+      if (!Double.isNaN(newTs)) {
+        ts = newTs;
+        for (int j = i; j < cycleTable.length - 1; j++) {
+          ts = cycleTable[j + 1].reset(
+              ts, Math.min(cycleTable[j].getNextTs(), cycleTable[j].getEndTs()));
+        }
+      }
     }
+    while (!Double.isNaN(ts) && (ts < target))
+      next();
+    return ts;
   }
 
   /**
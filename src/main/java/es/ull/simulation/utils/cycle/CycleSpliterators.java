@@ -0,0 +1,193 @@
+package es.ull.simulation.utils.cycle;
+
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Spliterators over the timestamps of a cycle within an interval. A spliterator is split by
+ * dividing its interval in two halves; since cycle iterators move directly to their start
+ * timestamp, each half is traversed without computing the timestamps of the other one.
+ * The size of an interval is estimated by sampling its first timestamps, and intervals
+ * with too few timestamps are not split. Spliterators are not reported as sorted, since the
+ * timestamps of some cycles (e.g. unsorted tables) are not returned in ascending order.
+ * @author Iván Castilla Rodríguez
+ */
+final class CycleSpliterators {
+  /** Amount of timestamps sampled to estimate the size of an interval */
+  static final int SAMPLE_SIZE = 256;
+  /** Characteristics of the spliterators */
+  private static final int CHARACTERISTICS = Spliterator.ORDERED | Spliterator.NONNULL |
+      Spliterator.IMMUTABLE;
+
+  private CycleSpliterators() {
+  }
+
+  /**
+   * Spliterator over the timestamps of a cycle, as returned by a {@link CycleIterator}.
+   */
+  static final class DoubleSpliterator implements Spliterator.OfDouble {
+    /** The cycle traversed */
+    private final Cycle cycle;
+    /** Absolute start timestamp */
+    private double start;
+    /** Absolute end timestamp */
+    private final double end;
+    /** Iterator used to traverse the interval. Created when the traversal starts */
+    private CycleIterator iter = null;
+    /** Estimated amount of timestamps. A negative value indicates that it was not computed */
+    private long estimate = -1;
+
+    /**
+     * @param cycle The cycle traversed
+     * @param start Absolute start timestamp
+     * @param end Absolute end timestamp
+     */
+    DoubleSpliterator(Cycle cycle, double start, double end) {
+      this.cycle = cycle;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(DoubleConsumer action) {
+      if (iter == null)
+        iter = cycle.iterator(start, end);
+      final double ts = iter.next();
+      if (Double.isNaN(ts))
+        return false;
+      action.accept(ts);
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(DoubleConsumer action) {
+      if (iter == null)
+        iter = cycle.iterator(start, end);
+      for (double ts = iter.next(); !Double.isNaN(ts); ts = iter.next())
+        action.accept(ts);
+    }
+
+    @Override
+    public Spliterator.OfDouble trySplit() {
+      if (iter != null || !(end - start > 0.0) || Double.isInfinite(end - start))
+        return null;
+      final double mid = start + (end - start) / 2.0;
+      if (mid <= start || mid >= end || estimateSize() < SAMPLE_SIZE)
+        return null;
+      final DoubleSpliterator prefix = new DoubleSpliterator(cycle, start, mid);
+      start = mid;
+      estimate = -1;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      if (estimate < 0) {
+        final CycleIterator sampler = cycle.iterator(start, end);
+        int n = 0;
+        double last = start;
+        for (double ts = sampler.next(); n < SAMPLE_SIZE && !Double.isNaN(ts); ts = sampler.next()) {
+          last = ts;
+          n++;
+        }
+        if (n < SAMPLE_SIZE)
+          estimate = n;
+        else if (!(last > start) || Double.isInfinite(end))
+          estimate = Long.MAX_VALUE;
+        else
+          estimate = (long) Math.min(Long.MAX_VALUE, n * ((end - start) / (last - start)));
+      }
+      return estimate;
+    }
+
+    @Override
+    public int characteristics() {
+      return CHARACTERISTICS;
+    }
+  }
+
+  /**
+   * Spliterator over the timestamps of a cycle, as returned by a {@link DiscreteCycleIterator}.
+   */
+  static final class LongSpliterator implements Spliterator.OfLong {
+    /** The cycle traversed */
+    private final Cycle cycle;
+    /** Absolute start timestamp */
+    private long start;
+    /** Absolute end timestamp */
+    private final long end;
+    /** Iterator used to traverse the interval. Created when the traversal starts */
+    private DiscreteCycleIterator iter = null;
+    /** Estimated amount of timestamps. A negative value indicates that it was not computed */
+    private long estimate = -1;
+
+    /**
+     * @param cycle The cycle traversed
+     * @param start Absolute start timestamp
+     * @param end Absolute end timestamp
+     */
+    LongSpliterator(Cycle cycle, long start, long end) {
+      this.cycle = cycle;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(LongConsumer action) {
+      if (iter == null)
+        iter = cycle.iterator(start, end);
+      final long ts = iter.next();
+      if (ts == -1)
+        return false;
+      action.accept(ts);
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(LongConsumer action) {
+      if (iter == null)
+        iter = cycle.iterator(start, end);
+      for (long ts = iter.next(); ts != -1; ts = iter.next())
+        action.accept(ts);
+    }
+
+    @Override
+    public Spliterator.OfLong trySplit() {
+      if (iter != null || end - start < 2)
+        return null;
+      final long mid = start + (end - start) / 2;
+      if (estimateSize() < SAMPLE_SIZE)
+        return null;
+      final LongSpliterator prefix = new LongSpliterator(cycle, start, mid);
+      start = mid;
+      estimate = -1;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      if (estimate < 0) {
+        final DiscreteCycleIterator sampler = cycle.iterator(start, end);
+        int n = 0;
+        long last = start;
+        for (long ts = sampler.next(); n < SAMPLE_SIZE && ts != -1; ts = sampler.next()) {
+          last = ts;
+          n++;
+        }
+        if (n < SAMPLE_SIZE)
+          estimate = n;
+        else if (last <= start)
+          estimate = Long.MAX_VALUE;
+        else
+          estimate = (long) Math.min(Long.MAX_VALUE, n * ((double) (end - start) / (last - start)));
+      }
+      return estimate;
+    }
+
+    @Override
+    public int characteristics() {
+      return CHARACTERISTICS;
+    }
+  }
+}
@@ -42,13 +42,31 @@ public class DiscreteCycleIterator {
     }
     // CHANGE 13/12/06 If the start timestamp is not zero, the real start timestamp
     // has to be recomputed.
-    boolean found = false;
-    while ((ts != -1) && !found) {
-      if (ts >= absStartTs)
-        found = true;
-      else
-        next();
+    seek(absStartTs);
+  }
+
+  /**
+   * Moves this iterator forward to the first valid timestamp which is not lower than
+   * <code>target</code>. Each level of the cycle is moved directly to the target whenever it
+   * can compute its timestamps without iterating, so the cost does not depend on the amount
+   * of timestamps skipped.
+   * @param target The timestamp to reach.
+   * @return The timestamp to be returned by the next call to {@link #next()}. -1 if
+   * the end of the cycle has been reached.
+   */
+  public long seek(long target) {
+    for (int i = 0; (i < cycleTable.length) && (ts != -1) && (ts < target); i++) {
+      final long newTs = cycleTable[i].seek(target);
+      if (newTs != -1) {
+        ts = newTs;
+        for (int j = i; j < cycleTable.length - 1; j++) {
+          ts = cycleTable[j + 1].reset(ts, Math.min(cycleTable[j].getNextTs(), cycleTable[j].getEndTs()));
+        }
+      }
     }
+    while ((ts != -1) && (ts < target))
+      next();
+    return ts;
   }
 
   /**
@@ -1,6 +1,7 @@
 package es.ull.simulation.utils.cycle;
 
 import es.ull.simulation.functions.AbstractTimeFunction;
+import es.ull.simulation.functions.ConstantFunction;
 import es.ull.simulation.functions.TimeFunctionParams;
 
 /**
@@ -127,6 +128,90 @@ public class PeriodicCycle extends Cycle {
     return str.toString();
   }
 
+  /**
+   * A periodic cycle is infinite if it has neither an end timestamp nor a fixed amount of
+   * iterations.
+   */
+  @Override
+  protected boolean isFinite() {
+    return iterations != 0 || !Double.isNaN(endTs);
+  }
+
+  /**
+   * If this cycle has no subcycle and its period is constant, the timestamps are computed
+   * directly as <code>startTs + k * period</code>, which may differ in the last digits from
+   * the accumulated sums computed by an iterator.
+   */
+  @Override
+  public double[] materialize(double absStart, double absEnd) {
+    if (subCycle != null || !(period instanceof ConstantFunction) || Double.isNaN(absEnd))
+      return super.materialize(absStart, absEnd);
+    final double p = ((ConstantFunction) period).getConstantValue();
+    if (!(p > 0.0))
+      return super.materialize(absStart, absEnd);
+    // Iterators start the cycle at 0
+    final double limit = Double.isNaN(endTs) ? absEnd : Math.min(endTs, absEnd);
+    // First and last (exclusive) indexes of the timestamps within the interval
+    long first = (long) Math.max(0.0, Math.ceil((absStart - startTs) / p));
+    while (first > 0 && startTs + (first - 1) * p >= absStart)
+      first--;
+    while (startTs + first * p < absStart)
+      first++;
+    long last;
+    if (Double.isInfinite(limit)) {
+      if (iterations == 0)
+        throw new IllegalArgumentException("Cannot materialize an infinite cycle");
+      last = iterations;
+    }
+    else {
+      last = (long) Math.max(0.0, Math.ceil((limit - startTs) / p));
+      while (last > 0 && startTs + (last - 1) * p >= limit)
+        last--;
+      while (startTs + last * p < limit)
+        last++;
+      if (iterations != 0)
+        last = Math.min(last, iterations);
+    }
+    if (last <= first)
+      return new double[0];
+    if (last - first > Integer.MAX_VALUE - 8)
+      throw new IllegalArgumentException("Too many timestamps to materialize");
+    final double[] values = new double[(int) (last - first)];
+    for (int i = 0; i < values.length; i++)
+      values[i] = startTs + (first + i) * p;
+    return values;
+  }
+
+  /**
+   * If this cycle has no subcycle and its period is a constant integer, the timestamps are
+   * computed directly.
+   */
+  @Override
+  public long[] materialize(long absStart, long absEnd) {
+    if (subCycle != null || !(period instanceof ConstantFunction) || absEnd == -1)
+      return super.materialize(absStart, absEnd);
+    final double period = ((ConstantFunction) this.period).getConstantValue();
+    // Non-integer periods are truncated at every step by iterators
+    if (!(period >= 1.0) || (period != Math.rint(period)) || (period > Long.MAX_VALUE))
+      return super.materialize(absStart, absEnd);
+    final long p = (long) period;
+    final long start = Math.round(startTs);
+    // Iterators start the cycle at 0
+    final long limit = Double.isNaN(endTs) ? absEnd : Math.min(Math.round(endTs), absEnd);
+    final long first = (absStart <= start) ? 0 : (absStart - start - 1) / p + 1;
+    long last = (limit <= start) ? 0 : (limit - start - 1) / p + 1;
+    if (iterations != 0)
+      last = Math.min(last, iterations);
+    if (last <= first)
+      return new long[0];
+    if (last - first > Integer.MAX_VALUE - 8)
+      throw new IllegalArgumentException("Too many timestamps to materialize");
+    final long[] values = new long[(int) (last - first)];
+    for (int i = 0; i < values.length; i++)
+      values[i] = start + (first + i) * p;
+    return values;
+  }
+
   /* (non-Javadoc)
    * @see es.ull.iis.util.Cycle#getIteratorLevel(es.ull.iis.util.Cycle.CycleIterator, double, double)
    */
@@ -144,12 +229,11 @@ public class PeriodicCycle extends Cycle {
    * Represents a level in the cycle structure. Each level is a subcycle.
    * @author Iván Castilla Rodríguez
    */
-  protected class PeriodicIteratorLevel extends Cycle.IteratorLevel {
+  protected class PeriodicIteratorLevel extends Cycle.IteratorLevel implements TimeFunctionParams {
     /** The next timestamp. */
     private double nextTs;
     /** The iterations left. */
     private int iter;
-    final private TimeFunctionParams param;
 
     /**
      * @param start The start timestamp.
@@ -157,12 +241,11 @@ public class PeriodicCycle extends Cycle {
      */
     public PeriodicIteratorLevel(double start, double end) {
       super(start, end);
-      param = new TimeFunctionParams() {
-        @Override
-        public double getTime() {
-          return currentTs;
-        }
-      };
+    }
+
+    @Override
+    public double getTime() {
+      return currentTs;
     }
 
     @Override
@@ -218,23 +301,67 @@ public class PeriodicCycle extends Cycle {
       if (iter > 0)
         iter--;
       // Computes the next valid timestamp...
-      nextTs += getPeriod().getValue(param);
+      nextTs += getPeriod().getValue(this);
       return currentTs;
     }
+
+    /**
+     * If the period is constant, the timestamp is computed directly. Otherwise, the level
+     * is moved by using {@link #next()}.
+     */
+    @Override
+    public double seek(double target) {
+      if (skip(target))
+        return currentTs;
+      return stepTo(target);
+    }
+
+    /**
+     * Moves this level directly to its last valid timestamp which is lower than
+     * <code>target</code>, as long as the period is constant. Timestamps are computed as
+     * <code>nextTs + k * period</code>, which may differ in the last digits from the
+     * accumulated sum computed by {@link #next()}.
+     * @param target The timestamp to reach.
+     * @return True if the level moved; false if the period is not constant or the level
+     * is already at its last valid timestamp before <code>target</code>.
+     */
+    protected boolean skip(double target) {
+      if (!(getPeriod() instanceof ConstantFunction) || Double.isNaN(nextTs) || !(nextTs < target))
+        return false;
+      final double p = ((ConstantFunction) getPeriod()).getConstantValue();
+      if (!(p > 0.0))
+        return false;
+      // Amount of calls to next() required
+      long steps = (long) Math.ceil((target - nextTs) / p);
+      // The timestamp must be lower than the end timestamp
+      steps = Math.min(steps, (long) Math.ceil((endTs - nextTs) / p));
+      // And there must be enough iterations left
+      if (getIterations() != 0)
+        steps = Math.min(steps, iter);
+      // Prevents rounding errors from going beyond the target
+      while ((steps > 0) && (nextTs + (steps - 1) * p >= target))
+        steps--;
+      if (steps <= 0)
+        return false;
+      currentTs = nextTs + (steps - 1) * p;
+      nextTs = currentTs + p;
+      if (getIterations() != 0)
+        iter -= steps;
+      return true;
+    }
   }
 
   /**
    * Represents a level in the cycle structure. Each level is a subcycle.
    * @author Iván Castilla Rodríguez
    */
-  protected class PeriodicDiscreteIteratorLevel extends Cycle.DiscreteIteratorLevel {
+  protected class PeriodicDiscreteIteratorLevel extends Cycle.DiscreteIteratorLevel implements TimeFunctionParams {
     /** The next timestamp. */
     private long nextTs;
     /** The iterations left. */
     private int iter;
     private long cycleEndTs;
     private long cycleStartTs;
-    final private TimeFunctionParams param;
 
     /**
      * @param start The start timestamp.
@@ -263,12 +390,11 @@ public class PeriodicCycle extends Cycle {
         else
           nextTs = -1;
       }
-      param = new TimeFunctionParams() {
-        @Override
-        public double getTime() {
-          return currentTs;
-        }
-      };
+    }
+
+    @Override
+    public double getTime() {
+      return currentTs;
     }
 
     @Override
@@ -324,9 +450,51 @@ public class PeriodicCycle extends Cycle {
       if (iter > 0)
         iter--;
       // Computes the next valid timestamp...
-      nextTs += getPeriod().getValue(param);
+      nextTs += getPeriod().getValue(this);
       return currentTs;
     }
+
+    /**
+     * If the period is constant, the timestamp is computed directly. Otherwise, the level
+     * is moved by using {@link #next()}.
+     */
+    @Override
+    public long seek(long target) {
+      if (skip(target))
+        return currentTs;
+      return stepTo(target);
+    }
+
+    /**
+     * Moves this level directly to its last valid timestamp which is lower than
+     * <code>target</code>, as long as the period is a constant integer.
+     * @param target The timestamp to reach.
+     * @return True if the level moved; false if the period is not a constant integer or the
+     * level is already at its last valid timestamp before <code>target</code>.
+     */
+    protected boolean skip(long target) {
+      if (!(getPeriod() instanceof ConstantFunction) || (nextTs == -1) || (nextTs >= target) || (nextTs >= endTs))
+        return false;
+      final double period = ((ConstantFunction) getPeriod()).getConstantValue();
+      // Non-integer periods are truncated at every step, so they cannot be skipped
+      if (!(period >= 1.0) || (period != Math.rint(period)) || (period > Long.MAX_VALUE))
+        return false;
+      final long p = (long) period;
+      // Amount of calls to next() required
+      long steps = (target - 1 - nextTs) / p + 1;
+      // The timestamp must be lower than the end timestamp
+      steps = Math.min(steps, (endTs - 1 - nextTs) / p + 1);
+      // And there must be enough iterations left
+      if (getIterations() != 0)
+        steps = Math.min(steps, iter);
+      if (steps <= 0)
+        return false;
+      currentTs = nextTs + (steps - 1) * p;
+      nextTs = currentTs + p;
+      if (getIterations() != 0)
+        iter -= steps;
+      return true;
+    }
   }
 }
 
@@ -218,6 +218,22 @@ public class RoundedPeriodicCycle extends PeriodicCycle {
     return type;
   }
 
+  /**
+   * Rounded timestamps cannot be computed directly, so they are collected from an iterator.
+   */
+  @Override
+  public double[] materialize(double absStart, double absEnd) {
+    return collect(iterator(absStart, absEnd));
+  }
+
+  /**
+   * Rounded timestamps cannot be computed directly, so they are collected from an iterator.
+   */
+  @Override
+  public long[] materialize(long absStart, long absEnd) {
+    return collect(iterator(absStart, absEnd));
+  }
+
   @Override
   protected IteratorLevel getIteratorLevel(double start, double end) {
     return new RoundedPeriodicIteratorLevel(start, end);
@@ -255,6 +271,21 @@ public class RoundedPeriodicCycle extends PeriodicCycle {
     public double next() {
       return type.getValue(super.next(), scale) + shift;
     }
+
+    /**
+     * Rounding moves each timestamp at most <code>|scale| + |shift|</code>, so the level is
+     * first moved directly to a safe distance of the target (and the end of the cycle), and
+     * then it is moved by using {@link #next()}.
+     */
+    @Override
+    public double seek(double target) {
+      final double margin = Math.abs(scale) + Math.abs(shift);
+      double ts = Double.NaN;
+      if (skip(Math.min(target, endTs) - margin))
+        ts = type.getValue(currentTs, scale) + shift;
+      final double stepped = stepTo(target);
+      return Double.isNaN(stepped) ? ts : stepped;
+    }
   }
 
   /**
@@ -285,6 +316,21 @@ public class RoundedPeriodicCycle extends PeriodicCycle {
     public long next() {
       return (long) (type.getValue(super.next(), scale) + shift);
     }
+
+    /**
+     * Rounding moves each timestamp at most <code>|scale| + |shift| + 1</code>, so the level
+     * is first moved directly to a safe distance of the target (and the end of the cycle), and
+     * then it is moved by using {@link #next()}.
+     */
+    @Override
+    public long seek(long target) {
+      final long margin = (long) Math.ceil(Math.abs(scale) + Math.abs(shift)) + 1;
+      long ts = -1;
+      if (skip(Math.min(target, endTs) - margin))
+        ts = (long) (type.getValue(currentTs, scale) + shift);
+      final long stepped = stepTo(target);
+      return (stepped == -1) ? ts : stepped;
+    }
   }
 
 }
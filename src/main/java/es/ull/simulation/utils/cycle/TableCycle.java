@@ -7,6 +7,8 @@ package es.ull.simulation.utils.cycle;
 public class TableCycle extends Cycle {
   /** The timestamps when something happens. */
   protected double [] timestamps;
+  /** True if the timestamps are in ascending order, which allows to find them by binary search. */
+  protected boolean sorted;
 
   /**
    * Creates a new cycle which follows a predefined set of timestamps.
@@ -15,6 +17,7 @@ public class TableCycle extends Cycle {
   public TableCycle(double [] timestamps) {
     super();
     this.timestamps = timestamps;
+    this.sorted = isSorted(timestamps);
   }
 
   /**
@@ -25,6 +28,19 @@ public class TableCycle extends Cycle {
   public TableCycle(double [] timestamps, Cycle subCycle) {
     super(subCycle);
     this.timestamps = timestamps;
+    this.sorted = isSorted(timestamps);
+  }
+
+  /**
+   * Returns true if the timestamps are in ascending order.
+   * @param timestamps A set of timestamps
+   * @return True if the timestamps are in ascending order.
+   */
+  private static boolean isSorted(double [] timestamps) {
+    for (int i = 1; i < timestamps.length; i++)
+      if (!(timestamps[i - 1] <= timestamps[i]))
+        return false;
+    return true;
   }
 
   /**
@@ -109,6 +125,36 @@ public class TableCycle extends Cycle {
       currentTs = startTs + timestamps[count++];
       return currentTs;
     }
+
+    /**
+     * If the timestamps are sorted, the last valid timestamp is found by binary search.
+     * Otherwise, a later entry may be earlier in time, so the level does not move, and the
+     * iterator reaches the target by using {@link #next()}.
+     */
+    @Override
+    public double seek(double target) {
+      if (!sorted)
+        return Double.NaN;
+      // Finds the last position with a valid timestamp lower than target
+      int low = count;
+      int high = timestamps.length - 1;
+      int found = -1;
+      while (low <= high) {
+        final int mid = (low + high) >>> 1;
+        final double ts = startTs + timestamps[mid];
+        if (ts < target && ts < endTs) {
+          found = mid;
+          low = mid + 1;
+        }
+        else {
+          high = mid - 1;
+        }
+      }
+      if (found == -1)
+        return Double.NaN;
+      count = found;
+      return next();
+    }
   }
 
   /**
@@ -178,6 +224,36 @@ public class TableCycle extends Cycle {
       currentTs = startTs + iTimestamps[count++];
       return currentTs;
     }
+
+    /**
+     * If the timestamps are sorted, the last valid timestamp is found by binary search.
+     * Otherwise, a later entry may be earlier in time, so the level does not move, and the
+     * iterator reaches the target by using {@link #next()}.
+     */
+    @Override
+    public long seek(long target) {
+      if (!sorted)
+        return -1;
+      // Finds the last position with a valid timestamp lower than target
+      int low = count;
+      int high = iTimestamps.length - 1;
+      int found = -1;
+      while (low <= high) {
+        final int mid = (low + high) >>> 1;
+        final long ts = startTs + iTimestamps[mid];
+        if (ts < target && ts < endTs) {
+          found = mid;
+          low = mid + 1;
+        }
+        else {
+          high = mid - 1;
+        }
+      }
+      if (found == -1)
+        return -1;
+      count = found;
+      return next();
+    }
   }
 
 
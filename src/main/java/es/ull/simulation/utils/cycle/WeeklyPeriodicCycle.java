@@ -1,7 +1,7 @@
 package es.ull.simulation.utils.cycle;
 import java.util.EnumSet;
 
-import es.ull.simulation.functions.TimeFunctionFactory;
+import es.ull.simulation.functions.ConstantFunction;
 
 /**
  * A week-based periodic cycle which allows a user to define events happening
@@ -29,8 +29,7 @@ public class WeeklyPeriodicCycle extends PeriodicCycle {
    */
   public WeeklyPeriodicCycle(EnumSet<WeekDays> daySet, double dayUnit,
                               double startTs, double endTs) {
-    super(startTs, TimeFunctionFactory.getInstance(
-        "ConstantVariate", dayUnit * 7), endTs);
+    super(startTs, new ConstantFunction(dayUnit * 7), endTs);
     this.daySet = daySet;
     double []stamps = new double[daySet.size()];
     int count = 0;
@@ -48,8 +47,7 @@ public class WeeklyPeriodicCycle extends PeriodicCycle {
    */
   public WeeklyPeriodicCycle(EnumSet<WeekDays> daySet, double dayUnit,
                               double startTs, int iterations) {
-    super(startTs, TimeFunctionFactory.getInstance(
-        "ConstantVariate", dayUnit * 7), iterations);
+    super(startTs, new ConstantFunction(dayUnit * 7), iterations);
     this.daySet = daySet;
     double []stamps = new double[daySet.size()];
     int count = 0;
@@ -45,4 +45,11 @@ class ConstantFunctionTest {
                 0.0001);
     }
 
+    @Test
+    void testGetValues() {
+        constantFunction.setConstantValueValue(0.23);
+        Assertions.assertArrayEquals(new double[] {0.23, 0.23, 0.23},
+                constantFunction.getValues(new double[] {0.0, 1.0, 2.0}));
+    }
+
 }
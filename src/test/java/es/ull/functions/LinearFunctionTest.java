@@ -64,6 +64,23 @@ class LinearFunctionTest {
 
     }
 
+    @Test
+    void getValues() {
+        final double[] times = {0.0, 1.0, 2.0, 10.0};
+        final double[] values = linearFunction.getValues(times);
+        for (int i = 0; i < times.length; i++) {
+            final double ts = times[i];
+            Assertions.assertEquals(linearFunction.getValue(() -> ts), values[i]);
+        }
+        // Non-constant scale
+        linearFunction.setScale(new LinearFunction(0.5, 1.0));
+        linearFunction.getValues(times, values);
+        for (int i = 0; i < times.length; i++) {
+            final double ts = times[i];
+            Assertions.assertEquals(linearFunction.getValue(() -> ts), values[i]);
+        }
+    }
+
     @Test
     void getScale() {
         linearFunction.setParameters(scale,shift);
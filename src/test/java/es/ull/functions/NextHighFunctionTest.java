@@ -39,6 +39,18 @@ class NextHighFunctionTest {
         Assertions.assertEquals(0.7600000000000002,nextHighFunction.getValue(params));
     }
 
+    @Test
+    void getValues() {
+        final double[] times = {0.0, 2.0, 3.7, 11.1};
+        final double[] values = new double[times.length];
+        nextHighFunction.setFunc(linearFunction);
+        nextHighFunction.getValues(times, values);
+        for (int i = 0; i < times.length; i++) {
+            final double ts = times[i];
+            Assertions.assertEquals(nextHighFunction.getValue(() -> ts), values[i]);
+        }
+    }
+
     @Test
     void getFunc() {
         //Constante
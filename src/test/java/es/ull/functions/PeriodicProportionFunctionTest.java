@@ -27,6 +27,16 @@ class PeriodicProportionFunctionTest {
     assertEquals(0.3, periodicProportionFunction.getValue(params));
   }
 
+  @Test
+  void getValues() {
+    final double[] times = {2.0, 12.0, 25.0, 37.0, 95.0};
+    final double[] values = periodicProportionFunction.getValues(times);
+    for (int i = 0; i < times.length; i++) {
+      final double ts = times[i];
+      assertEquals(periodicProportionFunction.getValue(() -> ts), values[i]);
+    }
+  }
+
   @Test
   void setParameters() {
     // Caso de prueba para el método setParameters
@@ -26,6 +26,16 @@ class PolynomialFunctionTest {
     assertEquals(11.0, polynomialFunction.getValue(params));
   }
 
+  @Test
+  void getValues() {
+    final double[] times = {0.0, 1.0, 2.0, 3.5, -4.0};
+    final double[] values = polynomialFunction.getValues(times);
+    for (int i = 0; i < times.length; i++) {
+      final double ts = times[i];
+      assertEquals(polynomialFunction.getValue(() -> ts), values[i], 1e-9);
+    }
+  }
+
   @Test
   void getCoefficients() {
     AbstractTimeFunction[] expectedCoefficients = polynomialFunction.getCoefficients();
@@ -2,7 +2,13 @@ package es.ull.functions;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
 import es.ull.simulation.functions.AbstractTimeFunction;
+import es.ull.simulation.functions.MappedRecordedStream;
 import es.ull.simulation.functions.RandomFunction;
 import es.ull.simulation.functions.ReplicableTimeFunction;
 import es.ull.simulation.functions.TimeFunctionParams;
@@ -39,6 +45,97 @@ class ReplicableTimeFunctionTest {
     assertEquals(5.0, replicableTimeFunction.getValue(params));
   }
 
+  @Test
+  void newCursor() throws InterruptedException {
+    final ReplicableTimeFunction counterFunction = new ReplicableTimeFunction(new AbstractTimeFunction() {
+      private double count = 0.0;
+
+      @Override
+      public double getValue(TimeFunctionParams params) {
+        return count++;
+      }
+
+      @Override
+      public void setParameters(Object... params) {
+      }
+    });
+    for (int i = 0; i < 10; i++)
+      assertEquals(i, counterFunction.getValue(params));
+    counterFunction.reStart();
+    assertEquals(0.0, counterFunction.getValue(params));
+
+    final int nValues = 5000;
+    final ArrayList<Thread> threads = new ArrayList<>();
+    final ArrayList<ReplicableTimeFunction.Cursor> cursors = new ArrayList<>();
+    final boolean[] ok = new boolean[4];
+    for (int t = 0; t < ok.length; t++) {
+      final int id = t;
+      final ReplicableTimeFunction.Cursor cursor = counterFunction.newCursor();
+      cursors.add(cursor);
+      threads.add(new Thread(() -> {
+        boolean same = true;
+        for (int i = 0; i < nValues; i++)
+          same = same && (cursor.getValue(params) == i);
+        ok[id] = same;
+      }));
+    }
+    for (Thread th : threads)
+      th.start();
+    for (Thread th : threads)
+      th.join();
+    for (int t = 0; t < ok.length; t++) {
+      assertTrue(ok[t]);
+      assertEquals(nValues, cursors.get(t).getPosition());
+    }
+    assertEquals(nValues, counterFunction.getRecordedStream().size());
+  }
+
+  @Test
+  void replayMappedStream() throws IOException {
+    final Path file = Files.createTempFile("replicable", ".bin");
+    try {
+      final AbstractTimeFunction linear = new AbstractTimeFunction() {
+        private double count = 0.0;
+
+        @Override
+        public double getValue(TimeFunctionParams params) {
+          return count++ * 0.5;
+        }
+
+        @Override
+        public void setParameters(Object... params) {
+        }
+      };
+      try (MappedRecordedStream stream = new MappedRecordedStream(file)) {
+        final ReplicableTimeFunction recorder = new ReplicableTimeFunction(linear, stream);
+        for (int i = 0; i < 1000; i++)
+          recorder.getValue(params);
+      }
+      // Replay in a new run, extending the stream
+      try (MappedRecordedStream stream = new MappedRecordedStream(file)) {
+        assertEquals(1000, stream.size());
+        final ReplicableTimeFunction replayer = new ReplicableTimeFunction(linear, stream);
+        for (int i = 0; i < 1500; i++)
+          assertEquals(i * 0.5, replayer.getValue(params));
+      }
+      try (MappedRecordedStream stream = new MappedRecordedStream(file, true)) {
+        assertEquals(1500, stream.size());
+        assertEquals(1499 * 0.5, stream.get(1499));
+        assertThrows(UnsupportedOperationException.class, () -> stream.append(0.0));
+      }
+    }
+    finally {
+      // The mapping may still be live until the buffer is garbage collected, and some platforms
+      // (e.g. Windows) do not allow deleting a mapped file, so the deletion is best-effort
+      try {
+        Files.deleteIfExists(file);
+      }
+      catch (IOException e) {
+        file.toFile().deleteOnExit();
+      }
+    }
+  }
+
   @Test
   void setParameters() {
     RandomVariate newRnd = RandomVariateFactory.getInstance(
@@ -0,0 +1,63 @@
+package es.ull.functions;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import es.ull.simulation.functions.*;
+import org.junit.jupiter.api.Test;
+import simkit.random.RandomVariateFactory;
+
+class TimeFunctionCompilerTest {
+
+  private static void assertEquivalent(AbstractTimeFunction original, AbstractTimeFunction compiled) {
+    final Random rnd = new Random(1234);
+    final double[] times = new double[1000];
+    for (int i = 0; i < times.length; i++) {
+      times[i] = rnd.nextDouble() * 100.0;
+      final double ts = times[i];
+      final double expected = original.getValue(() -> ts);
+      assertEquals(expected, compiled.getValue(() -> ts), 1e-9 * Math.max(1.0, Math.abs(expected)));
+    }
+    final double[] values = compiled.getValues(times);
+    for (int i = 0; i < times.length; i++) {
+      final double ts = times[i];
+      final double expected = original.getValue(() -> ts);
+      assertEquals(expected, values[i], 1e-9 * Math.max(1.0, Math.abs(expected)));
+    }
+  }
+
+  @Test
+  void compileConstantTree() {
+    final AbstractTimeFunction inner = new PolynomialFunction(new AbstractTimeFunction[] {
+        new ConstantFunction(0.5), new LinearFunction(2.0, 1.0), new ConstantFunction(-3.0)});
+    final AbstractTimeFunction tree = new RoundFunction(RoundFunction.Type.FLOOR,
+        new LinearFunction(new ConstantFunction(1.5), inner), 0.25, 1.0);
+    assertEquivalent(tree, TimeFunctionCompiler.compile(tree));
+    assertEquivalent(inner, TimeFunctionCompiler.compile(inner));
+  }
+
+  @Test
+  void compileMixedTree() {
+    final AbstractTimeFunction tree = new UniformlyDistributedSplitFunction(new AbstractTimeFunction[] {
+        new NextHighFunction(new LinearFunction(0.23, 0.23), 0.5, 0.1),
+        new PeriodicProportionFunction(new int[] {1, 2, 3}, new double[] {0.3, 0.5, 0.2}, 2.0),
+        new RoundFunction(RoundFunction.Type.CEIL, new ConstantFunction(3.3), 1.0, 0.0)}, 7.0);
+    assertEquivalent(tree, TimeFunctionCompiler.compile(tree));
+  }
+
+  @Test
+  void compileOpaqueLeaves() {
+    final AbstractTimeFunction random = new RandomFunction(
+        RandomVariateFactory.getInstance("ConstantVariate", 4.0));
+    final AbstractTimeFunction tree = new LinearFunction(random, new PolynomialFunction(new double[] {1.0, 2.0}));
+    assertEquivalent(tree, TimeFunctionCompiler.compile(tree));
+  }
+
+  @Test
+  void compileIsIdempotent() {
+    final AbstractTimeFunction compiled = TimeFunctionCompiler.compile(new ConstantFunction(1.0));
+    assertSame(compiled, TimeFunctionCompiler.compile(compiled));
+    assertThrows(UnsupportedOperationException.class, () -> compiled.setParameters(2.0));
+  }
+}
@@ -0,0 +1,58 @@
+package es.ull.functions;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import es.ull.simulation.functions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class TimeFunctionFactoryTest {
+  TimeFunctionParams params = () -> 2.0;
+
+  @AfterEach
+  void unregister() {
+    TimeFunctionFactory.unregister("Double");
+  }
+
+  @Test
+  void getRegisteredInstance() {
+    final AbstractTimeFunction f = TimeFunctionFactory.getInstance("LinearFunction",
+        new ConstantFunction(1.0), new ConstantFunction(3.0));
+    assertEquals(LinearFunction.class, f.getClass());
+    assertEquals(5.0, f.getValue(params));
+    // The name without the "Function" suffix is also accepted
+    assertEquals(LinearFunction.class, TimeFunctionFactory.getInstance("Linear",
+        new ConstantFunction(1.0), new ConstantFunction(3.0)).getClass());
+    assertEquals(ConstantFunction.class, TimeFunctionFactory.getInstance("Constant", 4.0).getClass());
+    assertEquals(4.0, TimeFunctionFactory.getInstance(ConstantFunction.class.getName(), 4.0).getValue(params));
+  }
+
+  @Test
+  void getRandomVariateInstance() {
+    for (int i = 0; i < 2; i++) {
+      final AbstractTimeFunction f = TimeFunctionFactory.getInstance("ConstantVariate", 7.0);
+      assertEquals(RandomFunction.class, f.getClass());
+      assertEquals(7.0, f.getValue(params));
+    }
+  }
+
+  @Test
+  void resolutionDoesNotDependOnFailures() {
+    assertThrows(RuntimeException.class, () -> TimeFunctionFactory.getInstance("Constant", "x"));
+    assertEquals(ConstantFunction.class, TimeFunctionFactory.getInstance("Constant", 4.0).getClass());
+    assertThrows(RuntimeException.class, () -> TimeFunctionFactory.getInstance("ConstantVariate", "x"));
+    assertEquals(RandomFunction.class, TimeFunctionFactory.getInstance("ConstantVariate", 4.0).getClass());
+  }
+
+  @Test
+  void register() {
+    TimeFunctionFactory.register("Double", () -> new LinearFunction() {
+      @Override
+      public void setParameters(Object... params) {
+        super.setParameters(new ConstantFunction(((Number) params[0]).doubleValue()), new ConstantFunction(0.0));
+      }
+    });
+    assertEquals(6.0, TimeFunctionFactory.getInstance("Double", 3.0).getValue(params));
+    assertThrows(IllegalArgumentException.class, () -> TimeFunctionFactory.register(ConstantFunction.class));
+  }
+}
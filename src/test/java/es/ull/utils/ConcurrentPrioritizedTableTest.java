@@ -0,0 +1,120 @@
+package es.ull.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import es.ull.simulation.utils.ConcurrentPrioritizedTable;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentPrioritizedTableTest {
+  private static final int N_THREADS = 4;
+  private static final int N_ITEMS = 5000;
+
+  @Test
+  void concurrentAddAndRemove() throws InterruptedException {
+    final ConcurrentPrioritizedTable<PrioritizedTableTest.IndexedItem> table = new ConcurrentPrioritizedTable<>();
+    final List<List<PrioritizedTableTest.IndexedItem>> kept = new ArrayList<>();
+    final AtomicBoolean running = new AtomicBoolean(true);
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+    // Iterates while the table is modified
+    final Thread reader = new Thread(() -> {
+      while (running.get()) {
+        final Iterator<PrioritizedTableTest.IndexedItem> iter = table.randomIterator();
+        int last = Integer.MIN_VALUE;
+        while (iter.hasNext()) {
+          final int priority = iter.next().getPriority();
+          if (priority < last)
+            throw new IllegalStateException("Wrong order");
+          last = priority;
+        }
+        table.nextCandidate();
+      }
+    });
+    reader.setUncaughtExceptionHandler((th, e) -> error.set(e));
+    reader.start();
+    final Thread[] writers = new Thread[N_THREADS];
+    for (int t = 0; t < N_THREADS; t++) {
+      final List<PrioritizedTableTest.IndexedItem> mine = new ArrayList<>();
+      kept.add(mine);
+      writers[t] = new Thread(() -> {
+        for (int i = 0; i < N_ITEMS; i++) {
+          final PrioritizedTableTest.IndexedItem item = new PrioritizedTableTest.IndexedItem(i % 5);
+          table.add(item);
+          mine.add(item);
+          // Removes one out of three objects
+          if (i % 3 == 2)
+            assertTrue(table.remove(mine.remove(mine.size() - 2)));
+        }
+      });
+      writers[t].setUncaughtExceptionHandler((th, e) -> error.set(e));
+      writers[t].start();
+    }
+    for (Thread writer : writers)
+      writer.join();
+    running.set(false);
+    reader.join();
+    assertNull(error.get());
+    final Set<PrioritizedTableTest.IndexedItem> expected = new HashSet<>();
+    for (List<PrioritizedTableTest.IndexedItem> mine : kept)
+      expected.addAll(mine);
+    assertEquals(expected.size(), table.size());
+    final Set<PrioritizedTableTest.IndexedItem> found = new HashSet<>();
+    for (PrioritizedTableTest.IndexedItem item : table)
+      found.add(item);
+    assertEquals(expected, found);
+    table.clear();
+    assertTrue(table.isEmpty());
+    assertNull(table.nextCandidate());
+  }
+
+  @Test
+  void candidatesInTurns() {
+    final ConcurrentPrioritizedTable<PrioritizedTableTest.IndexedItem> table = new ConcurrentPrioritizedTable<>();
+    final List<PrioritizedTableTest.IndexedItem> high = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      high.add(new PrioritizedTableTest.IndexedItem(1));
+      table.add(high.get(i));
+      table.add(new PrioritizedTableTest.IndexedItem(2));
+    }
+    for (int i = 0; i < 6; i++)
+      assertSame(high.get(i % 3), table.nextCandidate());
+    assertNull(table.nextCandidate(0));
+    // The balanced iterator starts each level at a different object
+    assertSame(high.get(0), table.balancedIterator().next());
+    assertSame(high.get(1), table.balancedIterator().next());
+  }
+
+  @Test
+  void sizeWhileClearing() throws InterruptedException {
+    final ConcurrentPrioritizedTable<PrioritizedTableTest.IndexedItem> table = new ConcurrentPrioritizedTable<>();
+    final Thread[] writers = new Thread[N_THREADS];
+    for (int t = 0; t < N_THREADS; t++) {
+      writers[t] = new Thread(() -> {
+        for (int i = 0; i < N_ITEMS; i++)
+          table.add(new PrioritizedTableTest.IndexedItem(i % 3));
+      });
+      writers[t].start();
+    }
+    // Clearing while objects are added must never leave a negative size
+    boolean writing = true;
+    while (writing) {
+      table.clear();
+      assertTrue(table.size() >= 0);
+      writing = false;
+      for (Thread writer : writers)
+        writing |= writer.isAlive();
+    }
+    for (Thread writer : writers)
+      writer.join();
+    table.clear();
+    assertEquals(0, table.size());
+    assertTrue(table.isEmpty());
+  }
+}
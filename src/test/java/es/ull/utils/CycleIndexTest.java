@@ -0,0 +1,67 @@
+package es.ull.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import es.ull.simulation.functions.ConstantFunction;
+import es.ull.simulation.utils.cycle.Cycle;
+import es.ull.simulation.utils.cycle.CycleIndex;
+import es.ull.simulation.utils.cycle.PeriodicCycle;
+import es.ull.simulation.utils.cycle.TableCycle;
+import es.ull.simulation.utils.cycle.WeeklyPeriodicCycle;
+import org.junit.jupiter.api.Test;
+
+class CycleIndexTest {
+
+  @Test
+  void weeklyShifts() {
+    // Two shifts of 6 hours on weekdays, in minutes
+    final Cycle cycle = new WeeklyPeriodicCycle(WeeklyPeriodicCycle.WEEKDAYS, 1440.0, 0.0, 0);
+    final Cycle shifts = new PeriodicCycle(0.0, new ConstantFunction(10080.0), 0,
+        new PeriodicCycle(0.0, new ConstantFunction(1440.0), 5,
+            new TableCycle(new double[] {480.0, 900.0})));
+    final CycleIndex weekly = new CycleIndex(cycle, 0.0);
+    assertEquals(0.0, weekly.nextActivation(0.0));
+    assertEquals(1440.0, weekly.nextActivation(1.0));
+    assertEquals(10080.0, weekly.nextActivation(5761.0));
+    assertTrue(weekly.isActive(100.0, 1440.0));
+    assertFalse(weekly.isActive(7300.0, 1440.0));
+    assertEquals(5760.0, weekly.lastActivation(7300.0));
+    // An infinite cycle cannot be indexed up to an infinite timestamp
+    assertThrows(IllegalArgumentException.class, () -> weekly.nextActivation(Double.POSITIVE_INFINITY));
+    assertThrows(IllegalArgumentException.class, () -> weekly.isActive(Double.POSITIVE_INFINITY, 1440.0));
+    assertEquals(10080.0 * 4, new CycleIndex(cycle, 0.0, 10080.0 * 4 + 1.0).lastActivation(Double.POSITIVE_INFINITY));
+
+    final CycleIndex index = new CycleIndex(shifts, 0.0);
+    final Random rnd = new Random(42);
+    double ts = 0.0;
+    for (int i = 0; i < 10000; i++) {
+      ts += rnd.nextDouble() * 200.0;
+      final double expected = shifts.iterator(ts, Double.POSITIVE_INFINITY).next();
+      assertEquals(expected, index.nextActivation(ts));
+      final double minute = ts % 1440.0;
+      final boolean weekday = (ts % 10080.0) < 7200.0;
+      final boolean onShift = (minute >= 480.0 && minute < 840.0) || (minute >= 900.0 && minute < 1260.0);
+      assertEquals(weekday && onShift, index.isActive(ts, 360.0));
+    }
+    // Queries about the past are answered by the index
+    final int size = index.size();
+    assertEquals(480.0, index.nextActivation(1.0));
+    assertEquals(size, index.size());
+  }
+
+  @Test
+  void finiteCycle() {
+    final CycleIndex index = new CycleIndex(new PeriodicCycle(10.0, new ConstantFunction(5.0), 3), 0.0);
+    assertTrue(Double.isNaN(index.lastActivation(9.0)));
+    assertEquals(10.0, index.nextActivation(0.0));
+    assertEquals(20.0, index.nextActivation(15.5));
+    assertTrue(Double.isNaN(index.nextActivation(20.5)));
+    assertEquals(20.0, index.lastActivation(1000.0));
+    assertEquals(20.0, index.lastActivation(Double.POSITIVE_INFINITY));
+    assertTrue(index.isActive(24.0, 5.0));
+    assertFalse(index.isActive(25.0, 5.0));
+    assertEquals(3, index.size());
+  }
+}
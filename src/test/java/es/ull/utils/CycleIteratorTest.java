@@ -0,0 +1,178 @@
+package es.ull.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.EnumSet;
+
+import es.ull.simulation.functions.ConstantFunction;
+import es.ull.simulation.functions.LinearFunction;
+import es.ull.simulation.utils.cycle.Cycle;
+import es.ull.simulation.utils.cycle.CycleIterator;
+import es.ull.simulation.utils.cycle.DiscreteCycleIterator;
+import es.ull.simulation.utils.cycle.PeriodicCycle;
+import es.ull.simulation.utils.cycle.RoundedPeriodicCycle;
+import es.ull.simulation.utils.cycle.TableCycle;
+import es.ull.simulation.utils.cycle.WeeklyPeriodicCycle;
+import org.junit.jupiter.api.Test;
+
+class CycleIteratorTest {
+  private static final double[] STARTS = {0.0, 1.0, 59.5, 480.0, 1441.0, 10079.0, 10080.0, 123456.0, 1e6};
+
+  /**
+   * Checks that starting an iterator at a timestamp is the same as iterating from 0 and
+   * discarding the timestamps before it.
+   */
+  private static void assertSameIteration(Cycle cycle, double end) {
+    for (double start : STARTS) {
+      final CycleIterator reference = cycle.iterator(0.0, end);
+      double ts = reference.next();
+      while (!Double.isNaN(ts) && ts < start)
+        ts = reference.next();
+      final CycleIterator iter = cycle.iterator(start, end);
+      for (int i = 0; i < 100; i++) {
+        // Timestamps computed directly may differ in the last digits from accumulated ones
+        assertEquals(ts, iter.next(), 1e-9 * Math.max(1.0, Math.abs(ts)), "Start " + start + ", position " + i);
+        ts = reference.next();
+      }
+    }
+  }
+
+  private static void assertSameIteration(Cycle cycle, long end) {
+    for (double start : STARTS) {
+      final DiscreteCycleIterator reference = cycle.iterator(0L, end);
+      long ts = reference.next();
+      while (ts != -1 && ts < (long) start)
+        ts = reference.next();
+      final DiscreteCycleIterator iter = cycle.iterator((long) start, end);
+      for (int i = 0; i < 100; i++) {
+        assertEquals(ts, iter.next(), "Start " + start + ", position " + i);
+        ts = reference.next();
+      }
+    }
+  }
+
+  @Test
+  void seekPeriodicCycle() {
+    final Cycle minutes = new PeriodicCycle(0.0, new ConstantFunction(1.0), 0);
+    assertSameIteration(minutes, 2e6);
+    assertSameIteration(minutes, 2000000L);
+    final Cycle shifts = new PeriodicCycle(30.0, new ConstantFunction(1440.0), 0,
+        new TableCycle(new double[] {0.0, 480.0, 960.0}, new PeriodicCycle(0.0, new ConstantFunction(60.0), 480.0)));
+    assertSameIteration(shifts, 2e6);
+    assertSameIteration(shifts, 2000000L);
+    final Cycle limited = new PeriodicCycle(5.0, new ConstantFunction(7.0), 1000, new TableCycle(new double[] {0.0, 3.0}));
+    assertSameIteration(limited, 2e6);
+    assertSameIteration(limited, 2000000L);
+    final Cycle ended = new PeriodicCycle(5.0, new ConstantFunction(0.7), 100000.0);
+    assertSameIteration(ended, 2e6);
+    final Cycle discreteEnded = new PeriodicCycle(5.0, new ConstantFunction(7.0), 100000.0);
+    assertSameIteration(discreteEnded, 2000000L);
+  }
+
+  @Test
+  void seekWeeklyCycle() {
+    final Cycle weekly = new WeeklyPeriodicCycle(WeeklyPeriodicCycle.WEEKDAYS, 1440.0, 0.0, 0);
+    assertSameIteration(weekly, 2e6);
+    assertSameIteration(weekly, 2000000L);
+  }
+
+  @Test
+  void seekUnsortedTable() {
+    // Unsorted tables are not skipped, so their timestamps keep the order of the table
+    final Cycle cycle = new PeriodicCycle(0.0, new ConstantFunction(100.0), 0, new TableCycle(new double[] {10.0, 50.0, 20.0}));
+    final CycleIterator iter = cycle.iterator(130.0, 1000.0);
+    for (double expected : new double[] {150.0, 120.0, 210.0, 250.0, 220.0})
+      assertEquals(expected, iter.next());
+    final DiscreteCycleIterator discrete = cycle.iterator(130L, 1000L);
+    for (long expected : new long[] {150L, 120L, 210L, 250L, 220L})
+      assertEquals(expected, discrete.next());
+  }
+
+  @Test
+  void seekRoundedCycle() {
+    final Cycle rounded = new RoundedPeriodicCycle(2.0, new ConstantFunction(3.3), 0,
+        RoundedPeriodicCycle.Type.ROUND, 5.0, 1.0);
+    assertSameIteration(rounded, 2e6);
+    assertSameIteration(rounded, 2000000L);
+  }
+
+  @Test
+  void seekVariablePeriod() {
+    // A period which depends on time cannot be skipped
+    final Cycle growing = new PeriodicCycle(0.0, new LinearFunction(0.001, 1.0), 0);
+    assertSameIteration(growing, 2e6);
+    assertSameIteration(growing, 2000000L);
+  }
+
+  @Test
+  void seekForward() {
+    final CycleIterator iter = new PeriodicCycle(0.0, new ConstantFunction(10.0), 0).iterator(0.0, 1000.0);
+    assertEquals(0.0, iter.next());
+    assertEquals(500.0, iter.seek(495.0));
+    assertEquals(500.0, iter.seek(100.0));
+    assertEquals(500.0, iter.next());
+    assertTrue(Double.isNaN(iter.seek(2000.0)));
+  }
+
+  private static void assertSameTimestamps(Cycle cycle, double start, double end) {
+    final CycleIterator iter = cycle.iterator(start, end);
+    final double[] values = cycle.materialize(start, end);
+    for (double value : values)
+      assertEquals(iter.next(), value, 1e-9 * Math.max(1.0, Math.abs(value)));
+    assertTrue(Double.isNaN(iter.next()));
+  }
+
+  private static void assertSameTimestamps(Cycle cycle, long start, long end) {
+    final DiscreteCycleIterator iter = cycle.iterator(start, end);
+    for (long value : cycle.materialize(start, end))
+      assertEquals(iter.next(), value);
+    assertEquals(-1, iter.next());
+  }
+
+  @Test
+  void materializeCycles() {
+    final Cycle minutes = new PeriodicCycle(0.0, new ConstantFunction(1.0), 0);
+    assertSameTimestamps(minutes, 59.5, 20000.0);
+    assertSameTimestamps(minutes, 59L, 20000L);
+    assertEquals(19940, minutes.materialize(59.5, 20000.0).length);
+    final Cycle limited = new PeriodicCycle(5.0, new ConstantFunction(7.0), 1000);
+    assertSameTimestamps(limited, 0.0, Double.POSITIVE_INFINITY);
+    assertSameTimestamps(limited, 100.0, 5000.0);
+    assertSameTimestamps(limited, 7000.0, 8000.0);
+    assertSameTimestamps(limited, 0L, Long.MAX_VALUE);
+    assertSameTimestamps(limited, 100L, 5000L);
+    final Cycle ended = new PeriodicCycle(5.0, new ConstantFunction(0.7), 1000.0);
+    assertSameTimestamps(ended, 3.0, 2e6);
+    final Cycle shifts = new PeriodicCycle(30.0, new ConstantFunction(1440.0), 0,
+        new TableCycle(new double[] {0.0, 480.0, 960.0}, new PeriodicCycle(0.0, new ConstantFunction(60.0), 480.0)));
+    assertSameTimestamps(shifts, 1000.0, 100000.0);
+    assertSameTimestamps(shifts, 1000L, 100000L);
+    final Cycle rounded = new RoundedPeriodicCycle(2.0, new ConstantFunction(3.3), 0,
+        RoundedPeriodicCycle.Type.ROUND, 5.0, 1.0);
+    assertSameTimestamps(rounded, 10.0, 10000.0);
+    assertSameTimestamps(rounded, 10L, 10000L);
+    assertThrows(IllegalArgumentException.class, () -> minutes.materialize(0.0, Double.POSITIVE_INFINITY));
+    assertThrows(IllegalArgumentException.class, () -> minutes.materialize(0L, Long.MAX_VALUE));
+    assertThrows(IllegalArgumentException.class, () -> shifts.materialize(0.0, Double.POSITIVE_INFINITY));
+    assertThrows(IllegalArgumentException.class, () -> shifts.materialize(0L, -1L));
+  }
+
+  @Test
+  void streamCycles() {
+    final Cycle shifts = new PeriodicCycle(30.0, new ConstantFunction(1440.0), 0,
+        new TableCycle(new double[] {0.0, 480.0, 960.0}, new PeriodicCycle(0.0, new ConstantFunction(60.0), 480.0)));
+    final double[] expected = shifts.materialize(1000.0, 1e6);
+    assertArrayEquals(expected, shifts.stream(1000.0, 1e6).toArray());
+    assertArrayEquals(expected, shifts.stream(1000.0, 1e6).parallel().toArray());
+    final long[] discrete = shifts.materialize(1000L, 1000000L);
+    assertArrayEquals(discrete, shifts.stream(1000L, 1000000L).parallel().toArray());
+    assertEquals(discrete.length, shifts.stream(1000L, 1000000L).parallel().count());
+    // Streams are lazy, so infinite cycles can be traversed partially
+    final Cycle minutes = new PeriodicCycle(0.0, new ConstantFunction(1.0), 0);
+    assertArrayEquals(new double[] {5.0, 6.0, 7.0}, minutes.stream(5.0, Double.POSITIVE_INFINITY).limit(3).toArray());
+    // Unsorted tables must still be sorted on demand
+    final Cycle unsorted = new TableCycle(new double[] {10.0, 50.0, 20.0});
+    assertArrayEquals(new double[] {10.0, 20.0, 50.0}, unsorted.stream(0.0, 100.0).sorted().toArray());
+    assertArrayEquals(new long[] {10L, 20L, 50L}, unsorted.stream(0L, 100L).sorted().toArray());
+  }
+}
@@ -0,0 +1,92 @@
+package es.ull.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import es.ull.simulation.utils.OrderStatistics;
+import es.ull.simulation.utils.Statistics;
+import org.junit.jupiter.api.Test;
+
+class OrderStatisticsTest {
+
+  @Test
+  void selectMatchesSort() {
+    final Random rnd = new Random(1);
+    for (int n : new int[] {1, 2, 17, 600, 5000, 100000}) {
+      final double[] values = new double[n];
+      for (int i = 0; i < n; i++)
+        values[i] = rnd.nextGaussian();
+      final double[] sorted = values.clone();
+      Arrays.sort(sorted);
+      final int[] positions = {n - 1, 0, n / 2, n / 40, n / 2, n - 1 - n / 40};
+      final double[] work = values.clone();
+      OrderStatistics.select(work, 0, n, positions);
+      for (int position : positions)
+        assertEquals(sorted[position], work[position]);
+      // The array is partitioned around the selected positions
+      final int mid = n / 2;
+      for (int i = 0; i < n; i++)
+        assertTrue((i < mid) ? work[i] <= work[mid] : work[i] >= work[mid]);
+    }
+  }
+
+  @Test
+  void duplicatesAndPrimitiveVariants() {
+    final Random rnd = new Random(2);
+    final int n = 20000;
+    final int[] ints = new int[n];
+    final long[] longs = new long[n];
+    for (int i = 0; i < n; i++) {
+      // Few distinct values, to stress the partitioning of equal values
+      ints[i] = rnd.nextInt(5);
+      longs[i] = rnd.nextLong();
+    }
+    final int[] sortedInts = ints.clone();
+    Arrays.sort(sortedInts);
+    final long[] sortedLongs = longs.clone();
+    Arrays.sort(sortedLongs);
+    final int[] scratch = new int[n];
+    assertArrayEquals(new int[] {sortedInts[0], sortedInts[n / 3], sortedInts[n - 1]},
+        OrderStatistics.sortedValuesAt(ints, scratch, 0, n / 3, n - 1));
+    assertArrayEquals(new long[] {sortedLongs[499], sortedLongs[n - 1]},
+        OrderStatistics.percentiles(longs, null, 0.025, 1.0));
+    // In place
+    final long[] copy = longs.clone();
+    assertArrayEquals(new long[] {sortedLongs[n / 2 - 1]}, OrderStatistics.percentiles(copy, copy, 0.5));
+    assertEquals(sortedLongs[n / 2 - 1], copy[n / 2 - 1]);
+    final int[] constant = new int[1000];
+    Arrays.fill(constant, 7);
+    assertArrayEquals(new int[] {7, 7}, OrderStatistics.percentiles(constant, null, 0.1, 0.9));
+  }
+
+  @Test
+  void sameAsSortedPercentile95CI() {
+    final Random rnd = new Random(3);
+    final double[] values = new double[12345];
+    final int[] ints = new int[values.length];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = -Math.log(rnd.nextDouble());
+      ints[i] = rnd.nextInt(1000);
+    }
+    final double[] sorted = values.clone();
+    Arrays.sort(sorted);
+    final int index = (int) Math.ceil(values.length * 0.025);
+    final double[] original = values.clone();
+    assertArrayEquals(new double[] {sorted[index - 1], sorted[values.length - index]}, Statistics.getPercentile95CI(values));
+    assertArrayEquals(original, values);
+    final int[] sortedInts = ints.clone();
+    Arrays.sort(sortedInts);
+    assertArrayEquals(new int[] {sortedInts[index - 1], sortedInts[ints.length - index]}, Statistics.getPercentile95CI(ints));
+  }
+
+  @Test
+  void nanValuesGoLast() {
+    final double[] values = {3.0, Double.NaN, 1.0, 2.0, Double.NaN};
+    assertArrayEquals(new double[] {1.0, 3.0, Double.NaN}, OrderStatistics.sortedValuesAt(values, null, 0, 2, 4));
+    assertTrue(Double.isNaN(OrderStatistics.percentiles(new double[0], null, 0.5)[0]));
+    assertThrows(IllegalArgumentException.class, () -> OrderStatistics.percentiles(values, null, 0.0));
+    assertThrows(IndexOutOfBoundsException.class, () -> OrderStatistics.select(values, 0, 3, 3));
+  }
+}
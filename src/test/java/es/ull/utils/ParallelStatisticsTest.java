@@ -0,0 +1,105 @@
+package es.ull.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+
+import es.ull.simulation.utils.OrderStatistics;
+import es.ull.simulation.utils.RunningStatistics;
+import es.ull.simulation.utils.Statistics;
+import org.junit.jupiter.api.Test;
+
+class ParallelStatisticsTest {
+  private static final int N = Statistics.PARALLEL_THRESHOLD * 3 + 7;
+
+  @Test
+  void momentsAboveThreshold() {
+    final Random rnd = new Random(1);
+    final double[] values = new double[N];
+    final int[] ints = new int[N];
+    final double[] weights = new double[N];
+    long intSum = 0;
+    double weightedSum = 0.0;
+    double weightSum = 0.0;
+    for (int i = 0; i < N; i++) {
+      values[i] = 1e8 + rnd.nextGaussian();
+      ints[i] = rnd.nextInt();
+      intSum += ints[i];
+      weights[i] = rnd.nextDouble() - 0.2;
+      if (weights[i] > 0) {
+        weightedSum += values[i] * weights[i];
+        weightSum += weights[i];
+      }
+    }
+    final RunningStatistics stats = new RunningStatistics();
+    stats.addAll(values);
+    assertEquals(stats.getMean(), Statistics.average(values), 1e-5);
+    assertEquals(stats.getStdDev(), Statistics.stdDev(values), 1e-6);
+    // Integers are summed exactly
+    assertEquals(intSum / (double) N, Statistics.average(ints));
+    final RunningStatistics intStats = new RunningStatistics();
+    intStats.addAll(ints);
+    assertEquals(intStats.getStdDev(), Statistics.stdDev(ints), intStats.getStdDev() * 1e-12);
+    assertEquals(weightedSum / weightSum, Statistics.weightedAverage(weights, values), 1e-4);
+  }
+
+  @Test
+  void percentilesAboveThreshold() {
+    final Random rnd = new Random(2);
+    final double[] values = new double[N];
+    final int[] ints = new int[N];
+    for (int i = 0; i < N; i++) {
+      values[i] = -Math.log(rnd.nextDouble());
+      // Heavily repeated values
+      ints[i] = rnd.nextInt(50);
+    }
+    values[3] = Double.NaN;
+    values[N - 1] = Double.NaN;
+    final double[] sorted = values.clone();
+    Arrays.sort(sorted);
+    final int index = (int) Math.ceil(N * 0.025);
+    assertArrayEquals(new double[] {sorted[index - 1], sorted[N - index]}, Statistics.getPercentile95CI(values));
+    assertArrayEquals(new double[] {sorted[0], sorted[N / 2], sorted[N - 3], Double.NaN},
+        OrderStatistics.parallelSortedValuesAt(values, 0, N / 2, N - 3, N - 1));
+    final int[] sortedInts = ints.clone();
+    Arrays.sort(sortedInts);
+    assertArrayEquals(new int[] {sortedInts[index - 1], sortedInts[N - index]}, Statistics.getPercentile95CI(ints));
+    assertArrayEquals(new int[] {sortedInts[N - 1], sortedInts[0]}, OrderStatistics.parallelSortedValuesAt(ints, N - 1, 0));
+  }
+
+  /**
+   * Returns the bytes allocated so far by the live threads.
+   */
+  private static long allocatedBytes() {
+    final com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long total = 0;
+    for (long id : bean.getAllThreadIds())
+      total += Math.max(0, bean.getThreadAllocatedBytes(id));
+    return total;
+  }
+
+  @Test
+  void fewDistinctValuesAreNotCopied() {
+    final Random rnd = new Random(3);
+    final int n = 1 << 22;
+    final double[] values = new double[n];
+    final int[] ints = new int[n];
+    for (int i = 0; i < n; i++) {
+      ints[i] = rnd.nextInt(3);
+      values[i] = ints[i];
+    }
+    final int[] sortedInts = ints.clone();
+    Arrays.sort(sortedInts);
+    final int index = (int) Math.ceil(n * 0.025);
+    final int[] expected = {sortedInts[index - 1], sortedInts[n - index]};
+    // Values equal to a bound are counted, so the memory used does not grow with the repeated values
+    long start = allocatedBytes();
+    assertArrayEquals(expected, Statistics.getPercentile95CI(ints));
+    assertTrue(allocatedBytes() - start < n, "int[] selection copied the repeated values");
+    start = allocatedBytes();
+    assertArrayEquals(new double[] {expected[0], expected[1]}, Statistics.getPercentile95CI(values));
+    assertTrue(allocatedBytes() - start < n, "double[] selection copied the repeated values");
+  }
+}
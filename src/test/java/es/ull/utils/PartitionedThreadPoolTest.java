@@ -0,0 +1,115 @@
+package es.ull.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import es.ull.simulation.utils.concurrent.PartitionedTask;
+import es.ull.simulation.utils.concurrent.PartitionedThreadPool;
+import org.junit.jupiter.api.Test;
+
+class PartitionedThreadPoolTest {
+  private static final int N_PARTITIONS = 50;
+
+  /**
+   * An entity whose state is only modified by its own events, without locks.
+   */
+  private static final class Entity {
+    final List<Integer> events = new ArrayList<>();
+    Thread thread = null;
+    boolean sameThread = true;
+  }
+
+  private static final class Event implements PartitionedTask {
+    final Entity[] entities;
+    final int id;
+    final int seq;
+
+    Event(Entity[] entities, int id, int seq) {
+      this.entities = entities;
+      this.id = id;
+      this.seq = seq;
+    }
+
+    @Override
+    public int getPartitionId() {
+      return id;
+    }
+
+    @Override
+    public void run() {
+      final Entity entity = entities[id];
+      if (entity.thread == null)
+        entity.thread = Thread.currentThread();
+      else if (entity.thread != Thread.currentThread())
+        entity.sameThread = false;
+      entity.events.add(seq);
+    }
+  }
+
+  @Test
+  void eventsOfAnEntityRunInOrder() throws InterruptedException {
+    final PartitionedThreadPool<Event> pool = new PartitionedThreadPool<>(4);
+    final Entity[] entities = new Entity[N_PARTITIONS];
+    for (int i = 0; i < N_PARTITIONS; i++)
+      entities[i] = new Entity();
+    int seq = 0;
+    for (int phase = 0; phase < 10; phase++) {
+      for (int i = 0; i < 1000; i++)
+        pool.execute(new Event(entities, i % N_PARTITIONS, seq++));
+      final List<Event> events = new ArrayList<>();
+      for (int i = 0; i < 1000; i++) {
+        // Entity 0 is a hot partition
+        events.add(new Event(entities, (i % 2 == 0) ? 0 : i % N_PARTITIONS, seq++));
+      }
+      pool.executePhase(events);
+      // Once a thread is assigned, the entity keeps it until the pool is rebalanced
+      for (Entity entity : entities) {
+        assertTrue(entity.sameThread);
+        entity.thread = null;
+      }
+      pool.rebalance();
+    }
+    int total = 0;
+    for (Entity entity : entities) {
+      for (int i = 1; i < entity.events.size(); i++)
+        assertTrue(entity.events.get(i - 1) < entity.events.get(i));
+      total += entity.events.size();
+    }
+    assertEquals(20000, total);
+    pool.shutdown();
+  }
+
+  @Test
+  void rebalanceHotPartitions() throws InterruptedException {
+    final PartitionedThreadPool<Event> pool = new PartitionedThreadPool<>(2, 8);
+    final Entity[] entities = new Entity[N_PARTITIONS];
+    for (int i = 0; i < N_PARTITIONS; i++)
+      entities[i] = new Entity();
+    // Puts the load of the partitions in the same thread
+    final int worker = pool.getWorker(0);
+    for (int i = 0; i < N_PARTITIONS; i++) {
+      if (pool.getWorker(i) == worker) {
+        for (int j = 0; j < 100; j++)
+          pool.execute(new Event(entities, i, j));
+      }
+    }
+    pool.awaitQuiescence();
+    final long[] before = pool.getWorkerLoad();
+    assertEquals(0, before[1 - worker]);
+    pool.rebalance();
+    // Runs the same events again with the new assignment
+    for (int i = 0; i < N_PARTITIONS; i++) {
+      if (entities[i].events.size() > 0) {
+        for (int j = 0; j < 100; j++)
+          pool.execute(new Event(entities, i, 100 + j));
+      }
+    }
+    pool.awaitQuiescence();
+    final long[] after = pool.getWorkerLoad();
+    assertTrue(after[0] > 0 && after[1] > 0);
+    assertEquals(before[worker], after[0] + after[1]);
+    pool.shutdown();
+  }
+}
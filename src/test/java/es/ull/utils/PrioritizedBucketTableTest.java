@@ -0,0 +1,112 @@
+package es.ull.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import es.ull.simulation.utils.Prioritizable;
+import es.ull.simulation.utils.PrioritizedBucketTable;
+import es.ull.simulation.utils.PrioritizedTable;
+import org.junit.jupiter.api.Test;
+
+class PrioritizedBucketTableTest {
+
+  private static class Item implements Prioritizable {
+    final int priority;
+    final int id;
+
+    Item(int priority, int id) {
+      this.priority = priority;
+      this.id = id;
+    }
+
+    @Override
+    public int getPriority() {
+      return priority;
+    }
+
+    @Override
+    public String toString() {
+      return priority + ":" + id;
+    }
+  }
+
+  private static <E> List<E> toList(Iterator<E> iter) {
+    final List<E> list = new ArrayList<E>();
+    while (iter.hasNext())
+      list.add(iter.next());
+    return list;
+  }
+
+  @Test
+  void sameOrderAsPrioritizedTable() {
+    final PrioritizedBucketTable<Item> bucket = new PrioritizedBucketTable<Item>(199);
+    final PrioritizedTable<Item> table = new PrioritizedTable<Item>();
+    final List<Item> items = new ArrayList<Item>();
+    final Random rnd = new Random(7);
+    for (int i = 0; i < 2000; i++) {
+      final Item item = new Item(rnd.nextInt(200), i);
+      items.add(item);
+      bucket.add(item);
+      table.add(item);
+    }
+    for (int i = 0; i < 1500; i++) {
+      final Item item = items.remove(rnd.nextInt(items.size()));
+      assertTrue(bucket.remove(item));
+      table.remove(item);
+      assertFalse(bucket.remove(item));
+      assertEquals(table.size(), bucket.size());
+      if (i % 100 == 0)
+        assertEquals(toList(table.iterator()), toList(bucket.iterator()));
+    }
+    assertEquals(toList(table.iterator()), toList(bucket.iterator()));
+    int min = Integer.MAX_VALUE;
+    for (Item item : items)
+      min = Math.min(min, item.getPriority());
+    assertEquals(min, bucket.firstPriority());
+    final List<Item> first = bucket.firstLevel();
+    assertEquals(min, first.get(0).getPriority());
+  }
+
+  @Test
+  void firstAndNextPriority() {
+    final PrioritizedBucketTable<Item> bucket = new PrioritizedBucketTable<Item>(PrioritizedBucketTable.MAX_LEVELS - 1);
+    assertEquals(-1, bucket.firstPriority());
+    assertNull(bucket.firstLevel());
+    final Item low = new Item(4095, 0);
+    final Item mid = new Item(64, 1);
+    bucket.add(low);
+    assertEquals(4095, bucket.firstPriority());
+    bucket.add(mid);
+    assertEquals(64, bucket.firstPriority());
+    assertEquals(64, bucket.nextPriority(0));
+    assertEquals(4095, bucket.nextPriority(65));
+    assertEquals(-1, bucket.nextPriority(4096));
+    bucket.remove(mid);
+    assertEquals(4095, bucket.firstPriority());
+    // Empty levels are kept
+    final List<Item> level = bucket.getLevel(64);
+    assertNotNull(level);
+    assertTrue(level.isEmpty());
+    bucket.clear();
+    assertEquals(0, bucket.size());
+    assertEquals(-1, bucket.firstPriority());
+    assertFalse(bucket.iterator().hasNext());
+    assertThrows(IllegalArgumentException.class, () -> bucket.add(new Item(-1, 2)));
+    assertThrows(IllegalArgumentException.class, () -> new PrioritizedBucketTable<Item>(PrioritizedBucketTable.MAX_LEVELS));
+  }
+
+  @Test
+  void randomIteratorVisitsEveryObject() {
+    final PrioritizedBucketTable<Item> bucket = new PrioritizedBucketTable<Item>(9);
+    for (int i = 0; i < 50; i++)
+      bucket.add(new Item(i % 10, i));
+    final List<Item> visited = toList(bucket.randomIterator());
+    assertEquals(50, visited.size());
+    for (int i = 1; i < visited.size(); i++)
+      assertTrue(visited.get(i - 1).getPriority() <= visited.get(i).getPriority());
+  }
+}
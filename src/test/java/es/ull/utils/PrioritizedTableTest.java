@@ -0,0 +1,124 @@
+package es.ull.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import es.ull.simulation.utils.IndexedPrioritizable;
+import es.ull.simulation.utils.PrioritizedTable;
+import es.ull.simulation.utils.ResettableIterator;
+import org.junit.jupiter.api.Test;
+
+class PrioritizedTableTest {
+
+  static class IndexedItem implements IndexedPrioritizable {
+    final int priority;
+    int index = -1;
+
+    IndexedItem(int priority) {
+      this.priority = priority;
+    }
+
+    @Override
+    public int getPriority() {
+      return priority;
+    }
+
+    @Override
+    public int getLevelIndex() {
+      return index;
+    }
+
+    @Override
+    public void setLevelIndex(int index) {
+      this.index = index;
+    }
+  }
+
+  @Test
+  void indexedRemoval() {
+    final PrioritizedTable<IndexedItem> table = new PrioritizedTable<IndexedItem>();
+    final List<IndexedItem> items = new ArrayList<IndexedItem>();
+    final Random rnd = new Random(3);
+    for (int i = 0; i < 5000; i++) {
+      final IndexedItem item = new IndexedItem(rnd.nextInt(4));
+      items.add(item);
+      table.add(item);
+    }
+    Collections.shuffle(items, rnd);
+    final Set<IndexedItem> removed = new HashSet<IndexedItem>(items.subList(0, 3000));
+    for (IndexedItem item : removed)
+      table.remove(item);
+    assertEquals(2000, table.size());
+    final Set<IndexedItem> remaining = new HashSet<IndexedItem>();
+    final Iterator<IndexedItem> iter = table.iterator();
+    while (iter.hasNext())
+      remaining.add(iter.next());
+    assertEquals(new HashSet<IndexedItem>(items.subList(3000, 5000)), remaining);
+    for (IndexedItem item : removed)
+      assertEquals(-1, item.getLevelIndex());
+  }
+
+  @Test
+  void reusableRandomIterator() {
+    final PrioritizedTable<IndexedItem> table = new PrioritizedTable<IndexedItem>();
+    for (int i = 0; i < 300; i++)
+      table.add(new IndexedItem(i % 3));
+    final ResettableIterator<IndexedItem> iter = table.randomIterator(new SplittableRandom(5));
+    final ResettableIterator<IndexedItem> same = table.randomIterator(new SplittableRandom(5));
+    List<IndexedItem> previous = null;
+    for (int rep = 0; rep < 3; rep++) {
+      final List<IndexedItem> visited = new ArrayList<IndexedItem>();
+      while (iter.hasNext()) {
+        final IndexedItem item = iter.next();
+        assertSame(item, same.next());
+        if (!visited.isEmpty())
+          assertTrue(visited.get(visited.size() - 1).getPriority() <= item.getPriority());
+        visited.add(item);
+      }
+      assertFalse(same.hasNext());
+      assertEquals(300, new HashSet<IndexedItem>(visited).size());
+      assertNotEquals(previous, visited);
+      previous = visited;
+      iter.reset();
+      same.reset();
+    }
+  }
+
+  @Test
+  void roundRobinAfterRemoval() {
+    final PrioritizedTable<IndexedItem> table = new PrioritizedTable<IndexedItem>();
+    final List<IndexedItem> items = new ArrayList<IndexedItem>();
+    for (int i = 0; i < 100; i++) {
+      final IndexedItem item = new IndexedItem(0);
+      items.add(item);
+      table.add(item);
+    }
+    // Chooses part of the objects of the round
+    final Iterator<IndexedItem> first = table.balancedIterator();
+    final List<IndexedItem> chosen = new ArrayList<IndexedItem>();
+    for (int i = 0; i < 40; i++)
+      chosen.add(first.next());
+    final List<IndexedItem> pending = new ArrayList<IndexedItem>(items);
+    pending.removeAll(chosen);
+    // Removes chosen and pending objects
+    final Random rnd = new Random(11);
+    for (int i = 0; i < 10; i++) {
+      table.remove(chosen.remove(rnd.nextInt(chosen.size())));
+      table.remove(pending.remove(rnd.nextInt(pending.size())));
+    }
+    // The rest of the round only chooses the pending objects, each one once
+    final Iterator<IndexedItem> second = table.balancedIterator();
+    final Set<IndexedItem> rest = new HashSet<IndexedItem>();
+    for (int i = 0; i < pending.size(); i++)
+      rest.add(second.next());
+    assertEquals(new HashSet<IndexedItem>(pending), rest);
+  }
+}
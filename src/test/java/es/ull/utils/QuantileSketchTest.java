@@ -0,0 +1,108 @@
+package es.ull.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.DoubleStream;
+
+import es.ull.simulation.utils.QuantileSketch;
+import es.ull.simulation.utils.Statistics;
+import org.junit.jupiter.api.Test;
+
+class QuantileSketchTest {
+
+  /**
+   * Returns the fraction of values lower or equal to the specified one.
+   */
+  private static double exactRank(double[] sorted, double value) {
+    int count = 0;
+    while (count < sorted.length && sorted[count] <= value)
+      count++;
+    return (double) count / sorted.length;
+  }
+
+  @Test
+  void exactWhileNotCompacted() {
+    final Random rnd = new Random(1);
+    final double[] values = new double[150];
+    for (int i = 0; i < values.length; i++)
+      values[i] = rnd.nextGaussian();
+    final QuantileSketch sketch = new QuantileSketch();
+    sketch.addAll(values);
+    assertTrue(sketch.isExact());
+    assertArrayEquals(Statistics.getPercentile95CI(values), sketch.getPercentile95CI());
+    final double[] sorted = values.clone();
+    Arrays.sort(sorted);
+    assertEquals(sorted[74], sketch.getQuantile(0.5));
+    assertEquals(sorted[0], sketch.getMin());
+    assertEquals(sorted[149], sketch.getQuantile(1.0));
+  }
+
+  @Test
+  void boundedRankError() {
+    final Random rnd = new Random(2);
+    final double[] values = new double[200000];
+    for (int i = 0; i < values.length; i++)
+      values[i] = -Math.log(rnd.nextDouble());
+    final QuantileSketch sketch = new QuantileSketch(QuantileSketch.DEFAULT_K, 3);
+    sketch.addAll(values);
+    assertFalse(sketch.isExact());
+    assertTrue(sketch.getRetained() < 4 * QuantileSketch.DEFAULT_K);
+    final double[] sorted = values.clone();
+    Arrays.sort(sorted);
+    for (double percent : new double[] {0.025, 0.25, 0.5, 0.75, 0.975})
+      assertEquals(percent, exactRank(sorted, sketch.getQuantile(percent)), 0.02);
+    final double[] ci = sketch.getPercentile95CI();
+    assertEquals(0.025, exactRank(sorted, ci[0]), 0.02);
+    assertEquals(0.975, exactRank(sorted, ci[1]), 0.02);
+  }
+
+  @Test
+  void mergeEqualsSequential() {
+    final Random rnd = new Random(4);
+    final double[] values = new double[100000];
+    final QuantileSketch[] parts = new QuantileSketch[5];
+    for (int p = 0; p < parts.length; p++)
+      parts[p] = new QuantileSketch(QuantileSketch.DEFAULT_K, p);
+    for (int i = 0; i < values.length; i++) {
+      values[i] = rnd.nextGaussian() * 10.0;
+      parts[i % parts.length].add(values[i]);
+    }
+    final QuantileSketch merged = new QuantileSketch(QuantileSketch.DEFAULT_K, 10);
+    merged.merge(new QuantileSketch());
+    for (QuantileSketch part : parts)
+      merged.merge(part);
+    assertEquals(values.length, merged.getN());
+    final double[] sorted = values.clone();
+    Arrays.sort(sorted);
+    assertEquals(sorted[sorted.length - 1], merged.getMax());
+    assertEquals(0.5, merged.getRank(sorted[sorted.length / 2]), 0.02);
+    final double[] ci = merged.getPercentile95CI();
+    assertEquals(0.025, exactRank(sorted, ci[0]), 0.02);
+    assertEquals(0.975, exactRank(sorted, ci[1]), 0.02);
+    // Parallel reduction of a stream
+    final QuantileSketch collected = DoubleStream.iterate(0.0, v -> v + 1.0).limit(100001).parallel()
+        .collect(QuantileSketch::new, QuantileSketch::accept, QuantileSketch::merge);
+    assertEquals(50000.0, collected.getQuantile(0.5), 2000.0);
+    // A sketch merged with itself counts its values twice
+    final QuantileSketch twice = new QuantileSketch(QuantileSketch.DEFAULT_K, 11);
+    twice.addAll(values);
+    twice.merge(twice);
+    assertEquals(2L * values.length, twice.getN());
+    assertEquals(0.5, twice.getRank(sorted[sorted.length / 2]), 0.02);
+  }
+
+  @Test
+  void emptyAndInvalid() {
+    final QuantileSketch sketch = new QuantileSketch();
+    assertTrue(Double.isNaN(sketch.getQuantile(0.5)));
+    assertTrue(Double.isNaN(sketch.getMin()));
+    sketch.add(3.0);
+    assertTrue(Double.isNaN(sketch.getQuantile(0.0)));
+    assertEquals(3.0, sketch.getQuantile(0.5));
+    sketch.clear();
+    assertEquals(0, sketch.getN());
+    assertThrows(IllegalArgumentException.class, () -> new QuantileSketch(2));
+  }
+}
@@ -0,0 +1,69 @@
+package es.ull.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+
+import es.ull.simulation.utils.FeistelPermutation;
+import es.ull.simulation.utils.RandomPermutation;
+import org.junit.jupiter.api.Test;
+
+class RandomPermutationTest {
+
+  private static void assertDistinct(int[] values, int n) {
+    final boolean[] seen = new boolean[n];
+    for (int v : values) {
+      assertTrue(v >= 0 && v < n);
+      assertFalse(seen[v]);
+      seen[v] = true;
+    }
+  }
+
+  @Test
+  void seededPermutations() {
+    final int[] p = new RandomPermutation(17).permutation(1000);
+    assertArrayEquals(p, new RandomPermutation(17).permutation(1000));
+    assertDistinct(p, 1000);
+    assertEquals(1000, p.length);
+    final RandomPermutation engine = new RandomPermutation(17);
+    final RandomPermutation other = engine.split();
+    assertFalse(Arrays.equals(engine.permutation(1000), other.permutation(1000)));
+  }
+
+  @Test
+  void partialAndLazyPermutations() {
+    final int n = 50000000;
+    final int[] sample = new RandomPermutation(3).partialPermutation(n, 1000);
+    assertEquals(1000, sample.length);
+    assertDistinct(sample, n);
+    // The lazy permutation produces the same sequence with the same seed
+    final PrimitiveIterator.OfInt lazy = new RandomPermutation(3).lazyPermutation(n);
+    for (int v : sample)
+      assertEquals(v, lazy.nextInt());
+    // A full lazy permutation visits every element once
+    final PrimitiveIterator.OfInt full = new RandomPermutation(5).lazyPermutation(5000);
+    final int[] values = new int[5000];
+    for (int i = 0; i < values.length; i++)
+      values[i] = full.nextInt();
+    assertFalse(full.hasNext());
+    assertDistinct(values, 5000);
+    assertThrows(IllegalArgumentException.class, () -> new RandomPermutation(3).partialPermutation(10, 11));
+  }
+
+  @Test
+  void feistelBijection() {
+    for (int n : new int[] {1, 2, 3, 1000, 65537}) {
+      final FeistelPermutation f = new FeistelPermutation(n, 99);
+      final int[] values = new int[n];
+      for (int i = 0; i < n; i++)
+        values[i] = f.apply(i);
+      assertDistinct(values, n);
+    }
+    final FeistelPermutation big = new RandomPermutation(1).bijection(Long.MAX_VALUE);
+    final long v = big.apply(123456789L);
+    assertTrue(v >= 0);
+    assertEquals(v, big.apply(123456789L));
+    assertThrows(IllegalArgumentException.class, () -> big.apply(-1L));
+  }
+}
@@ -0,0 +1,76 @@
+package es.ull.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import java.util.stream.DoubleStream;
+
+import es.ull.simulation.utils.RunningStatistics;
+import es.ull.simulation.utils.Statistics;
+import org.junit.jupiter.api.Test;
+
+class RunningStatisticsTest {
+
+  @Test
+  void sameAsStatistics() {
+    final Random rnd = new Random(1);
+    final double[] values = new double[10000];
+    for (int i = 0; i < values.length; i++)
+      values[i] = 1e6 + rnd.nextGaussian() * 3.0;
+    final RunningStatistics stats = new RunningStatistics();
+    stats.addAll(values);
+    assertEquals(values.length, stats.getN());
+    assertEquals(Statistics.average(values), stats.getMean(), 1e-6);
+    assertEquals(Statistics.stdDev(values), stats.getStdDev(), 1e-6);
+    // A normal distribution has no skewness nor excess kurtosis
+    assertEquals(0.0, stats.getSkewness(), 0.1);
+    assertEquals(0.0, stats.getKurtosis(), 0.1);
+    double min = Double.MAX_VALUE;
+    for (double v : values)
+      min = Math.min(min, v);
+    assertEquals(min, stats.getMin());
+  }
+
+  @Test
+  void mergeEqualsSequential() {
+    final Random rnd = new Random(2);
+    final RunningStatistics all = new RunningStatistics();
+    final RunningStatistics[] parts = new RunningStatistics[7];
+    for (int p = 0; p < parts.length; p++) {
+      parts[p] = new RunningStatistics();
+      // Parts of different sizes and distributions
+      for (int i = 0; i < 100 * p + 1; i++) {
+        final double v = -Math.log(rnd.nextDouble()) * (p + 1);
+        parts[p].add(v);
+        all.add(v);
+      }
+    }
+    final RunningStatistics merged = new RunningStatistics();
+    merged.merge(new RunningStatistics());
+    for (RunningStatistics part : parts)
+      merged.merge(part);
+    assertEquals(all.getN(), merged.getN());
+    assertEquals(all.getMean(), merged.getMean(), 1e-9);
+    assertEquals(all.getVariance(), merged.getVariance(), 1e-9);
+    assertEquals(all.getSkewness(), merged.getSkewness(), 1e-9);
+    assertEquals(all.getKurtosis(), merged.getKurtosis(), 1e-9);
+    assertEquals(all.getMax(), merged.getMax());
+    // Parallel reduction of a stream
+    final RunningStatistics collected = DoubleStream.iterate(0.0, v -> v + 1.0).limit(1001).parallel()
+        .collect(RunningStatistics::new, RunningStatistics::accept, RunningStatistics::merge);
+    assertEquals(500.0, collected.getMean(), 1e-9);
+    assertEquals(Statistics.stdDev(DoubleStream.iterate(0.0, v -> v + 1.0).limit(1001).toArray()), collected.getStdDev(), 1e-9);
+  }
+
+  @Test
+  void emptyAndSingle() {
+    final RunningStatistics stats = new RunningStatistics();
+    assertTrue(Double.isNaN(stats.getMean()));
+    assertTrue(Double.isNaN(stats.getStdDev()));
+    stats.add(4.0);
+    assertEquals(0.0, stats.getStdDev());
+    assertEquals(4.0, stats.getMin());
+    stats.clear();
+    assertEquals(0, stats.getN());
+  }
+}
@@ -0,0 +1,146 @@
+package es.ull.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import es.ull.simulation.utils.concurrent.PoolMetrics;
+import es.ull.simulation.utils.concurrent.SingleThreadPool;
+import es.ull.simulation.utils.concurrent.StandardThreadPool;
+import es.ull.simulation.utils.concurrent.ThreadPool;
+import es.ull.simulation.utils.concurrent.VirtualThreadPool;
+import es.ull.simulation.utils.concurrent.WorkStealingThreadPool;
+import org.junit.jupiter.api.Test;
+
+class ThreadPoolTest {
+
+  /**
+   * Runs several phases of events, where each event also schedules a child event in the same
+   * phase, and checks that no event of a phase is still running when the phase finishes.
+   */
+  private static void assertPhases(ThreadPool<Runnable> pool) throws InterruptedException {
+    final AtomicInteger executed = new AtomicInteger();
+    for (int phase = 1; phase <= 20; phase++) {
+      final List<Runnable> events = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        events.add(() -> {
+          executed.incrementAndGet();
+          pool.execute(executed::incrementAndGet);
+        });
+      }
+      pool.executePhase(events);
+      assertEquals(phase * 200, executed.get());
+    }
+    pool.executeAll(List.of(executed::incrementAndGet, executed::incrementAndGet));
+    pool.awaitQuiescence();
+    assertEquals(4002, executed.get());
+    // Nothing to wait for
+    pool.awaitQuiescence();
+    pool.shutdown();
+  }
+
+  private static void assertMetrics(PoolMetrics metrics, int nWorkers) {
+    assertEquals(300, metrics.getSubmittedTasks());
+    assertEquals(300, metrics.getCompletedTasks());
+    assertEquals(0, metrics.getPendingTasks());
+    assertEquals(0, metrics.getActiveThreads());
+    assertEquals(nWorkers, metrics.getIdleThreads());
+    assertTrue(metrics.getTotalExecutionTime() > 0);
+    assertTrue(metrics.getMeanQueueTime() >= 0.0);
+    long total = 0;
+    for (long count : metrics.getExecutionTimeHistogram())
+      total += count;
+    assertEquals(300, total);
+    assertEquals(nWorkers, metrics.getWorkerUtilization().length);
+    assertTrue(metrics.getThroughput() > 0.0);
+  }
+
+  @Test
+  void metrics() throws Exception {
+    final StandardThreadPool<Runnable> standard = new StandardThreadPool<>(3);
+    final SingleThreadPool<Runnable> single = new SingleThreadPool<>();
+    final SingleThreadPool<Runnable> fast = new SingleThreadPool<>(true);
+    final PoolMetrics standardMetrics = standard.enableMetrics();
+    assertSame(standardMetrics, standard.enableMetrics());
+    final PoolMetrics singleMetrics = single.enableMetrics();
+    final PoolMetrics fastMetrics = fast.enableMetrics();
+    final AtomicInteger executed = new AtomicInteger();
+    final List<Runnable> events = new ArrayList<>();
+    for (int i = 0; i < 100; i++)
+      events.add(executed::incrementAndGet);
+    for (ThreadPool<Runnable> pool : List.of(standard, single, fast)) {
+      pool.executePhase(events);
+      for (int i = 0; i < 200; i++)
+        pool.execute(executed::incrementAndGet);
+      pool.awaitQuiescence();
+      pool.shutdown();
+    }
+    assertEquals(900, executed.get());
+    assertMetrics(standardMetrics, 3);
+    assertMetrics(singleMetrics, 1);
+    assertMetrics(fastMetrics, 1);
+
+    standardMetrics.register("test");
+    assertEquals(300L, ManagementFactory.getPlatformMBeanServer().getAttribute(standardMetrics.getJmxName(), "CompletedTasks"));
+    standardMetrics.unregister();
+    assertNull(standardMetrics.getJmxName());
+  }
+
+  @Test
+  void standardThreadPool() throws InterruptedException {
+    assertPhases(new StandardThreadPool<Runnable>(4));
+  }
+
+  @Test
+  void singleThreadPool() throws InterruptedException {
+    assertPhases(new SingleThreadPool<Runnable>());
+  }
+
+  @Test
+  void highThroughputSingleThreadPool() throws InterruptedException {
+    assertPhases(new SingleThreadPool<Runnable>(true));
+    // Tasks from each producer are executed in FIFO order
+    final SingleThreadPool<Runnable> pool = new SingleThreadPool<>(true);
+    final int nProducers = 4;
+    final int nTasks = 100000;
+    final int[] last = new int[nProducers];
+    final AtomicInteger errors = new AtomicInteger();
+    final Thread[] producers = new Thread[nProducers];
+    for (int p = 0; p < nProducers; p++) {
+      final int producer = p;
+      last[p] = -1;
+      producers[p] = new Thread(() -> {
+        for (int i = 0; i < nTasks; i++) {
+          final int index = i;
+          pool.execute(() -> {
+            if (last[producer] != index - 1)
+              errors.incrementAndGet();
+            last[producer] = index;
+          });
+        }
+      });
+      producers[p].start();
+    }
+    for (Thread producer : producers)
+      producer.join();
+    pool.awaitQuiescence();
+    assertEquals(0, errors.get());
+    for (int p = 0; p < nProducers; p++)
+      assertEquals(nTasks - 1, last[p]);
+    pool.shutdown();
+    pool.join();
+  }
+
+  @Test
+  void workStealingThreadPool() throws InterruptedException {
+    assertPhases(new WorkStealingThreadPool<Runnable>(4));
+  }
+
+  @Test
+  void virtualThreadPool() throws InterruptedException {
+    assertPhases(new VirtualThreadPool<Runnable>(8));
+  }
+}
@@ -0,0 +1,56 @@
+package es.ull.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import es.ull.simulation.utils.concurrent.VirtualThreadPool;
+import org.junit.jupiter.api.Test;
+
+class VirtualThreadPoolTest {
+
+  @Test
+  void boundedConcurrency() {
+    final VirtualThreadPool<Runnable> pool = new VirtualThreadPool<>(16);
+    assertEquals(Runtime.version().feature() >= 21, pool.isVirtual());
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+    final AtomicInteger executed = new AtomicInteger();
+    for (int i = 0; i < 500; i++) {
+      pool.execute(() -> {
+        final int n = running.incrementAndGet();
+        maxRunning.accumulateAndGet(n, Math::max);
+        try {
+          // Simulates a blocking operation
+          Thread.sleep(1);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        running.decrementAndGet();
+        executed.incrementAndGet();
+      });
+    }
+    // Waits for every task to finish
+    pool.shutdown();
+    assertEquals(500, executed.get());
+    assertTrue(maxRunning.get() <= 16);
+    assertThrows(RejectedExecutionException.class, () -> pool.execute(() -> { }));
+  }
+
+  @Test
+  void failingTasks() {
+    final VirtualThreadPool<Runnable> pool = new VirtualThreadPool<>(2);
+    final AtomicInteger executed = new AtomicInteger();
+    for (int i = 0; i < 10; i++) {
+      final int index = i;
+      pool.execute(() -> {
+        executed.incrementAndGet();
+        if (index % 2 == 0)
+          throw new IllegalStateException("Expected failure");
+      });
+    }
+    pool.shutdown();
+    assertEquals(10, executed.get());
+  }
+}
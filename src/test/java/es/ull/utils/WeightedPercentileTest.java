@@ -0,0 +1,122 @@
+package es.ull.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import es.ull.simulation.utils.OrderStatistics;
+import es.ull.simulation.utils.Statistics;
+import es.ull.simulation.utils.WeightedQuantileSketch;
+import org.junit.jupiter.api.Test;
+
+class WeightedPercentileTest {
+
+  /**
+   * Reference implementation: repeats each value as many times as its (integer) weight and takes
+   * the midpoint-interpolated percentile.
+   */
+  private static double expandedPercentile(int[] weights, double[] values, double percent) {
+    int total = 0;
+    for (int w : weights)
+      total += w;
+    final double[] expanded = new double[total];
+    final double[] ones = new double[total];
+    int count = 0;
+    for (int i = 0; i < values.length; i++) {
+      for (int j = 0; j < weights[i]; j++) {
+        ones[count] = 1.0;
+        expanded[count++] = values[i];
+      }
+    }
+    return Statistics.weightedPercentile(ones, expanded, percent, false);
+  }
+
+  @Test
+  void primitiveImplementation() {
+    final double[] values = {5.0, 1.0, 3.0, 2.0, 4.0};
+    final double[] weights = {1.0, 1.0, 1.0, 1.0, 1.0};
+    // Midpoints at 0.1, 0.3, 0.5, 0.7 and 0.9
+    assertEquals(3.0, Statistics.weightedPercentile(weights, values, 0.5, false), 1e-12);
+    assertEquals(1.5, Statistics.weightedPercentile(weights, values, 0.2, false), 1e-12);
+    assertEquals(1.0, Statistics.weightedPercentile(weights, values, 0.05, false), 1e-12);
+    assertEquals(5.0, Statistics.weightedPercentile(weights, values, 1.0, false), 1e-12);
+    // Non-positive weights are ignored
+    final double[] withZeros = {0.0, 1.0, -2.0, 1.0, 0.0};
+    assertEquals(1.5, Statistics.weightedPercentile(withZeros, values, 0.5, false), 1e-12);
+    assertEquals(3.0, Statistics.weightedPercentile(withZeros, new double[] {1.0, 2.0, 3.0, 4.0, 5.0}, 0.5, true), 1e-12);
+    assertTrue(Double.isNaN(Statistics.weightedPercentile(new double[5], values, 0.5, false)));
+    assertTrue(Double.isNaN(Statistics.weightedPercentile(weights, values, 0.0, false)));
+    assertEquals(7.0, Statistics.weightedPercentile(new double[] {0.0}, new double[] {7.0}, 0.5, false));
+    final double[] several = Statistics.weightedPercentiles(weights, values, false, 0.5, 0.2, 1.5);
+    assertEquals(3.0, several[0], 1e-12);
+    assertEquals(1.5, several[1], 1e-12);
+    assertTrue(Double.isNaN(several[2]));
+  }
+
+  @Test
+  void sortedAndUnsortedAgree() {
+    final Random rnd = new Random(1);
+    final double[] values = new double[5001];
+    final double[] weights = new double[values.length];
+    for (int i = 0; i < values.length; i++) {
+      // Repeated values, to check that ties keep their order
+      values[i] = rnd.nextInt(200);
+      weights[i] = rnd.nextDouble() * 3.0 - 0.5;
+    }
+    final double[] sortedValues = values.clone();
+    final double[] sortedWeights = weights.clone();
+    OrderStatistics.sort(sortedValues, sortedWeights, 0, values.length);
+    for (int i = 1; i < values.length; i++)
+      assertTrue(sortedValues[i - 1] <= sortedValues[i]);
+    for (double percent : new double[] {0.01, 0.025, 0.3, 0.5, 0.975, 1.0})
+      assertEquals(Statistics.weightedPercentile(sortedWeights, sortedValues, percent, true),
+          Statistics.weightedPercentile(weights, values, percent, false), 1e-9);
+  }
+
+  @Test
+  void sketchExactWithFewValues() {
+    final double[] values = {3.2, 8.5, -1.0, 4.4, 0.3, 9.9, 2.2, 5.1};
+    final double[] weights = {1.0, 0.5, 2.0, 1.5, 0.7, 0.2, 1.1, 0.0};
+    final WeightedQuantileSketch sketch = new WeightedQuantileSketch();
+    sketch.addAll(weights, values);
+    assertEquals(7, sketch.getN());
+    for (double percent : new double[] {0.01, 0.25, 0.5, 0.9, 1.0})
+      assertEquals(Statistics.weightedPercentile(weights, values, percent, false), sketch.getQuantile(percent), 1e-12);
+  }
+
+  @Test
+  void sketchMergedAccuracy() {
+    final Random rnd = new Random(2);
+    final int n = 200000;
+    final double[] values = new double[n];
+    final int[] intWeights = new int[n];
+    final double[] weights = new double[n];
+    final WeightedQuantileSketch[] parts = new WeightedQuantileSketch[4];
+    for (int p = 0; p < parts.length; p++)
+      parts[p] = new WeightedQuantileSketch();
+    for (int i = 0; i < n; i++) {
+      values[i] = rnd.nextGaussian();
+      intWeights[i] = 1 + rnd.nextInt(3);
+      weights[i] = intWeights[i];
+      parts[i % parts.length].add(values[i], weights[i]);
+    }
+    final WeightedQuantileSketch merged = new WeightedQuantileSketch();
+    for (WeightedQuantileSketch part : parts)
+      merged.merge(part);
+    assertEquals(n, merged.getN());
+    assertTrue(merged.getCentroidCount() <= merged.getCompression());
+    for (double percent : new double[] {0.025, 0.5, 0.975}) {
+      final double exact = Statistics.weightedPercentile(weights, values, percent, false);
+      assertEquals(exact, merged.getQuantile(percent), 0.02);
+      assertEquals(expandedPercentile(intWeights, values, percent), exact, 0.01);
+    }
+    // A sketch merged with itself counts its values twice
+    final WeightedQuantileSketch twice = new WeightedQuantileSketch();
+    for (int i = 0; i < 100000; i++)
+      twice.add(values[i]);
+    twice.merge(twice);
+    assertEquals(200000, twice.getN());
+    assertEquals(200000.0, twice.getTotalWeight(), 1e-6);
+    assertEquals(0.0, twice.getQuantile(0.5), 0.05);
+  }
+}
@@ -0,0 +1,67 @@
+package es.ull.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import es.ull.simulation.utils.concurrent.WorkStealingThreadPool;
+import org.junit.jupiter.api.Test;
+
+class WorkStealingThreadPoolTest {
+
+  @Test
+  void executeNestedTasks() throws InterruptedException {
+    final WorkStealingThreadPool<Runnable> pool = new WorkStealingThreadPool<>(4);
+    final int nTasks = 1000;
+    final int nChildren = 10;
+    final CountDownLatch done = new CountDownLatch(nTasks * nChildren);
+    final AtomicInteger executed = new AtomicInteger();
+    for (int i = 0; i < nTasks; i++) {
+      // Tasks submitted by a thread of the pool go to its own queue
+      pool.execute(() -> {
+        for (int j = 0; j < nChildren; j++) {
+          pool.execute(() -> {
+            executed.incrementAndGet();
+            done.countDown();
+          });
+        }
+      });
+    }
+    assertTrue(done.await(30, TimeUnit.SECONDS));
+    assertEquals(nTasks * nChildren, executed.get());
+    pool.shutdown();
+    assertThrows(RejectedExecutionException.class, () -> pool.execute(() -> { }));
+    final List<Runnable> batch = List.of(() -> { }, () -> { }, () -> { });
+    assertThrows(RejectedExecutionException.class, () -> pool.executeAll(batch));
+    // The rejected batch must not be counted as unfinished
+    final Thread waiter = new Thread(() -> {
+      try {
+        pool.awaitQuiescence();
+      } catch (InterruptedException e) {
+      }
+    });
+    waiter.setDaemon(true);
+    waiter.start();
+    waiter.join(5000);
+    assertFalse(waiter.isAlive());
+  }
+
+  @Test
+  void sharedPool() {
+    final WorkStealingThreadPool<Runnable> pool1 = WorkStealingThreadPool.getPool(2);
+    final WorkStealingThreadPool<Runnable> pool2 = WorkStealingThreadPool.getPool(8);
+    assertSame(pool1, pool2);
+    assertEquals(2, pool2.getNThreads());
+    pool1.shutdown();
+    // The pool is still usable until every user shuts it down
+    pool2.execute(() -> { });
+    pool2.shutdown();
+    final WorkStealingThreadPool<Runnable> pool3 = WorkStealingThreadPool.getPool(2);
+    assertNotSame(pool1, pool3);
+    pool3.shutdown();
+  }
+}